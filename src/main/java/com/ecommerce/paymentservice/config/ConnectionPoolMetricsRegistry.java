@@ -0,0 +1,51 @@
+package com.ecommerce.paymentservice.config;
+
+import com.ecommerce.paymentservice.dto.ConnectionPoolStats;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Receives the live metrics of every pool the outbound connection provider opens, one pool per
+// remote address, and turns them into ConnectionPoolStats for /api/metrics/connections. Reactor
+// Netty only reports to Micrometer on its own, which this service does not ship.
+public class ConnectionPoolMetricsRegistry implements ConnectionProvider.MeterRegistrar {
+
+    private final ConcurrentHashMap<String, Pool> pools = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        pools.put(id, new Pool(poolName, String.valueOf(remoteAddress), metrics));
+    }
+
+    @Override
+    public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+        pools.remove(id);
+    }
+
+    public List<ConnectionPoolStats> snapshots() {
+        List<ConnectionPoolStats> snapshots = new ArrayList<>(pools.size());
+        for (Pool pool : pools.values()) {
+            ConnectionPoolMetrics metrics = pool.metrics();
+            ConnectionPoolStats stats = new ConnectionPoolStats();
+            stats.setPool(pool.name());
+            stats.setRemoteAddress(pool.remoteAddress());
+            stats.setAcquired(metrics.acquiredSize());
+            stats.setIdle(metrics.idleSize());
+            stats.setAllocated(metrics.allocatedSize());
+            stats.setPendingAcquire(metrics.pendingAcquireSize());
+            stats.setMaxConnections(metrics.maxAllocatedSize());
+            stats.setMaxPendingAcquire(metrics.maxPendingAcquireSize());
+            snapshots.add(stats);
+        }
+        snapshots.sort(Comparator.comparing(ConnectionPoolStats::getRemoteAddress));
+        return snapshots;
+    }
+
+    private record Pool(String name, String remoteAddress, ConnectionPoolMetrics metrics) {
+    }
+}
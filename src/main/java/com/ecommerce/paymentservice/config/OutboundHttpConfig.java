@@ -0,0 +1,90 @@
+package com.ecommerce.paymentservice.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+// One connection pool for every outbound HTTP call (notification service, telemetry service).
+// Connections stay open between calls and idle ones are evicted in the background, so a call
+// normally finds a warm connection instead of paying for a new TCP handshake. Pool sizes and
+// timeouts come from services.http.*; h2c multiplexes calls over a single cleartext HTTP/2
+// connection when the other side supports the upgrade.
+@Configuration
+public class OutboundHttpConfig {
+
+    @Value("${services.http.pool.max-connections:200}")
+    private int maxConnections = 200;
+
+    @Value("${services.http.pool.pending-acquire-max-count:1000}")
+    private int pendingAcquireMaxCount = 1000;
+
+    @Value("${services.http.pool.pending-acquire-timeout-ms:2000}")
+    private long pendingAcquireTimeoutMs = 2000;
+
+    @Value("${services.http.pool.max-idle-time-ms:30000}")
+    private long maxIdleTimeMs = 30000;
+
+    @Value("${services.http.pool.max-life-time-ms:300000}")
+    private long maxLifeTimeMs = 300000;
+
+    @Value("${services.http.pool.evict-interval-ms:10000}")
+    private long evictIntervalMs = 10000;
+
+    @Value("${services.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs = 2000;
+
+    // Upper bound for any call, the clients apply their own shorter timeouts on top
+    @Value("${services.http.response-timeout-ms:10000}")
+    private long responseTimeoutMs = 10000;
+
+    @Value("${services.http.h2c:false}")
+    private boolean h2c = false;
+
+    @Bean
+    public ConnectionPoolMetricsRegistry connectionPoolMetricsRegistry() {
+        return new ConnectionPoolMetricsRegistry();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider outboundConnectionProvider(ConnectionPoolMetricsRegistry connectionPoolMetricsRegistry) {
+        return ConnectionProvider.builder("outbound")
+            .maxConnections(maxConnections)
+            .pendingAcquireMaxCount(pendingAcquireMaxCount)
+            .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+            .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+            .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+            .evictInBackground(Duration.ofMillis(evictIntervalMs))
+            .metrics(true, () -> connectionPoolMetricsRegistry)
+            .build();
+    }
+
+    @Bean
+    public HttpClient outboundHttpClient(ConnectionProvider outboundConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(outboundConnectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .responseTimeout(Duration.ofMillis(responseTimeoutMs))
+            .keepAlive(true)
+            .protocol(h2c ? new HttpProtocol[] {HttpProtocol.HTTP11, HttpProtocol.H2C} : new HttpProtocol[] {HttpProtocol.HTTP11});
+        // Loads the event loops and DNS resolver now rather than on the first call
+        httpClient.warmup().block();
+        return httpClient;
+    }
+
+    // NotificationServiceClient and TelemetryClient take this through their @Autowired constructors,
+    // their other constructors build a default WebClient for tests and use outside of Spring
+    @Bean
+    public WebClient outboundWebClient(HttpClient outboundHttpClient) {
+        return WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(outboundHttpClient))
+            .build();
+    }
+}
@@ -0,0 +1,72 @@
+package com.ecommerce.paymentservice.controller;
+
+import com.ecommerce.paymentservice.config.ConnectionPoolMetricsRegistry;
+import com.ecommerce.paymentservice.dto.ConnectionPoolStats;
+import com.ecommerce.paymentservice.dto.LatencySnapshot;
+import com.ecommerce.paymentservice.dto.NotificationStats;
+import com.ecommerce.paymentservice.service.NotificationServiceClient;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = "*")
+@Tag(name = "Metrics", description = "API for the service's locally recorded metrics")
+public class MetricsController {
+    
+    @Autowired
+    private TelemetryClient telemetryClient;
+    
+    @Autowired
+    private NotificationServiceClient notificationServiceClient;
+    
+    @Autowired
+    private ConnectionPoolMetricsRegistry connectionPoolMetricsRegistry;
+    
+    @GetMapping("/latency")
+    @Operation(summary = "Get latency percentiles", description = "Returns count, mean and p50/p90/p99/p99.9 latency per operation over the rolling window")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Latency percentiles returned successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<LatencySnapshot>> getLatency(
+            @Parameter(description = "Only return operations starting with this prefix, e.g. payment-gateway")
+            @RequestParam(required = false) String operation) {
+        List<LatencySnapshot> snapshots = telemetryClient.getLatencySnapshots();
+        if (operation != null && !operation.isBlank()) {
+            snapshots = snapshots.stream()
+                .filter(snapshot -> snapshot.getOperation().startsWith(operation))
+                .toList();
+        }
+        return ResponseEntity.ok(snapshots);
+    }
+    
+    @GetMapping("/notifications")
+    @Operation(summary = "Get notification dispatch statistics", description = "Returns how many notifications were sent and failed, how many batch requests were made and whether the batch endpoint is in use")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Notification statistics returned successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<NotificationStats> getNotificationStats() {
+        return ResponseEntity.ok(notificationServiceClient.getStats());
+    }
+    
+    @GetMapping("/connections")
+    @Operation(summary = "Get outbound connection pool statistics", description = "Returns acquired, idle and pending connections per remote address of the shared outbound HTTP pool")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Connection pool statistics returned successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<ConnectionPoolStats>> getConnectionPoolStats() {
+        return ResponseEntity.ok(connectionPoolMetricsRegistry.snapshots());
+    }
+}
@@ -1,7 +1,15 @@
 package com.ecommerce.paymentservice.controller;
 
+import com.ecommerce.paymentservice.dto.BatchPaymentRequest;
+import com.ecommerce.paymentservice.dto.BatchPaymentResult;
+import com.ecommerce.paymentservice.dto.PaymentCacheStats;
+import com.ecommerce.paymentservice.dto.PaymentPage;
 import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.dto.PaymentStatusResponse;
+import com.ecommerce.paymentservice.dto.PaymentTransition;
 import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.service.IdempotencyConflictException;
+import com.ecommerce.paymentservice.service.PaymentRejectedException;
 import com.ecommerce.paymentservice.service.PaymentService;
 import com.ecommerce.paymentservice.telemetry.TelemetryClient;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,49 +18,120 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import jakarta.validation.Valid;
 
+import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/payments")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"X-Next-Cursor", "Link"})
 @Tag(name = "Payment Management", description = "API for processing payments, handling refunds, and managing payment records")
 public class PaymentController {
     
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    
     @Autowired
     private PaymentService paymentService;
     
     @Autowired
     private TelemetryClient telemetryClient;
     
+    @Value("${payment.async.enabled:false}")
+    private boolean asyncProcessingEnabled;
+    
     private String toUserId(Long userId) {
         return userId != null ? userId.toString() : null;
     }
     
     @PostMapping("/process")
-    @Operation(summary = "Process payment", description = "Processes a payment for an order using the provided payment information")
+    @Operation(summary = "Process payment", description = "Processes a payment for an order using the provided payment information. " +
+            "When asynchronous processing is enabled the payment is accepted as PENDING and processed in the background")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Payment processed successfully"),
+        @ApiResponse(responseCode = "202", description = "Payment accepted for asynchronous processing"),
         @ApiResponse(responseCode = "400", description = "Invalid payment data or payment failed"),
         @ApiResponse(responseCode = "404", description = "Order not found"),
+        @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still in progress"),
+        @ApiResponse(responseCode = "503", description = "Payment processing queue is full"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<Payment> processPayment(@Valid @RequestBody PaymentRequest paymentRequest) {
+    public ResponseEntity<?> processPayment(
+        @Valid @RequestBody PaymentRequest paymentRequest,
+        @Parameter(description = "Client generated key, retries with the same key return the original result instead of charging again")
+        @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         telemetryClient.startTrace("process_payment", "POST", "/api/payments/process", toUserId(paymentRequest.getUserId()));
         
+        if (asyncProcessingEnabled) {
+            return acceptPayment(paymentRequest, idempotencyKey);
+        }
+        
         try {
-            Payment payment = paymentService.processPayment(paymentRequest);
+            Payment payment = paymentService.processPayment(paymentRequest, idempotencyKey);
             telemetryClient.finishTrace("process_payment", 200, null);
             return ResponseEntity.ok(payment);
+        } catch (IdempotencyConflictException e) {
+            telemetryClient.finishTrace("process_payment", 409, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (RuntimeException e) {
             telemetryClient.finishTrace("process_payment", 400, e.getMessage());
             return ResponseEntity.badRequest().build();
         }
     }
     
+    private ResponseEntity<?> acceptPayment(PaymentRequest paymentRequest, String idempotencyKey) {
+        try {
+            PaymentStatusResponse accepted = paymentService.acceptPayment(paymentRequest, idempotencyKey);
+            telemetryClient.finishTrace("process_payment", 202, null);
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/payments/" + accepted.getPaymentId()))
+                .body(accepted);
+        } catch (PaymentRejectedException e) {
+            telemetryClient.finishTrace("process_payment", 503, e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build();
+        } catch (IdempotencyConflictException e) {
+            telemetryClient.finishTrace("process_payment", 409, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (RuntimeException e) {
+            telemetryClient.finishTrace("process_payment", 400, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @PostMapping("/process-batch")
+    @Operation(summary = "Process payment batch", description = "Processes a batch of payments with bounded parallelism and returns one result per payment in request order")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch processed, see the per-payment results for failures"),
+        @ApiResponse(responseCode = "400", description = "Invalid batch data or batch too large"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<BatchPaymentResult>> processPaymentBatch(@Valid @RequestBody BatchPaymentRequest batchRequest) {
+        telemetryClient.startTrace("process_payment_batch", "POST", "/api/payments/process-batch", null);
+        
+        try {
+            List<BatchPaymentResult> results = paymentService.processPayments(batchRequest.getPayments());
+            telemetryClient.finishTrace("process_payment_batch", 200, null);
+            return ResponseEntity.ok(results);
+        } catch (RuntimeException e) {
+            telemetryClient.finishTrace("process_payment_batch", 400, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Get payment by ID", description = "Retrieves a specific payment record using its unique identifier")
     @ApiResponses(value = {
@@ -74,32 +153,100 @@ public class PaymentController {
         }
     }
     
+    @GetMapping("/cache/stats")
+    @Operation(summary = "Get payment cache statistics", description = "Returns size and hit/miss statistics of the payment lookup cache")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Cache statistics returned successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<PaymentCacheStats> getCacheStats() {
+        return ResponseEntity.ok(paymentService.getCacheStats());
+    }
+    
+    @GetMapping("/{id}/status")
+    @Operation(summary = "Get payment status", description = "Returns only the processing status of a payment, for polling asynchronously accepted payments")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Payment status returned successfully"),
+        @ApiResponse(responseCode = "404", description = "Payment not found with the provided ID"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<PaymentStatusResponse> getPaymentStatus(
+        @Parameter(description = "Unique identifier of the payment", required = true, example = "1")
+        @PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(paymentService.getPaymentStatus(id));
+        } catch (RuntimeException e) {
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/{id}/transitions")
+    @Operation(summary = "Get payment transitions", description = "Returns the recorded status transitions of a payment, including intermediate states that are not persisted")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Payment transitions returned successfully"),
+        @ApiResponse(responseCode = "404", description = "Payment not found with the provided ID"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<List<PaymentTransition>> getPaymentTransitions(
+        @Parameter(description = "Unique identifier of the payment", required = true, example = "1")
+        @PathVariable Long id) {
+        try {
+            return ResponseEntity.ok(paymentService.getPaymentTransitions(id));
+        } catch (RuntimeException e) {
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
     @GetMapping("/order/{orderId}")
-    @Operation(summary = "Get payments by order ID", description = "Retrieves all payment records associated with a specific order")
+    @Operation(summary = "Get payments by order ID", description = "Retrieves one page of the payment records associated with a specific order, " +
+            "in ID order. The next page is available from the X-Next-Cursor and Link headers")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Payments retrieved successfully for the order"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
         @ApiResponse(responseCode = "404", description = "No payments found for the specified order"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<List<Payment>> getPaymentsByOrderId(
         @Parameter(description = "Unique identifier of the order", required = true, example = "123")
-        @PathVariable Long orderId) {
-        List<Payment> payments = paymentService.getPaymentsByOrderId(orderId);
-        return ResponseEntity.ok(payments);
+        @PathVariable Long orderId,
+        @Parameter(description = "Cursor returned with the previous page")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Maximum number of payments per page", example = "50")
+        @RequestParam(required = false) Integer size) {
+        try {
+            return pageResponse(paymentService.getPaymentsByOrderId(orderId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @GetMapping("/user/{userId}")
-    @Operation(summary = "Get payments by user ID", description = "Retrieves all payment records associated with a specific user")
+    @Operation(summary = "Get payments by user ID", description = "Retrieves one page of the payment records associated with a specific user, " +
+            "newest first. The next page is available from the X-Next-Cursor and Link headers")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Payments retrieved successfully for the user"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
         @ApiResponse(responseCode = "404", description = "No payments found for the specified user"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
     public ResponseEntity<List<Payment>> getPaymentsByUserId(
         @Parameter(description = "Unique identifier of the user", required = true, example = "456")
-        @PathVariable Long userId) {
-        List<Payment> payments = paymentService.getPaymentsByUserId(userId);
-        return ResponseEntity.ok(payments);
+        @PathVariable Long userId,
+        @Parameter(description = "Cursor returned with the previous page")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Maximum number of payments per page", example = "50")
+        @RequestParam(required = false) Integer size) {
+        try {
+            return pageResponse(paymentService.getPaymentsByUserId(userId, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
     
     @PostMapping("/{id}/refund")
@@ -130,13 +277,61 @@ public class PaymentController {
     }
     
     @GetMapping
-    @Operation(summary = "Retrieve all payments", description = "Returns a list of all payment records in the system (admin access typically required)")
+    @Operation(summary = "Retrieve all payments", description = "Returns one page of payment records in ID order (admin access typically required). " +
+            "The next page is available from the X-Next-Cursor and Link headers")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Payments retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<List<Payment>> getAllPayments() {
-        List<Payment> payments = paymentService.getAllPayments();
-        return ResponseEntity.ok(payments);
+    public ResponseEntity<List<Payment>> getAllPayments(
+        @Parameter(description = "Cursor returned with the previous page")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Maximum number of payments per page", example = "50")
+        @RequestParam(required = false) Integer size) {
+        try {
+            return pageResponse(paymentService.getAllPayments(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(summary = "Export payments", description = "Streams matching payments as newline-delimited JSON in ID order, for reconciliation dumps. " +
+            "Rows are written as they are read, so exports of any size run in constant memory")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Export streamed successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid filter or date range"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<StreamingResponseBody> exportPayments(
+        @Parameter(description = "Only export payments with this status")
+        @RequestParam(required = false) Payment.PaymentStatus status,
+        @Parameter(description = "Inclusive start of the payment date range", example = "2024-01-01T00:00:00")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+        @Parameter(description = "Exclusive end of the payment date range", example = "2024-02-01T00:00:00")
+        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        StreamingResponseBody body = out -> paymentService.exportPayments(status, from, to, out);
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(NDJSON))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"payments.ndjson\"")
+            .body(body);
+    }
+    
+    private ResponseEntity<List<Payment>> pageResponse(PaymentPage page) {
+        if (!page.hasNext()) {
+            return ResponseEntity.ok(page.getPayments());
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("cursor", page.getNextCursor())
+            .toUriString();
+        return ResponseEntity.ok()
+            .header(NEXT_CURSOR_HEADER, page.getNextCursor())
+            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+            .body(page.getPayments());
     }
 }
\ No newline at end of file
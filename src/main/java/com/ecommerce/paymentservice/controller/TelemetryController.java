@@ -0,0 +1,31 @@
+package com.ecommerce.paymentservice.controller;
+
+import com.ecommerce.paymentservice.dto.TelemetryStats;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/telemetry")
+@CrossOrigin(origins = "*")
+@Tag(name = "Telemetry", description = "API for inspecting the service's own tracing pipeline")
+public class TelemetryController {
+    
+    @Autowired
+    private TelemetryClient telemetryClient;
+    
+    @GetMapping("/stats")
+    @Operation(summary = "Get telemetry statistics", description = "Returns the sampling rate and how many traces were sampled, skipped or kept because they failed")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Telemetry statistics returned successfully"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public ResponseEntity<TelemetryStats> getStats() {
+        return ResponseEntity.ok(telemetryClient.getStats());
+    }
+}
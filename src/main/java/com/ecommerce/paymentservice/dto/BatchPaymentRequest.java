@@ -0,0 +1,15 @@
+package com.ecommerce.paymentservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+
+public class BatchPaymentRequest {
+    @NotEmpty(message = "At least one payment is required")
+    @Valid
+    private List<PaymentRequest> payments;
+
+    public List<PaymentRequest> getPayments() { return payments; }
+    public void setPayments(List<PaymentRequest> payments) { this.payments = payments; }
+}
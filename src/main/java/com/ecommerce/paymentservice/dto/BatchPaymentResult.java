@@ -0,0 +1,49 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.ecommerce.paymentservice.model.Payment;
+
+public class BatchPaymentResult {
+    private int index;
+    private Long paymentId;
+    private Payment.PaymentStatus status;
+    private String transactionId;
+    private String failureReason;
+
+    public BatchPaymentResult() {
+    }
+
+    public static BatchPaymentResult success(int index, Payment payment) {
+        BatchPaymentResult result = new BatchPaymentResult();
+        result.index = index;
+        result.paymentId = payment.getId();
+        result.status = payment.getStatus();
+        result.transactionId = payment.getTransactionId();
+        return result;
+    }
+
+    public static BatchPaymentResult failure(int index, Payment payment, String failureReason) {
+        BatchPaymentResult result = new BatchPaymentResult();
+        result.index = index;
+        result.paymentId = payment != null ? payment.getId() : null;
+        result.status = Payment.PaymentStatus.FAILED;
+        result.failureReason = failureReason;
+        return result;
+    }
+
+    public boolean isSuccessful() { return status == Payment.PaymentStatus.COMPLETED; }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public Long getPaymentId() { return paymentId; }
+    public void setPaymentId(Long paymentId) { this.paymentId = paymentId; }
+
+    public Payment.PaymentStatus getStatus() { return status; }
+    public void setStatus(Payment.PaymentStatus status) { this.status = status; }
+
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+
+    public String getFailureReason() { return failureReason; }
+    public void setFailureReason(String failureReason) { this.failureReason = failureReason; }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.paymentservice.dto;
+
+public class ConnectionPoolStats {
+    private String pool;
+    private String remoteAddress;
+    private int acquired;
+    private int idle;
+    private int allocated;
+    private int pendingAcquire;
+    private int maxConnections;
+    private int maxPendingAcquire;
+
+    public ConnectionPoolStats() {
+    }
+
+    public String getPool() { return pool; }
+    public void setPool(String pool) { this.pool = pool; }
+
+    public String getRemoteAddress() { return remoteAddress; }
+    public void setRemoteAddress(String remoteAddress) { this.remoteAddress = remoteAddress; }
+
+    public int getAcquired() { return acquired; }
+    public void setAcquired(int acquired) { this.acquired = acquired; }
+
+    public int getIdle() { return idle; }
+    public void setIdle(int idle) { this.idle = idle; }
+
+    public int getAllocated() { return allocated; }
+    public void setAllocated(int allocated) { this.allocated = allocated; }
+
+    public int getPendingAcquire() { return pendingAcquire; }
+    public void setPendingAcquire(int pendingAcquire) { this.pendingAcquire = pendingAcquire; }
+
+    public int getMaxConnections() { return maxConnections; }
+    public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+
+    public int getMaxPendingAcquire() { return maxPendingAcquire; }
+    public void setMaxPendingAcquire(int maxPendingAcquire) { this.maxPendingAcquire = maxPendingAcquire; }
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.paymentservice.dto;
+
+public class LatencySnapshot {
+    private String operation;
+    private long windowSeconds;
+    private long count;
+    private long totalCount;
+    private long minMs;
+    private long maxMs;
+    private double meanMs;
+    private long p50Ms;
+    private long p90Ms;
+    private long p99Ms;
+    private long p999Ms;
+
+    public LatencySnapshot() {
+    }
+
+    public String getOperation() { return operation; }
+    public void setOperation(String operation) { this.operation = operation; }
+
+    public long getWindowSeconds() { return windowSeconds; }
+    public void setWindowSeconds(long windowSeconds) { this.windowSeconds = windowSeconds; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public long getTotalCount() { return totalCount; }
+    public void setTotalCount(long totalCount) { this.totalCount = totalCount; }
+
+    public long getMinMs() { return minMs; }
+    public void setMinMs(long minMs) { this.minMs = minMs; }
+
+    public long getMaxMs() { return maxMs; }
+    public void setMaxMs(long maxMs) { this.maxMs = maxMs; }
+
+    public double getMeanMs() { return meanMs; }
+    public void setMeanMs(double meanMs) { this.meanMs = meanMs; }
+
+    public long getP50Ms() { return p50Ms; }
+    public void setP50Ms(long p50Ms) { this.p50Ms = p50Ms; }
+
+    public long getP90Ms() { return p90Ms; }
+    public void setP90Ms(long p90Ms) { this.p90Ms = p90Ms; }
+
+    public long getP99Ms() { return p99Ms; }
+    public void setP99Ms(long p99Ms) { this.p99Ms = p99Ms; }
+
+    public long getP999Ms() { return p999Ms; }
+    public void setP999Ms(long p999Ms) { this.p999Ms = p999Ms; }
+}
@@ -0,0 +1,23 @@
+package com.ecommerce.paymentservice.dto;
+
+public class NotificationStats {
+    private long sent;
+    private long failed;
+    private long batches;
+    private boolean batchAvailable;
+
+    public NotificationStats() {
+    }
+
+    public long getSent() { return sent; }
+    public void setSent(long sent) { this.sent = sent; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public long getBatches() { return batches; }
+    public void setBatches(long batches) { this.batches = batches; }
+
+    public boolean isBatchAvailable() { return batchAvailable; }
+    public void setBatchAvailable(boolean batchAvailable) { this.batchAvailable = batchAvailable; }
+}
@@ -0,0 +1,39 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+public class PaymentCacheStats {
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private double hitRate;
+    private long evictionCount;
+
+    public PaymentCacheStats() {
+    }
+
+    public static PaymentCacheStats from(CacheStats stats, long size) {
+        PaymentCacheStats response = new PaymentCacheStats();
+        response.size = size;
+        response.hitCount = stats.hitCount();
+        response.missCount = stats.missCount();
+        response.hitRate = stats.hitRate();
+        response.evictionCount = stats.evictionCount();
+        return response;
+    }
+
+    public long getSize() { return size; }
+    public void setSize(long size) { this.size = size; }
+
+    public long getHitCount() { return hitCount; }
+    public void setHitCount(long hitCount) { this.hitCount = hitCount; }
+
+    public long getMissCount() { return missCount; }
+    public void setMissCount(long missCount) { this.missCount = missCount; }
+
+    public double getHitRate() { return hitRate; }
+    public void setHitRate(double hitRate) { this.hitRate = hitRate; }
+
+    public long getEvictionCount() { return evictionCount; }
+    public void setEvictionCount(long evictionCount) { this.evictionCount = evictionCount; }
+}
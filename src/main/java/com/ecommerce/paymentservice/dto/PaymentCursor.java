@@ -0,0 +1,53 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.ecommerce.paymentservice.model.Payment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Opaque keyset position: the id of the last row on a page, plus its paymentDate for
+// listings ordered by date. Clients only ever see the base64url token.
+public final class PaymentCursor {
+    private static final String SEPARATOR = "|";
+
+    private final Long id;
+    private final LocalDateTime paymentDate;
+
+    private PaymentCursor(Long id, LocalDateTime paymentDate) {
+        this.id = id;
+        this.paymentDate = paymentDate;
+    }
+
+    public static PaymentCursor byId(Payment payment) {
+        return new PaymentCursor(payment.getId(), null);
+    }
+
+    public static PaymentCursor byDateAndId(Payment payment) {
+        return new PaymentCursor(payment.getId(), payment.getPaymentDate());
+    }
+
+    public static PaymentCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0) {
+                return new PaymentCursor(Long.parseLong(value), null);
+            }
+            return new PaymentCursor(Long.parseLong(value.substring(0, separator)),
+                LocalDateTime.parse(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String value = paymentDate == null ? id.toString() : id + SEPARATOR + paymentDate;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Long getId() { return id; }
+
+    public LocalDateTime getPaymentDate() { return paymentDate; }
+}
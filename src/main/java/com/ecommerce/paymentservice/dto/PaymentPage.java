@@ -0,0 +1,31 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.ecommerce.paymentservice.model.Payment;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class PaymentPage {
+    private final List<Payment> payments;
+    private final String nextCursor;
+
+    public PaymentPage(List<Payment> payments, String nextCursor) {
+        this.payments = payments;
+        this.nextCursor = nextCursor;
+    }
+
+    // Pages are fetched with one extra row, which only tells whether there is a next page
+    public static PaymentPage of(List<Payment> fetched, int pageSize, Function<Payment, PaymentCursor> cursorOf) {
+        if (fetched.size() <= pageSize) {
+            return new PaymentPage(fetched, null);
+        }
+        List<Payment> payments = fetched.subList(0, pageSize);
+        return new PaymentPage(payments, cursorOf.apply(payments.get(pageSize - 1)).encode());
+    }
+
+    public List<Payment> getPayments() { return payments; }
+
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() { return nextCursor != null; }
+}
@@ -0,0 +1,34 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.ecommerce.paymentservice.model.Payment;
+
+public class PaymentStatusResponse {
+    private Long paymentId;
+    private Long orderId;
+    private Payment.PaymentStatus status;
+    private String transactionId;
+
+    public PaymentStatusResponse() {
+    }
+
+    public static PaymentStatusResponse from(Payment payment) {
+        PaymentStatusResponse response = new PaymentStatusResponse();
+        response.paymentId = payment.getId();
+        response.orderId = payment.getOrderId();
+        response.status = payment.getStatus();
+        response.transactionId = payment.getTransactionId();
+        return response;
+    }
+
+    public Long getPaymentId() { return paymentId; }
+    public void setPaymentId(Long paymentId) { this.paymentId = paymentId; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public Payment.PaymentStatus getStatus() { return status; }
+    public void setStatus(Payment.PaymentStatus status) { this.status = status; }
+
+    public String getTransactionId() { return transactionId; }
+    public void setTransactionId(String transactionId) { this.transactionId = transactionId; }
+}
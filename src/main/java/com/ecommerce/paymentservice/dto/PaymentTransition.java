@@ -0,0 +1,27 @@
+package com.ecommerce.paymentservice.dto;
+
+import com.ecommerce.paymentservice.model.Payment;
+
+import java.time.LocalDateTime;
+
+public class PaymentTransition {
+    private final Long paymentId;
+    private final Payment.PaymentStatus fromStatus;
+    private final Payment.PaymentStatus toStatus;
+    private final LocalDateTime timestamp;
+
+    public PaymentTransition(Long paymentId, Payment.PaymentStatus fromStatus, Payment.PaymentStatus toStatus) {
+        this.paymentId = paymentId;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    public Long getPaymentId() { return paymentId; }
+
+    public Payment.PaymentStatus getFromStatus() { return fromStatus; }
+
+    public Payment.PaymentStatus getToStatus() { return toStatus; }
+
+    public LocalDateTime getTimestamp() { return timestamp; }
+}
@@ -0,0 +1,67 @@
+package com.ecommerce.paymentservice.dto;
+
+public class TelemetryStats {
+    private double samplingRate;
+    private long sampledTraces;
+    private long unsampledTraces;
+    private long keptErrorTraces;
+    private long droppedEvents;
+    private String overflowPolicy;
+    private long queueDepth;
+    private int inFlightRequests;
+    private long sentEvents;
+    private long overflowDroppedEvents;
+    private long failedEvents;
+    private long spooledEvents;
+    private long replayedEvents;
+    private long spoolPendingBatches;
+    private long spoolPendingBytes;
+
+    public TelemetryStats() {
+    }
+
+    public double getSamplingRate() { return samplingRate; }
+    public void setSamplingRate(double samplingRate) { this.samplingRate = samplingRate; }
+
+    public long getSampledTraces() { return sampledTraces; }
+    public void setSampledTraces(long sampledTraces) { this.sampledTraces = sampledTraces; }
+
+    public long getUnsampledTraces() { return unsampledTraces; }
+    public void setUnsampledTraces(long unsampledTraces) { this.unsampledTraces = unsampledTraces; }
+
+    public long getKeptErrorTraces() { return keptErrorTraces; }
+    public void setKeptErrorTraces(long keptErrorTraces) { this.keptErrorTraces = keptErrorTraces; }
+
+    public long getDroppedEvents() { return droppedEvents; }
+    public void setDroppedEvents(long droppedEvents) { this.droppedEvents = droppedEvents; }
+
+    public String getOverflowPolicy() { return overflowPolicy; }
+    public void setOverflowPolicy(String overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+
+    public long getQueueDepth() { return queueDepth; }
+    public void setQueueDepth(long queueDepth) { this.queueDepth = queueDepth; }
+
+    public int getInFlightRequests() { return inFlightRequests; }
+    public void setInFlightRequests(int inFlightRequests) { this.inFlightRequests = inFlightRequests; }
+
+    public long getSentEvents() { return sentEvents; }
+    public void setSentEvents(long sentEvents) { this.sentEvents = sentEvents; }
+
+    public long getOverflowDroppedEvents() { return overflowDroppedEvents; }
+    public void setOverflowDroppedEvents(long overflowDroppedEvents) { this.overflowDroppedEvents = overflowDroppedEvents; }
+
+    public long getFailedEvents() { return failedEvents; }
+    public void setFailedEvents(long failedEvents) { this.failedEvents = failedEvents; }
+
+    public long getSpooledEvents() { return spooledEvents; }
+    public void setSpooledEvents(long spooledEvents) { this.spooledEvents = spooledEvents; }
+
+    public long getReplayedEvents() { return replayedEvents; }
+    public void setReplayedEvents(long replayedEvents) { this.replayedEvents = replayedEvents; }
+
+    public long getSpoolPendingBatches() { return spoolPendingBatches; }
+    public void setSpoolPendingBatches(long spoolPendingBatches) { this.spoolPendingBatches = spoolPendingBatches; }
+
+    public long getSpoolPendingBytes() { return spoolPendingBytes; }
+    public void setSpoolPendingBytes(long spoolPendingBytes) { this.spoolPendingBytes = spoolPendingBytes; }
+}
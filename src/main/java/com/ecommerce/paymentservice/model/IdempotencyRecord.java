@@ -0,0 +1,80 @@
+package com.ecommerce.paymentservice.model;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+// Durable copy of an Idempotency-Key claim so duplicate requests are still recognised after a
+// restart or on another instance. Always inserted, never merged, so a second claim on the same
+// key fails on the primary key instead of silently overwriting the first one. claimedAt marks
+// when the current owner took the key, an IN_PROGRESS claim older than the lease can be taken over.
+@Entity
+@Table(name = "idempotency_records", indexes = {
+    @Index(name = "idx_idempotency_created_at", columnList = "createdAt")
+})
+public class IdempotencyRecord implements Persistable<String> {
+    @Id
+    @Column(length = 255)
+    private String idempotencyKey;
+
+    @Column(length = 64, nullable = false)
+    private String requestHash;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    private Long paymentId;
+    private String failureMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime claimedAt;
+
+    @Transient
+    private boolean isNew = true;
+
+    public IdempotencyRecord() {
+    }
+
+    public IdempotencyRecord(String idempotencyKey, String requestHash) {
+        this.idempotencyKey = idempotencyKey;
+        this.requestHash = requestHash;
+        this.status = Status.IN_PROGRESS;
+        this.createdAt = LocalDateTime.now();
+        this.claimedAt = createdAt;
+    }
+
+    @Override
+    public String getId() { return idempotencyKey; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getRequestHash() { return requestHash; }
+    public void setRequestHash(String requestHash) { this.requestHash = requestHash; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public Long getPaymentId() { return paymentId; }
+    public void setPaymentId(Long paymentId) { this.paymentId = paymentId; }
+
+    public String getFailureMessage() { return failureMessage; }
+    public void setFailureMessage(String failureMessage) { this.failureMessage = failureMessage; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,113 @@
+package com.ecommerce.paymentservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// A notification that still has to reach the notification service. Rows are inserted in the
+// same transaction as the payment status change they announce, so a committed status change
+// always has its notification on record, and are delivered afterwards by the outbox dispatcher.
+@Entity
+@Table(name = "notification_outbox", indexes = {
+    @Index(name = "idx_outbox_status_next_attempt", columnList = "status, nextAttemptAt")
+})
+public class OutboxNotification {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_seq")
+    @SequenceGenerator(name = "outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+
+    private Long paymentId;
+    private Long userId;
+    private Long orderId;
+
+    // Trace of the request that changed the payment, the delivery span is recorded under it
+    private String traceId;
+    private String spanId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lastError;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    public OutboxNotification() {
+    }
+
+    public OutboxNotification(Type type, Payment payment, String traceId, String spanId) {
+        this.type = type;
+        this.paymentId = payment.getId();
+        this.userId = payment.getUserId();
+        this.orderId = payment.getOrderId();
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.status = Status.PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Long getPaymentId() { return paymentId; }
+    public void setPaymentId(Long paymentId) { this.paymentId = paymentId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getOrderId() { return orderId; }
+    public void setOrderId(Long orderId) { this.orderId = orderId; }
+
+    public String getTraceId() { return traceId; }
+    public void setTraceId(String traceId) { this.traceId = traceId; }
+
+    public String getSpanId() { return spanId; }
+    public void setSpanId(String spanId) { this.spanId = spanId; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+    public enum Type {
+        PAYMENT_CONFIRMATION, PAYMENT_FAILURE, REFUND_CONFIRMATION;
+
+        // The notification a payment gets when it reaches the given status, null when there is none
+        public static Type forStatus(Payment.PaymentStatus status) {
+            return switch (status) {
+                case COMPLETED -> PAYMENT_CONFIRMATION;
+                case FAILED -> PAYMENT_FAILURE;
+                case REFUNDED -> REFUND_CONFIRMATION;
+                default -> null;
+            };
+        }
+    }
+
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+}
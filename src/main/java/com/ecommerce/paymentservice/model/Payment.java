@@ -2,15 +2,22 @@ package com.ecommerce.paymentservice.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.GenericGenerator;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = {
+    @Index(name = "idx_payments_order_id", columnList = "orderId"),
+    @Index(name = "idx_payments_user_id", columnList = "userId"),
+    @Index(name = "idx_payments_status_date", columnList = "status, paymentDate"),
+    @Index(name = "idx_payments_user_date", columnList = "userId, paymentDate")
+})
 public class Payment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "payment_id")
+    @GenericGenerator(name = "payment_id", type = PaymentIdGenerator.class)
     private Long id;
     
     @NotNull
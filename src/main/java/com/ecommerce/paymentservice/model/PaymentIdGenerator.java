@@ -0,0 +1,32 @@
+package com.ecommerce.paymentservice.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+// Sequence with a pooled-lo optimizer: one sequence call hands out a whole block of IDs,
+// so inserts no longer need the generated key back and can be JDBC-batched.
+// Block size comes from spring.jpa.properties.payment.id.allocation-size.
+public class PaymentIdGenerator extends SequenceStyleGenerator {
+
+    public static final String SEQUENCE_NAME = "payment_seq";
+    public static final String ALLOCATION_SIZE_SETTING = "payment.id.allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class)
+            .getSettings()
+            .getOrDefault(ALLOCATION_SIZE_SETTING, DEFAULT_ALLOCATION_SIZE);
+
+        parameters.put(SEQUENCE_PARAM, SEQUENCE_NAME);
+        parameters.put(INCREMENT_PARAM, allocationSize.toString());
+        parameters.put(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+}
@@ -0,0 +1,38 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update IdempotencyRecord r set r.status = :status, r.paymentId = :paymentId, r.failureMessage = :failureMessage " +
+           "where r.idempotencyKey = :key")
+    int finish(@Param("key") String key,
+               @Param("status") IdempotencyRecord.Status status,
+               @Param("paymentId") Long paymentId,
+               @Param("failureMessage") String failureMessage);
+
+    // Moves an IN_PROGRESS claim taken before staleBefore to a new owner, returns 0 when the claim is still live or finished
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update IdempotencyRecord r set r.claimedAt = :now where r.idempotencyKey = :key " +
+           "and r.status = com.ecommerce.paymentservice.model.IdempotencyRecord.Status.IN_PROGRESS and r.claimedAt < :staleBefore")
+    int takeOver(@Param("key") String key,
+                 @Param("staleBefore") LocalDateTime staleBefore,
+                 @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
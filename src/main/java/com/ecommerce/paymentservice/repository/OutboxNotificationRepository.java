@@ -0,0 +1,58 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxNotificationRepository extends JpaRepository<OutboxNotification, Long> {
+
+    @Query("select n.id from OutboxNotification n " +
+           "where n.status = com.ecommerce.paymentservice.model.OutboxNotification.Status.PENDING " +
+           "and n.nextAttemptAt <= :now order by n.nextAttemptAt, n.id")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // Takes a due row for one attempt by pushing it out of reach until the lease ends. Only one
+    // dispatcher gets 1 back; if it dies mid-delivery the row becomes due again after the lease.
+    @Transactional
+    @Modifying
+    @Query("update OutboxNotification n set n.attempts = n.attempts + 1, n.nextAttemptAt = :leaseUntil " +
+           "where n.id = :id and n.status = com.ecommerce.paymentservice.model.OutboxNotification.Status.PENDING " +
+           "and n.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxNotification n set n.status = com.ecommerce.paymentservice.model.OutboxNotification.Status.SENT, " +
+           "n.sentAt = :sentAt, n.lastError = null where n.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxNotification n set n.nextAttemptAt = :nextAttemptAt, n.lastError = :lastError where n.id = :id")
+    int scheduleRetry(@Param("id") Long id,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("update OutboxNotification n set n.status = com.ecommerce.paymentservice.model.OutboxNotification.Status.FAILED, " +
+           "n.lastError = :lastError where n.id = :id")
+    int markFailed(@Param("id") Long id, @Param("lastError") String lastError);
+
+    @Transactional
+    @Modifying
+    @Query("delete from OutboxNotification n " +
+           "where n.status = com.ecommerce.paymentservice.model.OutboxNotification.Status.SENT and n.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    long countByStatus(OutboxNotification.Status status);
+}
@@ -1,14 +1,64 @@
 package com.ecommerce.paymentservice.repository;
 
 import com.ecommerce.paymentservice.model.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface PaymentRepository extends JpaRepository<Payment, Long> {
+public interface PaymentRepository extends JpaRepository<Payment, Long>, PaymentRepositoryCustom {
     List<Payment> findByOrderId(Long orderId);
     List<Payment> findByUserId(Long userId);
     List<Payment> findByStatus(Payment.PaymentStatus status);
+    
+    // Keyset pages, always requested with page 0 so no OFFSET is ever generated
+    List<Payment> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    List<Payment> findByOrderIdAndIdGreaterThanOrderByIdAsc(Long orderId, Long id, Pageable pageable);
+    List<Payment> findByUserIdOrderByPaymentDateDescIdDesc(Long userId, Pageable pageable);
+    
+    // Unfinished payments older than the cutoff, walking the (status, paymentDate) index
+    List<Payment> findByStatusInAndPaymentDateBefore(Collection<Payment.PaymentStatus> statuses,
+                                                     LocalDateTime cutoff, Pageable pageable);
+    
+    @Query("select p from Payment p where p.userId = :userId and " +
+           "(p.paymentDate < :paymentDate or (p.paymentDate = :paymentDate and p.id < :id)) " +
+           "order by p.paymentDate desc, p.id desc")
+    List<Payment> findByUserIdBefore(@Param("userId") Long userId,
+                                     @Param("paymentDate") LocalDateTime paymentDate,
+                                     @Param("id") Long id,
+                                     Pageable pageable);
+    
+    // Forward-only cursor for exports, rows are read-only and fetched from the driver in chunks
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Payment p where (:status is null or p.status = :status) " +
+           "and (:from is null or p.paymentDate >= :from) and (:to is null or p.paymentDate < :to) order by p.id")
+    Stream<Payment> streamForExport(@Param("status") Payment.PaymentStatus status,
+                                    @Param("from") LocalDateTime from,
+                                    @Param("to") LocalDateTime to);
+    
+    // Single conditional UPDATE, returns 0 when the payment is no longer in one of the expected states
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Payment p set p.status = :toStatus, p.transactionId = :transactionId, " +
+           "p.paymentGatewayResponse = :gatewayResponse where p.id = :id and p.status in :expectedStatuses")
+    int transitionStatus(@Param("id") Long id,
+                         @Param("expectedStatuses") Collection<Payment.PaymentStatus> expectedStatuses,
+                         @Param("toStatus") Payment.PaymentStatus toStatus,
+                         @Param("transactionId") String transactionId,
+                         @Param("gatewayResponse") String gatewayResponse);
 }
\ No newline at end of file
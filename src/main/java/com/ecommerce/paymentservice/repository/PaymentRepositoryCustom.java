@@ -0,0 +1,14 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.Payment;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface PaymentRepositoryCustom {
+
+    // The same conditional UPDATE as transitionStatus for every payment, to the status, transaction id
+    // and gateway response set on it, sent as one JDBC batch. Returns the rows changed per payment,
+    // 0 where the payment was no longer in one of the expected states.
+    int[] transitionStatuses(List<Payment> payments, Collection<Payment.PaymentStatus> expectedStatuses);
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.Payment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+// Hibernate never JDBC-batches bulk JPQL updates, every transitionStatus call is its own round trip.
+// This goes through JdbcTemplate instead, on the connection of the surrounding JPA transaction.
+public class PaymentRepositoryImpl implements PaymentRepositoryCustom {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public int[] transitionStatuses(List<Payment> payments, Collection<Payment.PaymentStatus> expectedStatuses) {
+        if (payments.isEmpty()) {
+            return new int[0];
+        }
+        List<Payment.PaymentStatus> expected = List.copyOf(expectedStatuses);
+        String sql = "update payments set status = ?, transaction_id = ?, payment_gateway_response = ? "
+            + "where id = ? and status in (" + String.join(", ", Collections.nCopies(expected.size(), "?")) + ")";
+
+        return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Payment payment = payments.get(i);
+                statement.setString(1, payment.getStatus().name());
+                statement.setString(2, payment.getTransactionId());
+                statement.setString(3, payment.getPaymentGatewayResponse());
+                statement.setLong(4, payment.getId());
+                for (int k = 0; k < expected.size(); k++) {
+                    statement.setString(5 + k, expected.get(k).name());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        });
+    }
+}
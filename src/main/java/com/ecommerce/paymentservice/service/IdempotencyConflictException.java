@@ -0,0 +1,9 @@
+package com.ecommerce.paymentservice.service;
+
+// Thrown when the first request with the same Idempotency-Key is still running and holds the key.
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException() {
+        super("Request with this idempotency key is already in progress");
+    }
+}
@@ -0,0 +1,230 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.model.IdempotencyRecord;
+import com.ecommerce.paymentservice.repository.IdempotencyRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Collapses requests carrying the same Idempotency-Key onto a single execution.
+// Duplicates that arrive while the first one runs wait for its outcome, later ones get the
+// stored outcome back. Outcomes live in a bounded in-memory table backed by idempotency_records,
+// so duplicates are still caught after a restart or when they land on another instance.
+// An IN_PROGRESS claim is only honoured for claim-timeout-seconds; after that its owner is assumed
+// dead and the next request with the same key takes it over instead of getting 409 until the purge.
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Value("${payment.idempotency.max-entries:100000}")
+    private long maxEntries = 100000;
+
+    @Value("${payment.idempotency.retention-hours:24}")
+    private long retentionHours = 24;
+
+    @Value("${payment.idempotency.wait-timeout-seconds:30}")
+    private long waitTimeoutSeconds = 30;
+
+    @Value("${payment.idempotency.claim-timeout-seconds:60}")
+    private long claimTimeoutSeconds = 60;
+
+    // ConcurrentHashMap locks per bin, so unrelated keys never contend with each other
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    private Cache<String, Outcome> completed;
+
+    @PostConstruct
+    public void start() {
+        completed = Caffeine.newBuilder()
+            .maximumSize(maxEntries)
+            .expireAfterWrite(Duration.ofHours(retentionHours))
+            .build();
+    }
+
+    // Runs the action at most once per key and returns the id of the payment it produced
+    public Long execute(String key, PaymentRequest request, Supplier<Long> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = fingerprint(request);
+
+        Outcome done = completed.getIfPresent(key);
+        if (done != null) {
+            return done.replay(requestHash);
+        }
+
+        InFlight mine = new InFlight(requestHash);
+        InFlight running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return awaitOutcome(running, requestHash);
+        }
+
+        try {
+            Outcome outcome = claimAndRun(key, requestHash, action);
+            mine.future.complete(outcome);
+            return outcome.replay(requestHash);
+        } catch (RuntimeException e) {
+            mine.future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private Outcome claimAndRun(String key, String requestHash, Supplier<Long> action) {
+        // Another request may have finished between the cache check and our claim
+        Outcome done = completed.getIfPresent(key);
+        if (done != null) {
+            return done;
+        }
+
+        Optional<IdempotencyRecord> stored = idempotencyRecordRepository.findById(key);
+        if (stored.isPresent()) {
+            Outcome outcome = Outcome.from(stored.get());
+            if (outcome != null) {
+                completed.put(key, outcome);
+                return outcome;
+            }
+            takeOverStaleClaim(key, requestHash, stored.get());
+        } else {
+            try {
+                idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord(key, requestHash));
+            } catch (DataIntegrityViolationException e) {
+                throw new IdempotencyConflictException();
+            }
+        }
+
+        Outcome outcome;
+        try {
+            Long paymentId = action.get();
+            outcome = new Outcome(requestHash, paymentId, null);
+            idempotencyRecordRepository.finish(key, IdempotencyRecord.Status.COMPLETED, paymentId, null);
+        } catch (PaymentFailedException e) {
+            // The payment was stored and may have been charged, a retry gets this answer back
+            outcome = new Outcome(requestHash, e.getPaymentId(), e.getMessage());
+            idempotencyRecordRepository.finish(key, IdempotencyRecord.Status.FAILED, e.getPaymentId(), e.getMessage());
+        } catch (RuntimeException e) {
+            // Nothing was charged, release the key so the client can retry
+            idempotencyRecordRepository.deleteById(key);
+            throw e;
+        }
+        completed.put(key, outcome);
+        return outcome;
+    }
+
+    private void takeOverStaleClaim(String key, String requestHash, IdempotencyRecord claim) {
+        if (!claim.getRequestHash().equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyRecordRepository.takeOver(key, now.minusSeconds(claimTimeoutSeconds), now) == 0) {
+            throw new IdempotencyConflictException();
+        }
+    }
+
+    private Long awaitOutcome(InFlight running, String requestHash) {
+        running.checkRequest(requestHash);
+        try {
+            return running.future.get(waitTimeoutSeconds, TimeUnit.SECONDS).replay(requestHash);
+        } catch (TimeoutException e) {
+            throw new IdempotencyConflictException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for idempotent request");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.purge-interval-ms:3600000}",
+               initialDelayString = "${payment.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    static String fingerprint(PaymentRequest request) {
+        String canonical = request.getOrderId() + "|" + request.getUserId() + "|"
+            + (request.getAmount() != null ? request.getAmount().stripTrailingZeros().toPlainString() : null) + "|"
+            + request.getPaymentMethod() + "|" + request.getCardNumber() + "|" + request.getCardHolderName() + "|"
+            + request.getExpiryDate();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class InFlight {
+        private final String requestHash;
+        private final CompletableFuture<Outcome> future = new CompletableFuture<>();
+
+        private InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        private void checkRequest(String otherHash) {
+            if (!requestHash.equals(otherHash)) {
+                throw new IllegalArgumentException("Idempotency key was already used for a different request");
+            }
+        }
+    }
+
+    private static final class Outcome {
+        private final String requestHash;
+        private final Long paymentId;
+        private final String failureMessage;
+
+        private Outcome(String requestHash, Long paymentId, String failureMessage) {
+            this.requestHash = requestHash;
+            this.paymentId = paymentId;
+            this.failureMessage = failureMessage;
+        }
+
+        private static Outcome from(IdempotencyRecord record) {
+            return switch (record.getStatus()) {
+                case COMPLETED -> new Outcome(record.getRequestHash(), record.getPaymentId(), null);
+                case FAILED -> new Outcome(record.getRequestHash(), record.getPaymentId(), record.getFailureMessage());
+                case IN_PROGRESS -> null;
+            };
+        }
+
+        private Long replay(String otherHash) {
+            if (!requestHash.equals(otherHash)) {
+                throw new IllegalArgumentException("Idempotency key was already used for a different request");
+            }
+            if (failureMessage != null) {
+                throw new PaymentFailedException(paymentId, failureMessage);
+            }
+            return paymentId;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Drains notification_outbox. Each poll takes up to batch-size due rows, claims them one by one
+// so several instances can share the table, sends the claimed ones concurrently and records the
+// outcome per row. Failed deliveries are retried with exponential backoff until max-attempts,
+// after that the row stays FAILED for someone to look at. Delivery is at least once: a crash
+// between the send and markSent sends the notification again once the claim lease ends.
+// This is also where notifications are coalesced: with batching enabled on the client, the rows
+// that became due since the last poll go out as batch requests of up to batch.max-size, so the poll
+// interval is the batching window and a backlog is sent in full batches.
+@Service
+public class NotificationOutboxDispatcher {
+
+    @Autowired
+    private OutboxNotificationRepository outboxNotificationRepository;
+
+    @Autowired
+    private NotificationServiceClient notificationServiceClient;
+
+    @Autowired
+    private TelemetryClient telemetryClient;
+
+    @Value("${payment.outbox.batch-size:100}")
+    private int batchSize = 100;
+
+    @Value("${payment.outbox.max-concurrency:8}")
+    private int maxConcurrency = 8;
+
+    @Value("${payment.outbox.lease-ms:30000}")
+    private long leaseMs = 30000;
+
+    @Value("${payment.outbox.max-attempts:10}")
+    private int maxAttempts = 10;
+
+    @Value("${payment.outbox.retry-base-delay-ms:1000}")
+    private long retryBaseDelayMs = 1000;
+
+    @Value("${payment.outbox.retry-max-delay-ms:300000}")
+    private long retryMaxDelayMs = 300000;
+
+    @Value("${payment.outbox.retention-hours:24}")
+    private long retentionHours = 24;
+
+    @Scheduled(fixedDelayString = "${payment.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        // Keep going while polls come back full, a backlog is drained without waiting for the next tick
+        int found;
+        do {
+            found = dispatchBatch();
+        } while (found == batchSize);
+    }
+
+    // Returns the number of due rows found, which can be more than the number this instance claimed
+    int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> due = outboxNotificationRepository.findDueIds(now, PageRequest.of(0, batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        LocalDateTime leaseUntil = now.plus(Duration.ofMillis(leaseMs));
+        List<Long> claimed = new ArrayList<>(due.size());
+        for (Long id : due) {
+            if (outboxNotificationRepository.claim(id, now, leaseUntil) == 1) {
+                claimed.add(id);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        // Outcomes are collected and written here, JDBC never runs on the HTTP client's threads
+        List<OutboxNotification> notifications = outboxNotificationRepository.findAllById(claimed);
+        Flux<Outcome> deliveries = notifications.size() > 1 && notificationServiceClient.isBatchAvailable()
+            ? Flux.fromIterable(notifications)
+                .buffer(notificationServiceClient.getBatchMaxSize())
+                .flatMap(this::sendBatch, maxConcurrency)
+            : sendEach(notifications);
+        List<Outcome> outcomes = deliveries.collectList().block();
+
+        for (Outcome outcome : outcomes) {
+            record(outcome);
+        }
+        return due.size();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.outbox.purge-interval-ms:3600000}",
+               initialDelayString = "${payment.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        outboxNotificationRepository.deleteSentBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    // A failed batch fails all of its rows, unless the batch endpoint turned out to be missing
+    private Flux<Outcome> sendBatch(List<OutboxNotification> batch) {
+        return notificationServiceClient.sendBatch(batch)
+            .thenMany(Flux.fromIterable(batch).map(notification -> new Outcome(notification, null)))
+            .onErrorResume(error -> notificationServiceClient.isBatchAvailable()
+                ? Flux.fromIterable(batch).map(notification -> new Outcome(notification, error))
+                : sendEach(batch));
+    }
+
+    private Flux<Outcome> sendEach(List<OutboxNotification> notifications) {
+        return Flux.fromIterable(notifications)
+            .flatMap(notification -> notificationServiceClient.send(notification)
+                .then(Mono.just(new Outcome(notification, null)))
+                .onErrorResume(error -> Mono.just(new Outcome(notification, error))), maxConcurrency);
+    }
+
+    private void record(Outcome outcome) {
+        OutboxNotification notification = outcome.notification();
+        if (outcome.error() == null) {
+            outboxNotificationRepository.markSent(notification.getId(), LocalDateTime.now());
+            return;
+        }
+
+        String error = outcome.error().getMessage() != null ? outcome.error().getMessage() : outcome.error().toString();
+        if (error.length() > 255) {
+            error = error.substring(0, 255);
+        }
+        // attempts was already counted by the claim
+        if (notification.getAttempts() >= maxAttempts) {
+            telemetryClient.logEvent("Giving up on {} notification for payment {} after {} attempts: {}", "ERROR",
+                notification.getType(), notification.getPaymentId(), notification.getAttempts(), error);
+            outboxNotificationRepository.markFailed(notification.getId(), error);
+        } else {
+            outboxNotificationRepository.scheduleRetry(notification.getId(),
+                LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs(notification.getAttempts()))), error);
+        }
+    }
+
+    // retry-base-delay-ms doubled for every attempt made so far, capped at retry-max-delay-ms
+    long retryDelayMs(int attempts) {
+        int doublings = Math.min(Math.max(attempts - 1, 0), 30);
+        return Math.min(retryBaseDelayMs << doublings, retryMaxDelayMs);
+    }
+
+    private record Outcome(OutboxNotification notification, Throwable error) {
+    }
+}
@@ -1,112 +1,202 @@
 package com.ecommerce.paymentservice.service;
 
+import com.ecommerce.paymentservice.dto.NotificationStats;
+import com.ecommerce.paymentservice.model.OutboxNotification;
 import com.ecommerce.paymentservice.telemetry.TelemetryClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Delivers outbox notifications for NotificationOutboxDispatcher, which owns claiming, concurrency
+// and retries: send posts one row to the endpoint for its type, sendBatch posts several rows to the
+// batch endpoint. Both complete with an error when the delivery failed so the row can be retried,
+// sent and failed deliveries are counted and served with the metrics.
+// If the notification service answers the batch endpoint with 404, 405 or 501 isBatchAvailable
+// turns false and the dispatcher goes back to one POST per row, the batch endpoint is tried again
+// after batch.retry-after-ms.
 @Service
 public class NotificationServiceClient {
-    
+
+    static final String BATCH_PATH = "/api/notifications/batch";
+
     private final WebClient webClient;
-    
+
     @Value("${services.notification-service.url:http://localhost:8085}")
     private String notificationServiceUrl;
-    
+
+    @Value("${services.notification-service.timeout-ms:5000}")
+    private long timeoutMs = 5000;
+
+    @Value("${services.notification-service.batch.enabled:false}")
+    private boolean batchEnabled = false;
+
+    @Value("${services.notification-service.batch.max-size:100}")
+    private int batchMaxSize = 100;
+
+    @Value("${services.notification-service.batch.retry-after-ms:60000}")
+    private long batchRetryAfterMs = 60000;
+
     @Autowired(required = false)
     private TelemetryClient telemetryClient;
-    
+
+    // Until when the batch endpoint is considered missing, 0 while it works
+    private volatile long batchUnavailableUntil;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
     public NotificationServiceClient() {
         this.webClient = WebClient.builder().build();
     }
-    
+
+    // See OutboundHttpConfig.outboundWebClient
+    @Autowired
+    public NotificationServiceClient(WebClient outboundWebClient) {
+        this.webClient = outboundWebClient;
+    }
+
     // Constructor for testing with custom URL
     public NotificationServiceClient(String baseUrl) {
         this.webClient = WebClient.builder().build();
         this.notificationServiceUrl = baseUrl;
     }
-    
-    public void sendPaymentConfirmation(Long paymentId, Long userId, Long orderId) {
-        long startTime = System.currentTimeMillis();
-        String url = notificationServiceUrl + "/api/notifications/payment-confirmation";
-        int statusCode = 200;
-        
-        try {
-            webClient.post()
-                .uri(url)
-                .bodyValue(Map.of("paymentId", paymentId, "userId", userId, "orderId", orderId))
-                .retrieve()
-                .bodyToMono(Void.class)
-                .block();
-            
-            long duration = System.currentTimeMillis() - startTime;
-            if (telemetryClient != null) {
-                telemetryClient.recordServiceCall("notification-service", "send_payment_confirmation", "POST", url, duration, statusCode);
-            }
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            statusCode = 500;
-            if (telemetryClient != null) {
-                telemetryClient.recordServiceCall("notification-service", "send_payment_confirmation", "POST", url, duration, statusCode);
-            }
-            System.err.println("Failed to send payment confirmation notification: " + e.getMessage());
+
+    // Delivers one outbox row right away and completes with an error when the delivery failed
+    public Mono<Void> send(OutboxNotification notification) {
+        return post(notification(notification))
+            .doOnSuccess(result -> sent.incrementAndGet())
+            .doOnError(error -> failed.incrementAndGet());
+    }
+
+    // Delivers outbox rows in one request, all of them or none. When this fails because the batch
+    // endpoint is missing, isBatchAvailable turns false and the rows should be sent one by one.
+    public Mono<Void> sendBatch(List<OutboxNotification> notifications) {
+        List<Notification> batch = new ArrayList<>(notifications.size());
+        for (OutboxNotification notification : notifications) {
+            batch.add(notification(notification));
         }
+        return postBatch(batch)
+            .doOnSuccess(result -> sent.addAndGet(batch.size()))
+            .doOnError(error -> {
+                if (isBatchAvailable()) {
+                    failed.addAndGet(batch.size());
+                }
+            });
+    }
+
+    public boolean isBatchAvailable() {
+        return batchEnabled && System.currentTimeMillis() >= batchUnavailableUntil;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
     }
-    
-    public void sendPaymentFailure(Long paymentId, Long userId, Long orderId) {
-        long startTime = System.currentTimeMillis();
-        String url = notificationServiceUrl + "/api/notifications/payment-failure";
-        int statusCode = 200;
-        
-        try {
-            webClient.post()
-                .uri(url)
-                .bodyValue(Map.of("paymentId", paymentId, "userId", userId, "orderId", orderId))
+
+    public NotificationStats getStats() {
+        NotificationStats stats = new NotificationStats();
+        stats.setSent(sent.get());
+        stats.setFailed(failed.get());
+        stats.setBatches(batches.get());
+        stats.setBatchAvailable(isBatchAvailable());
+        return stats;
+    }
+
+    private Notification notification(OutboxNotification notification) {
+        // The row keeps the trace of the request that wrote it, the span goes into that trace
+        TelemetryClient.TraceContext trace = notification.getTraceId() != null
+            ? TelemetryClient.TraceContext.sampled(notification.getTraceId(), notification.getSpanId(), System.currentTimeMillis())
+            : null;
+        OutboxNotification.Type type = notification.getType();
+        Long paymentId = notification.getPaymentId();
+        Long userId = notification.getUserId();
+        Long orderId = notification.getOrderId();
+        return switch (type) {
+            case PAYMENT_CONFIRMATION -> new Notification(type, "send_payment_confirmation",
+                notificationServiceUrl + "/api/notifications/payment-confirmation", paymentId, userId, orderId, trace);
+            case PAYMENT_FAILURE -> new Notification(type, "send_payment_failure",
+                notificationServiceUrl + "/api/notifications/payment-failure", paymentId, userId, orderId, trace);
+            case REFUND_CONFIRMATION -> new Notification(type, "send_refund_confirmation",
+                notificationServiceUrl + "/api/notifications/refund-confirmation", paymentId, userId, orderId, trace);
+        };
+    }
+
+    private Mono<Void> post(Notification notification) {
+        return traced(Mono.defer(() -> webClient.post()
+                .uri(notification.url())
+                .bodyValue(Map.of("paymentId", notification.paymentId(), "userId", notification.userId(),
+                    "orderId", notification.orderId()))
                 .retrieve()
                 .bodyToMono(Void.class)
-                .block();
-            
-            long duration = System.currentTimeMillis() - startTime;
-            if (telemetryClient != null) {
-                telemetryClient.recordServiceCall("notification-service", "send_payment_failure", "POST", url, duration, statusCode);
-            }
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            statusCode = 500;
-            if (telemetryClient != null) {
-                telemetryClient.recordServiceCall("notification-service", "send_payment_failure", "POST", url, duration, statusCode);
+                .timeout(Duration.ofMillis(timeoutMs))), notification.operation(), notification.url(), notification.trace());
+    }
+
+    // One request for the whole batch. It covers several traces, so the call only goes into the
+    // latency metrics and not into any one trace.
+    private Mono<Void> postBatch(List<Notification> batch) {
+        String url = notificationServiceUrl + BATCH_PATH;
+        return traced(Mono.defer(() -> {
+                List<Map<String, Object>> items = new ArrayList<>(batch.size());
+                for (Notification notification : batch) {
+                    items.add(Map.of("type", notification.type().name(), "paymentId", notification.paymentId(),
+                        "userId", notification.userId(), "orderId", notification.orderId()));
+                }
+                return webClient.post()
+                    .uri(url)
+                    .bodyValue(Map.of("notifications", items))
+                    .retrieve()
+                    .bodyToMono(Void.class)
+                    .timeout(Duration.ofMillis(timeoutMs));
+            }), "send_notification_batch", url, null)
+            .doOnSuccess(result -> batches.incrementAndGet())
+            .doOnError(this::checkBatchEndpoint);
+    }
+
+    private void checkBatchEndpoint(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            if (status == 404 || status == 405 || status == 501) {
+                batchUnavailableUntil = System.currentTimeMillis() + batchRetryAfterMs;
+                if (telemetryClient != null) {
+                    telemetryClient.logEvent("Notification batch endpoint answered {}, sending one request per notification for the next {} ms",
+                        "ERROR", status, batchRetryAfterMs);
+                }
             }
-            System.err.println("Failed to send payment failure notification: " + e.getMessage());
         }
     }
-    
-    public void sendRefundConfirmation(Long paymentId, Long userId, Long orderId) {
-        long startTime = System.currentTimeMillis();
-        String url = notificationServiceUrl + "/api/notifications/refund-confirmation";
-        int statusCode = 200;
-        
-        try {
-            webClient.post()
-                .uri(url)
-                .bodyValue(Map.of("paymentId", paymentId, "userId", userId, "orderId", orderId))
-                .retrieve()
-                .bodyToMono(Void.class)
-                .block();
-            
-            long duration = System.currentTimeMillis() - startTime;
-            if (telemetryClient != null) {
-                telemetryClient.recordServiceCall("notification-service", "send_refund_confirmation", "POST", url, duration, statusCode);
-            }
-        } catch (Exception e) {
-            long duration = System.currentTimeMillis() - startTime;
-            statusCode = 500;
-            if (telemetryClient != null) {
-                telemetryClient.recordServiceCall("notification-service", "send_refund_confirmation", "POST", url, duration, statusCode);
-            }
-            System.err.println("Failed to send refund confirmation notification: " + e.getMessage());
+
+    // Records the call as a span of the trace that wrote the row. The trace travels in the Reactor
+    // Context, so the span is kept no matter which thread completes the call.
+    private <T> Mono<T> traced(Mono<T> call, String operation, String url, TelemetryClient.TraceContext rowTrace) {
+        if (telemetryClient == null) {
+            return call;
         }
+        Mono<T> recorded = Mono.deferContextual(context -> {
+            long startTime = System.currentTimeMillis();
+            TelemetryClient.TraceContext trace = TelemetryClient.TraceContext.from(context);
+            return call
+                .doOnSuccess(result -> record(trace, operation, url, startTime, 200))
+                .doOnError(error -> record(trace, operation, url, startTime, 500));
+        });
+        return rowTrace != null ? recorded.contextWrite(rowTrace::putInto) : recorded;
+    }
+
+    private void record(TelemetryClient.TraceContext trace, String operation, String url, long startTime, int statusCode) {
+        long duration = System.currentTimeMillis() - startTime;
+        TelemetryClient.TraceContext.runWith(trace, () ->
+            telemetryClient.recordServiceCall("notification-service", operation, "POST", url, duration, statusCode));
+    }
+
+    private record Notification(OutboxNotification.Type type, String operation, String url, Long paymentId, Long userId,
+                                Long orderId, TelemetryClient.TraceContext trace) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,164 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.config.VirtualThreads;
+import com.ecommerce.paymentservice.dto.BatchPaymentResult;
+import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Service
+public class PaymentBatchProcessor {
+
+    @Autowired
+    private PaymentStateMachine paymentStateMachine;
+
+    @Autowired
+    private PaymentGatewayService paymentGatewayService;
+
+    @Autowired
+    private TelemetryClient telemetryClient;
+
+    @Value("${payment.batch.parallelism:16}")
+    private int parallelism;
+
+    @Value("${payment.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(parallelism, VirtualThreads.threadFactory("payment-batch-", virtualThreads));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public List<BatchPaymentResult> process(List<PaymentRequest> paymentRequests) {
+        if (paymentRequests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + paymentRequests.size() + " exceeds the maximum of " + maxBatchSize);
+        }
+
+        telemetryClient.logEvent("Processing payment batch of {} payments", "INFO", paymentRequests.size());
+
+        List<Payment> payments = new ArrayList<>(paymentRequests.size());
+        for (PaymentRequest paymentRequest : paymentRequests) {
+            payments.add(new Payment(
+                paymentRequest.getOrderId(),
+                paymentRequest.getUserId(),
+                paymentRequest.getAmount(),
+                paymentRequest.getPaymentMethod()
+            ));
+        }
+
+        // Insert all payments straight into PROCESSING in one batch
+        payments = paymentStateMachine.startAll(payments);
+
+        // Gateway calls run in parallel, bounded by the pool size. They only return the transaction
+        // id, the payments are updated on this thread once each call is done.
+        List<Future<String>> gatewayCalls = new ArrayList<>(payments.size());
+        for (PaymentRequest paymentRequest : paymentRequests) {
+            gatewayCalls.add(submitInTrace(() -> paymentGatewayService.processPayment(paymentRequest)));
+        }
+        String[] failureReasons = new String[payments.size()];
+        boolean interrupted = awaitGatewayCalls(gatewayCalls, payments, failureReasons);
+
+        // Persist every outcome that still applies, together with its notification in the outbox.
+        // Also after an interrupt, so none of the batch is left in PROCESSING.
+        List<Payment> finished = paymentStateMachine.finishAll(payments);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Payment batch processing interrupted");
+        }
+
+        List<BatchPaymentResult> results = results(payments, finished, failureReasons);
+        long failed = results.stream().filter(result -> !result.isSuccessful()).count();
+        telemetryClient.logEvent("Payment batch finished: {} completed, {} failed", "INFO", results.size() - failed, failed);
+
+        return results;
+    }
+
+    // Only what finishAll actually stored is reported. A payment that was moved concurrently keeps
+    // the state it was moved to and is reported as failed.
+    private List<BatchPaymentResult> results(List<Payment> payments, List<Payment> finished, String[] failureReasons) {
+        Set<Long> stored = new HashSet<>();
+        for (Payment payment : finished) {
+            stored.add(payment.getId());
+        }
+
+        List<BatchPaymentResult> results = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            if (!stored.contains(payment.getId())) {
+                results.add(BatchPaymentResult.failure(i, payment, "Payment was changed by another request before its outcome was stored"));
+            } else if (payment.getStatus() == Payment.PaymentStatus.COMPLETED) {
+                results.add(BatchPaymentResult.success(i, payment));
+            } else {
+                results.add(BatchPaymentResult.failure(i, payment, failureReasons[i]));
+            }
+        }
+        return results;
+    }
+
+    private Future<String> submitInTrace(Callable<String> task) {
+        return executor.submit(TelemetryClient.TraceContext.wrap(task));
+    }
+
+    // Returns true if interrupted. The calls still running are then cancelled and their payments
+    // marked FAILED, the ones already done keep their outcome.
+    private boolean awaitGatewayCalls(List<Future<String>> futures, List<Payment> payments, String[] failureReasons) {
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                charged(payments.get(i), futures.get(i).get());
+            } catch (InterruptedException e) {
+                for (int j = i; j < futures.size(); j++) {
+                    Future<String> future = futures.get(j);
+                    future.cancel(true);
+                    switch (future.state()) {
+                        case SUCCESS -> charged(payments.get(j), future.resultNow());
+                        case FAILED -> failureReasons[j] = declined(payments.get(j), future.exceptionNow().getMessage());
+                        default -> failureReasons[j] = declined(payments.get(j), "batch processing was interrupted");
+                    }
+                }
+                return true;
+            } catch (ExecutionException e) {
+                failureReasons[i] = declined(payments.get(i), e.getCause().getMessage());
+            }
+        }
+        return false;
+    }
+
+    private static void charged(Payment payment, String transactionId) {
+        payment.setTransactionId(transactionId);
+        payment.setStatus(Payment.PaymentStatus.COMPLETED);
+        payment.setPaymentGatewayResponse("Payment processed successfully");
+    }
+
+    private static String declined(Payment payment, String reason) {
+        payment.setStatus(Payment.PaymentStatus.FAILED);
+        payment.setPaymentGatewayResponse("Payment failed: " + reason);
+        return reason;
+    }
+}
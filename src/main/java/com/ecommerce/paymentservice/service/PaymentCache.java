@@ -0,0 +1,70 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentCacheStats;
+import com.ecommerce.paymentservice.model.Payment;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Read-through cache for single payment lookups. It is kept current by PaymentStateMachine,
+// the TTL only bounds staleness for changes made outside this instance.
+@Component
+public class PaymentCache {
+
+    @Value("${payment.cache.max-size:10000}")
+    private long maxSize = 10000;
+
+    @Value("${payment.cache.ttl-seconds:30}")
+    private long ttlSeconds = 30;
+
+    private Cache<Long, Payment> cache;
+
+    @PostConstruct
+    public void start() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+    }
+
+    // Entries are private copies, callers can never mutate what other requests read
+    public Payment get(Long id, Function<Long, Payment> loader) {
+        return copyOf(cache.get(id, key -> copyOf(loader.apply(key))));
+    }
+
+    public void put(Payment payment) {
+        if (payment.getId() != null) {
+            cache.put(payment.getId(), copyOf(payment));
+        }
+    }
+
+    public void evict(Long id) {
+        cache.invalidate(id);
+    }
+
+    public PaymentCacheStats getStats() {
+        return PaymentCacheStats.from(cache.stats(), cache.estimatedSize());
+    }
+
+    private Payment copyOf(Payment payment) {
+        if (payment == null) return null;
+
+        Payment copy = new Payment();
+        copy.setId(payment.getId());
+        copy.setOrderId(payment.getOrderId());
+        copy.setUserId(payment.getUserId());
+        copy.setAmount(payment.getAmount());
+        copy.setStatus(payment.getStatus());
+        copy.setPaymentMethod(payment.getPaymentMethod());
+        copy.setPaymentDate(payment.getPaymentDate());
+        copy.setTransactionId(payment.getTransactionId());
+        copy.setPaymentGatewayResponse(payment.getPaymentGatewayResponse());
+        return copy;
+    }
+}
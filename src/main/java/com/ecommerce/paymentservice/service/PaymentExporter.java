@@ -0,0 +1,66 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class PaymentExporter {
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${payment.export.flush-every:1000}")
+    private int flushEvery = 1000;
+
+    // Writes one JSON document per line. Rows come from a database cursor and are detached
+    // once written, so memory use does not grow with the size of the export.
+    @Transactional(readOnly = true)
+    public long export(Payment.PaymentStatus status, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Payment.class)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+            .withRootValueSeparator("\n");
+
+        long written = 0;
+        try (Stream<Payment> payments = paymentRepository.streamForExport(status, from, to);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            Iterator<Payment> rows = payments.iterator();
+            while (rows.hasNext()) {
+                Payment payment = rows.next();
+                writer.writeValue(generator, payment);
+                entityManager.detach(payment);
+
+                if (++written % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return written;
+    }
+}
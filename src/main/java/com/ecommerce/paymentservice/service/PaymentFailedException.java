@@ -0,0 +1,17 @@
+package com.ecommerce.paymentservice.service;
+
+// Thrown once a payment has been stored and sent to processing but did not complete. The payment
+// row exists and the card may have been charged, so the outcome is final for its Idempotency-Key.
+public class PaymentFailedException extends RuntimeException {
+
+    private final Long paymentId;
+
+    public PaymentFailedException(Long paymentId, String message) {
+        super(message);
+        this.paymentId = paymentId;
+    }
+
+    public Long getPaymentId() {
+        return paymentId;
+    }
+}
@@ -2,12 +2,11 @@ package com.ecommerce.paymentservice.service;
 
 import com.ecommerce.paymentservice.dto.PaymentRequest;
 import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import com.ecommerce.paymentservice.util.IdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.UUID;
-
 @Service
 public class PaymentGatewayService {
     
@@ -39,7 +38,7 @@ public class PaymentGatewayService {
             }
             
             // Generate mock transaction ID
-            String transactionId = "TXN_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+            String transactionId = IdGenerator.transactionId();
             
             long duration = System.currentTimeMillis() - startTime;
             if (telemetryClient != null) {
@@ -0,0 +1,78 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.config.VirtualThreads;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class PaymentProcessingQueue {
+
+    @Autowired
+    private TelemetryClient telemetryClient;
+
+    @Value("${payment.async.workers:8}")
+    private int workers;
+
+    @Value("${payment.async.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${payment.async.shutdown-timeout-seconds:30}")
+    private long shutdownTimeoutSeconds;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        // With virtual threads the worker count can go into the thousands without growing the platform pool
+        executor = new ThreadPoolExecutor(
+            workers, workers,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            VirtualThreads.threadFactory("payment-worker-", virtualThreads),
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (executor == null) return;
+
+        // Let accepted payments finish instead of leaving them PENDING
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+            // Whatever is left is failed by the stale payment sweep after the next start
+            telemetryClient.logEvent("Payment worker queue did not drain within {}s, {} payments left pending", "ERROR",
+                shutdownTimeoutSeconds, executor.getQueue().size());
+        }
+    }
+
+    public void submit(Runnable task) throws RejectedExecutionException {
+        executor.execute(TelemetryClient.TraceContext.wrap(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                telemetryClient.logEvent("Asynchronous payment processing failed: {}", "ERROR", e.getMessage());
+            }
+        }));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveWorkers() {
+        return executor.getActiveCount();
+    }
+}
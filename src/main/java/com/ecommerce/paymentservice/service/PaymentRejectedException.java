@@ -0,0 +1,10 @@
+package com.ecommerce.paymentservice.service;
+
+// Thrown when a payment is turned away before processing because the processing queue is full.
+// Nothing was charged, so the Idempotency-Key is released and the client may retry with it.
+public class PaymentRejectedException extends RuntimeException {
+
+    public PaymentRejectedException(String message) {
+        super(message);
+    }
+}
@@ -1,14 +1,28 @@
 package com.ecommerce.paymentservice.service;
 
+import com.ecommerce.paymentservice.dto.BatchPaymentResult;
+import com.ecommerce.paymentservice.dto.PaymentCacheStats;
+import com.ecommerce.paymentservice.dto.PaymentCursor;
+import com.ecommerce.paymentservice.dto.PaymentPage;
 import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.dto.PaymentStatusResponse;
+import com.ecommerce.paymentservice.dto.PaymentTransition;
 import com.ecommerce.paymentservice.model.Payment;
 import com.ecommerce.paymentservice.repository.PaymentRepository;
 import com.ecommerce.paymentservice.telemetry.TelemetryClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class PaymentService {
@@ -20,13 +34,43 @@ public class PaymentService {
     private PaymentGatewayService paymentGatewayService;
     
     @Autowired
-    private NotificationServiceClient notificationServiceClient;
+    private TelemetryClient telemetryClient;
     
     @Autowired
-    private TelemetryClient telemetryClient;
+    private PaymentBatchProcessor paymentBatchProcessor;
+    
+    @Autowired
+    private PaymentProcessingQueue paymentProcessingQueue;
+    
+    @Autowired
+    private PaymentStateMachine paymentStateMachine;
+    
+    @Autowired
+    private PaymentExporter paymentExporter;
+    
+    @Autowired
+    private PaymentCache paymentCache;
+    
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
+    @Value("${payment.pagination.default-page-size:50}")
+    private int defaultPageSize = 50;
+    
+    @Value("${payment.pagination.max-page-size:200}")
+    private int maxPageSize = 200;
+    
+    @Value("${payment.async.enabled:false}")
+    private boolean asyncProcessingEnabled;
+    
+    @Value("${payment.async.stale-after-seconds:900}")
+    private long staleAfterSeconds = 900;
+    
+    @Value("${payment.async.sweep-size:500}")
+    private int sweepSize = 500;
     
     public Payment processPayment(PaymentRequest paymentRequest) {
-        telemetryClient.logEvent("Processing payment for order: " + paymentRequest.getOrderId(), "INFO");
+        telemetryClient.logEvent("Processing payment for order: {}", "INFO", paymentRequest.getOrderId());
         
         Payment payment = new Payment(
             paymentRequest.getOrderId(),
@@ -35,99 +79,210 @@ public class PaymentService {
             paymentRequest.getPaymentMethod()
         );
         
-        // Save payment with PENDING status
-        payment = paymentRepository.save(payment);
-        telemetryClient.logEvent("Payment saved with ID: " + payment.getId() + ", status: PENDING", "INFO");
+        // Insert straight into PROCESSING, PENDING is only recorded as a transition
+        payment = paymentStateMachine.start(payment);
+        telemetryClient.logEvent("Payment saved with ID: {}, status: PROCESSING", "INFO", payment.getId());
+        
+        return completePayment(payment, paymentRequest);
+    }
+    
+    // Retries with the same key get the first attempt's payment back instead of charging again
+    public Payment processPayment(PaymentRequest paymentRequest, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return processPayment(paymentRequest);
+        }
+        Long paymentId = idempotencyService.execute(idempotencyKey, paymentRequest,
+            () -> processPayment(paymentRequest).getId());
+        return getPaymentById(paymentId);
+    }
+    
+    public PaymentStatusResponse acceptPayment(PaymentRequest paymentRequest, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return acceptPayment(paymentRequest);
+        }
+        Long paymentId = idempotencyService.execute(idempotencyKey, paymentRequest,
+            () -> acceptPayment(paymentRequest).getPaymentId());
+        return getPaymentStatus(paymentId);
+    }
+    
+    public PaymentStatusResponse acceptPayment(PaymentRequest paymentRequest) {
+        telemetryClient.logEvent("Accepting payment for asynchronous processing for order: {}", "INFO", paymentRequest.getOrderId());
+        
+        Payment payment = paymentStateMachine.accept(new Payment(
+            paymentRequest.getOrderId(),
+            paymentRequest.getUserId(),
+            paymentRequest.getAmount(),
+            paymentRequest.getPaymentMethod()
+        ));
+        telemetryClient.logEvent("Payment saved with ID: {}, status: PENDING", "INFO", payment.getId());
+        
+        // Snapshot before hand-off, the worker mutates the entity from here on
+        PaymentStatusResponse accepted = PaymentStatusResponse.from(payment);
+        
+        try {
+            paymentProcessingQueue.submit(() -> completePayment(paymentStateMachine.start(payment), paymentRequest));
+        } catch (RejectedExecutionException e) {
+            telemetryClient.logEvent("Payment {} rejected: processing queue is full", "ERROR", payment.getId());
+            paymentStateMachine.reject(payment, "Payment rejected: processing queue is full");
+            throw new PaymentRejectedException("Payment processing queue is full");
+        }
         
+        return accepted;
+    }
+    
+    // Expects the payment in PROCESSING already
+    private Payment completePayment(Payment payment, PaymentRequest paymentRequest) {
         try {
             // Process payment through gateway
-            payment.setStatus(Payment.PaymentStatus.PROCESSING);
-            paymentRepository.save(payment);
-            telemetryClient.logEvent("Payment " + payment.getId() + " sent to gateway for processing", "INFO");
+            telemetryClient.logEvent("Payment {} sent to gateway for processing", "INFO", payment.getId());
             
             String transactionId = paymentGatewayService.processPayment(paymentRequest);
             
             // Payment successful
-            payment.setTransactionId(transactionId);
-            payment.setStatus(Payment.PaymentStatus.COMPLETED);
-            payment.setPaymentGatewayResponse("Payment processed successfully");
-            
-            Payment completedPayment = paymentRepository.save(payment);
-            telemetryClient.logEvent("Payment completed successfully with transaction ID: " + transactionId, "INFO");
-            
-            // Send payment confirmation notification
-            notificationServiceClient.sendPaymentConfirmation(
-                completedPayment.getId(), 
-                completedPayment.getUserId(), 
-                completedPayment.getOrderId()
-            );
+            // The confirmation is written to the notification outbox along with the status change
+            Payment completedPayment = paymentStateMachine.complete(payment, transactionId);
+            telemetryClient.logEvent("Payment completed successfully with transaction ID: {}", "INFO", transactionId);
             
             return completedPayment;
             
         } catch (Exception e) {
             // Payment failed
-            telemetryClient.logEvent("Payment " + payment.getId() + " failed: " + e.getMessage(), "ERROR");
-            payment.setStatus(Payment.PaymentStatus.FAILED);
-            payment.setPaymentGatewayResponse("Payment failed: " + e.getMessage());
-            
-            Payment failedPayment = paymentRepository.save(payment);
+            telemetryClient.logEvent("Payment {} failed: {}", "ERROR", payment.getId(), e.getMessage());
+            try {
+                paymentStateMachine.fail(payment, "Payment failed: " + e.getMessage());
+            } catch (RuntimeException failure) {
+                // The payment row exists either way, the caller still has to learn which one it was
+                telemetryClient.logEvent("Payment {} could not be marked FAILED: {}", "ERROR", payment.getId(), failure.getMessage());
+            }
             
-            // Send payment failure notification
-            notificationServiceClient.sendPaymentFailure(
-                failedPayment.getId(), 
-                failedPayment.getUserId(), 
-                failedPayment.getOrderId()
-            );
-            
-            throw new RuntimeException("Payment processing failed: " + e.getMessage());
+            throw new PaymentFailedException(payment.getId(), "Payment processing failed: " + e.getMessage());
         }
     }
     
+    // An accepted payment stays PENDING in the database until its worker finishes it. After a crash,
+    // or when the queue did not drain on shutdown, nothing ever will, so payments still unfinished
+    // after stale-after-seconds are failed and the customer is told. They are not queued again, the
+    // gateway may have charged them already. Runs once right after startup, then every sweep interval.
+    @Scheduled(fixedDelayString = "${payment.async.sweep-interval-ms:60000}")
+    public void failStalePayments() {
+        if (!asyncProcessingEnabled) {
+            return;
+        }
+        List<Payment> stale = paymentRepository.findByStatusInAndPaymentDateBefore(
+            EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING),
+            LocalDateTime.now().minusSeconds(staleAfterSeconds), PageRequest.of(0, sweepSize));
+        
+        int failed = 0;
+        for (Payment payment : stale) {
+            try {
+                paymentStateMachine.fail(payment, "Payment failed: not processed within " + staleAfterSeconds + "s");
+                failed++;
+            } catch (RuntimeException e) {
+                // Finished by its worker in the meantime
+            }
+        }
+        if (failed > 0) {
+            telemetryClient.logEvent("Failed {} payments left unfinished for over {}s", "ERROR", failed, staleAfterSeconds);
+        }
+    }
+    
+    public List<BatchPaymentResult> processPayments(List<PaymentRequest> paymentRequests) {
+        return paymentBatchProcessor.process(paymentRequests);
+    }
+    
     public Payment getPaymentById(Long id) {
-        return paymentRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("Payment not found"));
+        return paymentCache.get(id, key -> paymentRepository.findById(key)
+            .orElseThrow(() -> new RuntimeException("Payment not found")));
     }
     
-    public List<Payment> getPaymentsByOrderId(Long orderId) {
-        return paymentRepository.findByOrderId(orderId);
+    public PaymentCacheStats getCacheStats() {
+        return paymentCache.getStats();
     }
     
-    public List<Payment> getPaymentsByUserId(Long userId) {
-        return paymentRepository.findByUserId(userId);
+    public PaymentStatusResponse getPaymentStatus(Long id) {
+        Payment payment = getPaymentById(id);
+        PaymentStatusResponse status = PaymentStatusResponse.from(payment);
+        // PROCESSING is never written for queued payments, the transition log knows about it
+        if (payment.getStatus() == Payment.PaymentStatus.PENDING) {
+            status.setStatus(paymentStateMachine.currentStatus(payment));
+        }
+        return status;
+    }
+    
+    public List<PaymentTransition> getPaymentTransitions(Long id) {
+        getPaymentById(id);
+        return paymentStateMachine.getTransitions(id);
+    }
+    
+    public PaymentPage getPaymentsByOrderId(Long orderId, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        Long afterId = cursor != null ? PaymentCursor.decode(cursor).getId() : 0L;
+        return PaymentPage.of(
+            paymentRepository.findByOrderIdAndIdGreaterThanOrderByIdAsc(orderId, afterId, PageRequest.of(0, pageSize + 1)),
+            pageSize, PaymentCursor::byId);
+    }
+    
+    // Newest first, walking the (userId, paymentDate) index
+    public PaymentPage getPaymentsByUserId(Long userId, String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        
+        List<Payment> payments;
+        if (cursor == null) {
+            payments = paymentRepository.findByUserIdOrderByPaymentDateDescIdDesc(userId, limit);
+        } else {
+            PaymentCursor position = PaymentCursor.decode(cursor);
+            if (position.getPaymentDate() == null) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            payments = paymentRepository.findByUserIdBefore(userId, position.getPaymentDate(), position.getId(), limit);
+        }
+        return PaymentPage.of(payments, pageSize, PaymentCursor::byDateAndId);
+    }
+    
+    public PaymentPage getAllPayments(String cursor, Integer size) {
+        int pageSize = resolvePageSize(size);
+        Long afterId = cursor != null ? PaymentCursor.decode(cursor).getId() : 0L;
+        return PaymentPage.of(
+            paymentRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, pageSize + 1)),
+            pageSize, PaymentCursor::byId);
+    }
+    
+    // The range is validated by the controller, before the response starts streaming
+    public long exportPayments(Payment.PaymentStatus status, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        return paymentExporter.export(status, from, to, out);
     }
     
-    public List<Payment> getAllPayments() {
-        return paymentRepository.findAll();
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return defaultPageSize;
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        return Math.min(size, maxPageSize);
     }
     
     public Payment refundPayment(Long id) {
-        telemetryClient.logEvent("Processing refund for payment: " + id, "INFO");
+        telemetryClient.logEvent("Processing refund for payment: {}", "INFO", id);
         
         Payment payment = getPaymentById(id);
         
         if (payment.getStatus() != Payment.PaymentStatus.COMPLETED) {
-            telemetryClient.logEvent("Refund failed - payment " + id + " is not completed", "ERROR");
+            telemetryClient.logEvent("Refund failed - payment {} is not completed", "ERROR", id);
             throw new RuntimeException("Cannot refund payment that is not completed");
         }
         
         try {
             paymentGatewayService.refundPayment(payment.getTransactionId());
             
-            payment.setStatus(Payment.PaymentStatus.REFUNDED);
-            Payment refundedPayment = paymentRepository.save(payment);
-            telemetryClient.logEvent("Payment " + id + " refunded successfully", "INFO");
-            
-            // Send refund notification
-            notificationServiceClient.sendRefundConfirmation(
-                refundedPayment.getId(), 
-                refundedPayment.getUserId(), 
-                refundedPayment.getOrderId()
-            );
+            Payment refundedPayment = paymentStateMachine.refund(payment);
+            telemetryClient.logEvent("Payment {} refunded successfully", "INFO", id);
             
             return refundedPayment;
             
         } catch (Exception e) {
-            telemetryClient.logEvent("Refund failed for payment " + id + ": " + e.getMessage(), "ERROR");
+            telemetryClient.logEvent("Refund failed for payment {}: {}", "ERROR", id, e.getMessage());
             throw new RuntimeException("Refund processing failed: " + e.getMessage());
         }
     }
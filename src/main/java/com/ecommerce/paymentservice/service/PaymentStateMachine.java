@@ -0,0 +1,203 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentTransition;
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Owns every payment status write. A payment costs one INSERT plus one conditional
+// UPDATE; states that are never written to the database (PENDING for synchronous
+// payments, PROCESSING for queued ones) are kept in an in-memory transition log.
+// Moves to COMPLETED, FAILED and REFUNDED insert their notification into the outbox in the
+// same transaction, the outbox dispatcher delivers it after the commit.
+@Component
+public class PaymentStateMachine {
+
+    private static final Set<Payment.PaymentStatus> UNFINISHED =
+        EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING);
+    private static final Set<Payment.PaymentStatus> REFUNDABLE = EnumSet.of(Payment.PaymentStatus.COMPLETED);
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private PaymentCache paymentCache;
+
+    @Autowired
+    private OutboxNotificationRepository outboxNotificationRepository;
+
+    @Value("${payment.transitions.max-tracked-payments:10000}")
+    private int maxTrackedPayments = 10000;
+
+    private final Map<Long, List<PaymentTransition>> transitions = Collections.synchronizedMap(
+        new LinkedHashMap<Long, List<PaymentTransition>>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, List<PaymentTransition>> eldest) {
+                return size() > maxTrackedPayments;
+            }
+        });
+
+    // Inserts a new payment as PENDING, for payments that are processed later
+    public Payment accept(Payment payment) {
+        payment.setStatus(Payment.PaymentStatus.PENDING);
+        Payment saved = paymentRepository.save(payment);
+        record(saved, null, Payment.PaymentStatus.PENDING);
+        return saved;
+    }
+
+    // Moves a payment to PROCESSING. New payments are inserted straight into
+    // PROCESSING, already persisted ones only record the transition in memory.
+    public Payment start(Payment payment) {
+        if (payment.getId() == null) {
+            payment.setStatus(Payment.PaymentStatus.PROCESSING);
+            Payment saved = paymentRepository.save(payment);
+            record(saved, Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING);
+            return saved;
+        }
+
+        Payment.PaymentStatus fromStatus = payment.getStatus();
+        payment.setStatus(Payment.PaymentStatus.PROCESSING);
+        record(payment, fromStatus, Payment.PaymentStatus.PROCESSING);
+        return payment;
+    }
+
+    public List<Payment> startAll(List<Payment> payments) {
+        for (Payment payment : payments) {
+            payment.setStatus(Payment.PaymentStatus.PROCESSING);
+        }
+        List<Payment> saved = paymentRepository.saveAll(payments);
+        for (Payment payment : saved) {
+            record(payment, Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING);
+        }
+        return saved;
+    }
+
+    // Batch outcomes are already set on the entities. They go out as one JDBC batch of the same
+    // conditional UPDATE as a single transition, so a payment another request moved in the meantime
+    // keeps its state and gets no notification. The outbox rows of the applied outcomes are written in
+    // one saveAll.
+    @Transactional
+    public List<Payment> finishAll(List<Payment> payments) {
+        int[] updated = paymentRepository.transitionStatuses(payments, UNFINISHED);
+        List<Payment> finished = new ArrayList<>(payments.size());
+        List<OutboxNotification> notifications = new ArrayList<>(payments.size());
+        TelemetryClient.TraceContext trace = TelemetryClient.TraceContext.current();
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            // Statement.SUCCESS_NO_INFO, from a driver without per-row counts, is taken as applied
+            if (updated[i] == 0) {
+                paymentCache.evict(payment.getId());
+                continue;
+            }
+            finished.add(payment);
+            OutboxNotification notification = notification(payment, trace);
+            if (notification != null) {
+                notifications.add(notification);
+            }
+        }
+        outboxNotificationRepository.saveAll(notifications);
+        for (Payment payment : finished) {
+            record(payment, Payment.PaymentStatus.PROCESSING, payment.getStatus());
+        }
+        return finished;
+    }
+
+    @Transactional
+    public Payment complete(Payment payment, String transactionId) {
+        return transition(payment, UNFINISHED, Payment.PaymentStatus.COMPLETED,
+            transactionId, "Payment processed successfully", true);
+    }
+
+    @Transactional
+    public Payment fail(Payment payment, String gatewayResponse) {
+        return transition(payment, UNFINISHED, Payment.PaymentStatus.FAILED,
+            payment.getTransactionId(), gatewayResponse, true);
+    }
+
+    // FAILED without a notification, for a payment turned away before processing. The customer
+    // learns about it from the error response instead.
+    @Transactional
+    public Payment reject(Payment payment, String reason) {
+        return transition(payment, UNFINISHED, Payment.PaymentStatus.FAILED,
+            payment.getTransactionId(), reason, false);
+    }
+
+    @Transactional
+    public Payment refund(Payment payment) {
+        return transition(payment, REFUNDABLE, Payment.PaymentStatus.REFUNDED,
+            payment.getTransactionId(), payment.getPaymentGatewayResponse(), true);
+    }
+
+    // The last recorded status, which may be ahead of the stored one while a payment is in flight
+    public Payment.PaymentStatus currentStatus(Payment payment) {
+        List<PaymentTransition> history = transitions.get(payment.getId());
+        if (history == null) return payment.getStatus();
+        synchronized (history) {
+            return history.isEmpty() ? payment.getStatus() : history.get(history.size() - 1).getToStatus();
+        }
+    }
+
+    public List<PaymentTransition> getTransitions(Long paymentId) {
+        List<PaymentTransition> history = transitions.get(paymentId);
+        if (history == null) return Collections.emptyList();
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    private Payment transition(Payment payment, Set<Payment.PaymentStatus> expectedStatuses,
+                               Payment.PaymentStatus toStatus, String transactionId, String gatewayResponse,
+                               boolean notifyCustomer) {
+        Payment.PaymentStatus fromStatus = currentStatus(payment);
+
+        // Entity fields are only touched after the UPDATE, so nothing dirty gets flushed ahead of it
+        int updated = paymentRepository.transitionStatus(
+            payment.getId(), expectedStatuses, toStatus, transactionId, gatewayResponse);
+        if (updated == 0) {
+            // Someone else moved it, whatever is cached can no longer be trusted
+            paymentCache.evict(payment.getId());
+            throw new RuntimeException("Payment " + payment.getId() + " cannot move to " + toStatus
+                + " from its current state");
+        }
+
+        payment.setStatus(toStatus);
+        payment.setTransactionId(transactionId);
+        payment.setPaymentGatewayResponse(gatewayResponse);
+        if (notifyCustomer) {
+            outboxNotificationRepository.save(notification(payment, TelemetryClient.TraceContext.current()));
+        }
+        record(payment, fromStatus, toStatus);
+        return payment;
+    }
+
+    private OutboxNotification notification(Payment payment, TelemetryClient.TraceContext trace) {
+        OutboxNotification.Type type = OutboxNotification.Type.forStatus(payment.getStatus());
+        if (type == null) {
+            return null;
+        }
+        return new OutboxNotification(type, payment,
+            trace != null ? trace.traceId() : null, trace != null ? trace.spanId() : null);
+    }
+
+    private void record(Payment payment, Payment.PaymentStatus fromStatus, Payment.PaymentStatus toStatus) {
+        List<PaymentTransition> history = transitions.computeIfAbsent(payment.getId(), id -> new ArrayList<>(4));
+        synchronized (history) {
+            history.add(new PaymentTransition(payment.getId(), fromStatus, toStatus));
+        }
+        paymentCache.put(payment);
+    }
+}
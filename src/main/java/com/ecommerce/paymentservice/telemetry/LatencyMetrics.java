@@ -0,0 +1,139 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import com.ecommerce.paymentservice.dto.LatencySnapshot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Local latency percentiles per operation over a rolling window. Each operation keeps a ring of
+// interval histograms, one per windowMs slice, and a snapshot merges the slices that are still
+// inside the window. Operations are looked up by (group, operation) in nested maps so recording
+// never concatenates a key; a new slice histogram is allocated once per interval, not per call.
+class LatencyMetrics {
+
+    private final long windowMs;
+    private final int windows;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, RollingLatency>> groups = new ConcurrentHashMap<>();
+
+    LatencyMetrics(long windowMs, int windows) {
+        this(windowMs, windows, System::currentTimeMillis);
+    }
+
+    LatencyMetrics(long windowMs, int windows, LongSupplier clock) {
+        this.windowMs = windowMs;
+        this.windows = windows;
+        this.clock = clock;
+    }
+
+    // Recorded under "group_operation", or just "operation" when group is null
+    void record(String group, String operation, long durationMs) {
+        ConcurrentHashMap<String, RollingLatency> operations = groups.get(group != null ? group : "");
+        if (operations == null) {
+            operations = groups.computeIfAbsent(group != null ? group : "", key -> new ConcurrentHashMap<>());
+        }
+        RollingLatency latency = operations.get(operation);
+        if (latency == null) {
+            latency = operations.computeIfAbsent(operation,
+                key -> new RollingLatency(group != null ? group + "_" + key : key));
+        }
+        latency.record(durationMs);
+    }
+
+    List<LatencySnapshot> snapshots() {
+        long now = clock.getAsLong();
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        for (ConcurrentHashMap<String, RollingLatency> operations : groups.values()) {
+            for (RollingLatency latency : operations.values()) {
+                snapshots.add(latency.snapshot(now));
+            }
+        }
+        snapshots.sort(Comparator.comparing(LatencySnapshot::getOperation));
+        return snapshots;
+    }
+
+    private final class RollingLatency {
+        private final String name;
+        private final AtomicReferenceArray<Slice> slices = new AtomicReferenceArray<>(windows);
+        private final LongAdder totalCount = new LongAdder();
+
+        private RollingLatency(String name) {
+            this.name = name;
+        }
+
+        void record(long durationMs) {
+            long interval = clock.getAsLong() / windowMs;
+            int index = (int) (interval % windows);
+            Slice slice = slices.get(index);
+            while (slice == null || slice.interval != interval) {
+                if (slice != null && slice.interval > interval) {
+                    // A newer slice already took this slot, the sample belongs to an expired interval
+                    totalCount.increment();
+                    return;
+                }
+                Slice fresh = new Slice(interval);
+                if (slices.compareAndSet(index, slice, fresh)) {
+                    slice = fresh;
+                } else {
+                    slice = slices.get(index);
+                }
+            }
+            slice.histogram.record(durationMs);
+            totalCount.increment();
+        }
+
+        LatencySnapshot snapshot(long now) {
+            long current = now / windowMs;
+            long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+            long sum = 0;
+            for (int i = 0; i < windows; i++) {
+                Slice slice = slices.get(i);
+                if (slice != null && slice.interval > current - windows && slice.interval <= current) {
+                    slice.histogram.addTo(counts);
+                    sum += slice.histogram.getSum();
+                }
+            }
+
+            long count = 0;
+            int lowest = -1;
+            int highest = -1;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    count += counts[i];
+                    if (lowest < 0) lowest = i;
+                    highest = i;
+                }
+            }
+
+            LatencySnapshot snapshot = new LatencySnapshot();
+            snapshot.setOperation(name);
+            snapshot.setWindowSeconds(windowMs * windows / 1000);
+            snapshot.setCount(count);
+            snapshot.setTotalCount(totalCount.sum());
+            if (count > 0) {
+                snapshot.setMinMs(LatencyHistogram.lowestValueAt(lowest));
+                snapshot.setMaxMs(LatencyHistogram.highestValueAt(highest));
+                snapshot.setMeanMs((double) sum / count);
+                snapshot.setP50Ms(LatencyHistogram.valueAtPercentile(counts, count, 50.0));
+                snapshot.setP90Ms(LatencyHistogram.valueAtPercentile(counts, count, 90.0));
+                snapshot.setP99Ms(LatencyHistogram.valueAtPercentile(counts, count, 99.0));
+                snapshot.setP999Ms(LatencyHistogram.valueAtPercentile(counts, count, 99.9));
+            }
+            return snapshot;
+        }
+    }
+
+    private static final class Slice {
+        private final long interval;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Slice(long interval) {
+            this.interval = interval;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Log lines collected for the open span of a sampled trace. The holder is shared by every copy
+// of the span's TraceContext, including ones handed to executor threads, so adds are synchronized.
+// Once the span is finished, or the limit is reached, add returns false and the caller emits the
+// line as its own log event instead.
+final class SpanAnnotations {
+
+    private final int limit;
+    private List<TelemetryEvent.Annotation> annotations;
+    private boolean finished;
+
+    SpanAnnotations(int limit) {
+        this.limit = limit;
+    }
+
+    synchronized boolean add(String level, String message) {
+        if (finished) {
+            return false;
+        }
+        if (annotations == null) {
+            annotations = new ArrayList<>(Math.min(limit, 8));
+        }
+        if (annotations.size() >= limit) {
+            return false;
+        }
+        annotations.add(new TelemetryEvent.Annotation(TelemetryEvent.currentEpochNanos(), level, message));
+        return true;
+    }
+
+    // Ends collection and returns the annotations in the order they were added, null if there were none
+    synchronized List<TelemetryEvent.Annotation> finish() {
+        finished = true;
+        List<TelemetryEvent.Annotation> collected = annotations;
+        annotations = null;
+        return collected;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.util.List;
+
+// Serializes a batch into a reusable buffer, one writer per in-flight request
+interface TelemetryBatchWriter {
+
+    // Replaces the buffer contents with the encoded batch
+    void writeBatch(List<TelemetryEvent> events);
+
+    byte[] buffer();
+
+    int size();
+
+    // For when the last buffer may still be referenced, e.g. by a request that timed out
+    void discardBuffer();
+}
@@ -1,13 +1,24 @@
 package com.ecommerce.paymentservice.telemetry;
 
+import com.ecommerce.paymentservice.dto.LatencySnapshot;
+import com.ecommerce.paymentservice.dto.TelemetryStats;
+import com.ecommerce.paymentservice.util.IdGenerator;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
 
-import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.UUID;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @Component
 public class TelemetryClient {
@@ -20,10 +31,81 @@ public class TelemetryClient {
     @Value("${spring.application.name}")
     private String serviceName;
     
+    @Value("${telemetry.exporter.buffer-capacity:8192}")
+    private int bufferCapacity = 8192;
+    
+    @Value("${telemetry.exporter.batch-size:100}")
+    private int batchSize = 100;
+    
+    @Value("${telemetry.exporter.flush-interval-ms:200}")
+    private long flushIntervalMs = 200;
+    
+    @Value("${telemetry.exporter.send-timeout-ms:5000}")
+    private long sendTimeoutMs = 5000;
+    
+    @Value("${telemetry.exporter.max-in-flight:2}")
+    private int maxInFlight = 2;
+    
+    @Value("${telemetry.exporter.overflow-policy:DROP_NEWEST}")
+    private TelemetryOverflowPolicy overflowPolicy = TelemetryOverflowPolicy.DROP_NEWEST;
+    
+    // Log lines beyond this are sent as separate log events instead of span annotations
+    @Value("${telemetry.annotations.max-per-span:64}")
+    private int maxAnnotationsPerSpan = 64;
+    
+    // JSON or COMPACT, the receiver has to accept the format
+    @Value("${telemetry.exporter.wire-format:JSON}")
+    private TelemetryWireFormat wireFormat = TelemetryWireFormat.JSON;
+    
+    // Only used by the BLOCK policy, the longest a request thread waits for buffer space
+    @Value("${telemetry.exporter.block-timeout-ms:5}")
+    private long blockTimeoutMs = 5;
+    
+    // Fraction of traces recorded, decided once per trace in startTrace
+    @Value("${telemetry.sampling.rate:1.0}")
+    private double samplingRate = 1.0;
+    
+    // Batches that fail to send are spooled to disk and replayed once the service is back
+    @Value("${telemetry.spool.enabled:false}")
+    private boolean spoolEnabled = false;
+    
+    // No default, every instance has to be given a directory of its own
+    @Value("${telemetry.spool.directory:}")
+    private String spoolDirectory = "";
+    
+    @Value("${telemetry.spool.max-bytes:67108864}")
+    private long spoolMaxBytes = 64L * 1024 * 1024;
+    
+    @Value("${telemetry.spool.segment-bytes:4194304}")
+    private int spoolSegmentBytes = 4 * 1024 * 1024;
+    
+    // Local latency percentiles cover window-seconds * windows, rolling forward every window-seconds
+    @Value("${telemetry.latency.window-seconds:10}")
+    private long latencyWindowSeconds = 10;
+    
+    @Value("${telemetry.latency.windows:6}")
+    private int latencyWindows = 6;
+    
+    private volatile LatencyMetrics latencyMetrics;
+    
+    private volatile TelemetryExporter<TelemetryEvent> exporter;
+    
+    private volatile TelemetrySender sender;
+    
+    private final AtomicLong sampledTraces = new AtomicLong();
+    private final AtomicLong unsampledTraces = new AtomicLong();
+    private final AtomicLong keptErrorTraces = new AtomicLong();
+    
     public TelemetryClient() {
         this.webClient = WebClient.builder().build();
     }
     
+    // See OutboundHttpConfig.outboundWebClient
+    @Autowired
+    public TelemetryClient(WebClient outboundWebClient) {
+        this.webClient = outboundWebClient;
+    }
+    
     // Constructor for testing with custom URL and service name
     public TelemetryClient(String baseUrl, String serviceName) {
         this.webClient = WebClient.builder().build();
@@ -32,150 +114,400 @@ public class TelemetryClient {
     }
     
     public String startTrace(String operation, String httpMethod, String httpUrl, String userId) {
+        if (!shouldSample()) {
+            // No ids and no events, only enough state to keep the trace if it ends in an error
+            unsampledTraces.incrementAndGet();
+            TraceContext.set(TraceContext.unsampled(System.currentTimeMillis()));
+            return null;
+        }
+        sampledTraces.incrementAndGet();
+        
         String traceId = generateTraceId();
         String spanId = generateSpanId();
         
-        Map<String, Object> eventData = createEventData();
-        eventData.put("traceId", traceId);
-        eventData.put("spanId", spanId);
-        eventData.put("serviceName", serviceName);
-        eventData.put("operation", operation);
-        eventData.put("eventType", "SPAN");
-        eventData.put("timestamp", LocalDateTime.now());
-        eventData.put("status", "SUCCESS");
-        eventData.put("httpMethod", httpMethod);
-        eventData.put("httpUrl", httpUrl);
-        eventData.put("userId", userId != null ? userId : "");
-        sendTelemetryEvent(eventData);
+        sendTelemetryEvent(new TelemetryEvent(TelemetryEvent.SPAN, traceId, spanId, null, serviceName, operation,
+            TelemetryEvent.currentEpochNanos(), -1, "SUCCESS", httpMethod, httpUrl, 0,
+            userId != null ? userId : "", null, null));
         
         // Store in thread local for span context
-        TraceContext.setTraceId(traceId);
-        TraceContext.setSpanId(spanId);
-        TraceContext.setStartTime(System.currentTimeMillis());
+        TraceContext.set(TraceContext.started(traceId, spanId, System.currentTimeMillis(),
+            new SpanAnnotations(maxAnnotationsPerSpan)));
         
         return traceId;
     }
     
+    private boolean shouldSample() {
+        return samplingRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < samplingRate;
+    }
+    
     public void finishTrace(String operation, int httpStatusCode, String errorMessage) {
-        String traceId = TraceContext.getTraceId();
-        String spanId = TraceContext.getSpanId();
-        Long startTime = TraceContext.getStartTime();
+        TraceContext context = TraceContext.current();
+        if (context == null) return;
+        
+        // Local metrics see every trace, sampling only applies to what is exported
+        long duration = context.hasStartTime() ? System.currentTimeMillis() - context.startTime() : 0;
+        latencyMetrics().record(null, operation, duration);
+        
+        String traceId = context.traceId();
+        String spanId = context.spanId();
+        
+        if (Boolean.FALSE.equals(context.sampled())) {
+            if (httpStatusCode < 400) {
+                TraceContext.clear();
+                return;
+            }
+            // Errors are always kept, the trace gets its ids only now
+            keptErrorTraces.incrementAndGet();
+            traceId = generateTraceId();
+            spanId = generateSpanId();
+        }
         
         if (traceId == null || spanId == null) return;
         
-        long duration = startTime != null ? System.currentTimeMillis() - startTime : 0;
-        
-        Map<String, Object> eventData = createEventData();
-        eventData.put("traceId", traceId);
-        eventData.put("spanId", spanId);
-        eventData.put("serviceName", serviceName);
-        eventData.put("operation", operation + "_complete");
-        eventData.put("eventType", "SPAN");
-        eventData.put("timestamp", LocalDateTime.now());
-        eventData.put("durationMs", duration);
-        eventData.put("status", httpStatusCode >= 400 ? "ERROR" : "SUCCESS");
-        eventData.put("httpStatusCode", httpStatusCode);
-        eventData.put("errorMessage", errorMessage != null ? errorMessage : "");
-        sendTelemetryEvent(eventData);
+        List<TelemetryEvent.Annotation> annotations = context.annotations() != null ? context.annotations().finish() : null;
+        
+        sendTelemetryEvent(new TelemetryEvent(TelemetryEvent.SPAN, traceId, spanId, null, serviceName, operation + "_complete",
+            TelemetryEvent.currentEpochNanos(), duration, httpStatusCode >= 400 ? "ERROR" : "SUCCESS", null, null,
+            httpStatusCode, null, errorMessage != null ? errorMessage : "", null, annotations));
         
         // Clear trace context
         TraceContext.clear();
     }
     
     public void recordServiceCall(String targetService, String operation, String httpMethod, String url, long duration, int statusCode) {
-        String traceId = TraceContext.getTraceId();
-        String parentSpanId = TraceContext.getSpanId();
+        latencyMetrics().record(targetService, operation, duration);
+        
+        TraceContext context = TraceContext.current();
+        if (context == null || context.traceId() == null) return;
         
-        if (traceId == null) return;
+        String traceId = context.traceId();
+        String parentSpanId = context.spanId();
         
         String spanId = generateSpanId();
         
-        Map<String, Object> eventData = createEventData();
-        eventData.put("traceId", traceId);
-        eventData.put("spanId", spanId);
-        eventData.put("parentSpanId", parentSpanId);
-        eventData.put("serviceName", serviceName);
-        eventData.put("operation", targetService + "_" + operation);
-        eventData.put("eventType", "SPAN");
-        eventData.put("timestamp", LocalDateTime.now());
-        eventData.put("durationMs", duration);
-        eventData.put("status", statusCode >= 400 ? "ERROR" : "SUCCESS");
-        eventData.put("httpMethod", httpMethod);
-        eventData.put("httpUrl", url);
-        eventData.put("httpStatusCode", statusCode);
-        eventData.put("metadata", "Outbound call to " + targetService);
-        sendTelemetryEvent(eventData);
+        sendTelemetryEvent(new TelemetryEvent(TelemetryEvent.SPAN, traceId, spanId, parentSpanId, serviceName,
+            targetService + "_" + operation, TelemetryEvent.currentEpochNanos(), duration,
+            statusCode >= 400 ? "ERROR" : "SUCCESS", httpMethod, url, statusCode, null, null,
+            "Outbound call to " + targetService));
     }
     
     public void logEvent(String message, String level) {
-        String traceId = TraceContext.getTraceId();
-        String spanId = TraceContext.getSpanId();
+        TraceContext context = TraceContext.current();
+        if (context == null || context.traceId() == null) return;
+        
+        // Inside a span opened by startTrace the line travels with the span's completion event
+        if (context.annotations() != null && context.annotations().add(level, message)) return;
         
-        if (traceId == null) return;
+        String traceId = context.traceId();
+        String spanId = context.spanId();
         
-        Map<String, Object> eventData = createEventData();
-        eventData.put("traceId", traceId);
-        eventData.put("spanId", spanId);
-        eventData.put("serviceName", serviceName);
-        eventData.put("operation", "log_" + level.toLowerCase());
-        eventData.put("eventType", "LOG");
-        eventData.put("timestamp", LocalDateTime.now());
-        eventData.put("status", "SUCCESS");
-        eventData.put("metadata", message);
-        sendTelemetryEvent(eventData);
+        sendTelemetryEvent(TelemetryEvent.log(traceId, spanId, serviceName, "log_" + level.toLowerCase(), message));
+    }
+    
+    // Overloads below build the message only when the event is emitted, i.e. inside a sampled trace
+    public void logEvent(Supplier<String> message, String level) {
+        if (TraceContext.getTraceId() == null) return;
+        logEvent(message.get(), level);
+    }
+    
+    // Each "{}" in the template is replaced by the next argument
+    public void logEvent(String template, String level, Object arg) {
+        if (TraceContext.getTraceId() == null) return;
+        logEvent(format(template, arg), level);
+    }
+    
+    public void logEvent(String template, String level, Object arg1, Object arg2) {
+        if (TraceContext.getTraceId() == null) return;
+        logEvent(format(template, arg1, arg2), level);
     }
     
-    private void sendTelemetryEvent(Map<String, Object> eventData) {
+    public void logEvent(String template, String level, Object... args) {
+        if (TraceContext.getTraceId() == null) return;
+        logEvent(format(template, args), level);
+    }
+    
+    static String format(String template, Object... args) {
+        StringBuilder message = new StringBuilder(template.length() + 32);
+        int from = 0;
+        for (Object arg : args) {
+            int placeholder = template.indexOf("{}", from);
+            if (placeholder < 0) break;
+            message.append(template, from, placeholder).append(arg);
+            from = placeholder + 2;
+        }
+        return message.append(template, from, template.length()).toString();
+    }
+    
+    // Only buffers the event, the exporter thread sends it as part of a batch
+    private void sendTelemetryEvent(TelemetryEvent event) {
+        exporter().offer(event);
+    }
+    
+    // Started on first use so the client also works when constructed outside of Spring
+    private TelemetryExporter<TelemetryEvent> exporter() {
+        TelemetryExporter<TelemetryEvent> current = exporter;
+        if (current == null) {
+            synchronized (this) {
+                current = exporter;
+                if (current == null) {
+                    sender = new TelemetrySender(webClient, telemetryServiceUrl + "/api/telemetry/events", maxInFlight, sendTimeoutMs,
+                        openSpool(), wireFormat);
+                    current = new TelemetryExporter<>(sender::send, bufferCapacity, batchSize, flushIntervalMs,
+                        overflowPolicy, blockTimeoutMs);
+                    current.start();
+                    exporter = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private TelemetrySpool openSpool() {
+        if (!spoolEnabled) {
+            return null;
+        }
+        if (spoolDirectory == null || spoolDirectory.isBlank()) {
+            System.err.println("Telemetry spool disabled, telemetry.spool.directory is not set");
+            return null;
+        }
         try {
-            webClient.post()
-                .uri(telemetryServiceUrl + "/api/telemetry/events")
-                .bodyValue(eventData)
-                .retrieve()
-                .bodyToMono(Void.class)
-                .subscribe(
-                    result -> {},
-                    error -> System.err.println("Failed to send telemetry: " + error.getMessage())
-                );
-        } catch (Exception e) {
-            // Silently fail - telemetry should not affect application functionality
+            return new TelemetrySpool(Path.of(spoolDirectory), spoolMaxBytes, spoolSegmentBytes);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Telemetry spool disabled, could not open " + spoolDirectory + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Also starts the exporter, so batches spooled by a previous run are delivered without waiting for new events
+    @Scheduled(fixedDelayString = "${telemetry.spool.replay-interval-ms:5000}")
+    public void replaySpooled() {
+        if (spoolEnabled) {
+            exporter();
+            sender.replaySpooled();
+        }
+    }
+    
+    private LatencyMetrics latencyMetrics() {
+        LatencyMetrics current = latencyMetrics;
+        if (current == null) {
+            synchronized (this) {
+                current = latencyMetrics;
+                if (current == null) {
+                    current = new LatencyMetrics(latencyWindowSeconds * 1000, latencyWindows);
+                    latencyMetrics = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    // Percentiles per operation over the rolling window, e.g. payment-gateway_process_payment
+    public List<LatencySnapshot> getLatencySnapshots() {
+        return latencyMetrics().snapshots();
+    }
+    
+    // Events lost to a full buffer or to a failed send
+    public long getDroppedEventCount() {
+        TelemetryExporter<TelemetryEvent> current = exporter;
+        TelemetrySender currentSender = sender;
+        return (current != null ? current.getDroppedCount() : 0)
+            + (currentSender != null ? currentSender.getFailedCount() : 0);
+    }
+    
+    public TelemetryStats getStats() {
+        TelemetryStats stats = new TelemetryStats();
+        stats.setSamplingRate(samplingRate);
+        stats.setSampledTraces(sampledTraces.get());
+        stats.setUnsampledTraces(unsampledTraces.get());
+        stats.setKeptErrorTraces(keptErrorTraces.get());
+        stats.setDroppedEvents(getDroppedEventCount());
+        stats.setOverflowPolicy(overflowPolicy.name());
+        TelemetryExporter<TelemetryEvent> current = exporter;
+        TelemetrySender currentSender = sender;
+        if (current != null) {
+            stats.setQueueDepth(current.getBufferedCount());
+            stats.setOverflowDroppedEvents(current.getDroppedCount());
+        }
+        if (currentSender != null) {
+            stats.setInFlightRequests(currentSender.getInFlight());
+            stats.setSentEvents(currentSender.getSentCount());
+            stats.setFailedEvents(currentSender.getFailedCount());
+            stats.setSpooledEvents(currentSender.getSpooledCount());
+            stats.setReplayedEvents(currentSender.getReplayedCount());
+            TelemetrySpool spool = currentSender.getSpool();
+            if (spool != null) {
+                stats.setSpoolPendingBatches(spool.getPendingBatches());
+                stats.setSpoolPendingBytes(spool.getPendingBytes());
+            }
         }
+        return stats;
     }
     
-    private Map<String, Object> createEventData() {
-        return new java.util.HashMap<>();
+    @PreDestroy
+    public void shutdown() {
+        TelemetryExporter<TelemetryEvent> current = exporter;
+        if (current != null) {
+            current.shutdown();
+            sender.awaitIdle(sendTimeoutMs);
+            if (sender.getSpool() != null) {
+                sender.getSpool().close();
+            }
+        }
     }
     
     private String generateTraceId() {
-        return "trace_" + UUID.randomUUID().toString().replace("-", "");
+        return IdGenerator.traceId();
     }
     
     private String generateSpanId() {
-        return "span_" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        return IdGenerator.spanId();
     }
     
-    public static class TraceContext {
-        private static final ThreadLocal<String> traceId = new ThreadLocal<>();
-        private static final ThreadLocal<String> spanId = new ThreadLocal<>();
-        private static final ThreadLocal<Long> startTime = new ThreadLocal<>();
+    // Immutable trace state for one request, held in a single ThreadLocal. Carried over executor
+    // hand-offs with wrap(...) and through Reactor pipelines in the subscriber Context.
+    public static final class TraceContext {
+        private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+        private static final long NO_START_TIME = Long.MIN_VALUE;
+        
+        private final String traceId;
+        private final String spanId;
+        private final long startTime;
+        private final Boolean sampled;
+        // Only set for spans opened by startTrace, their log lines are sent with finishTrace
+        private final SpanAnnotations annotations;
+        
+        private TraceContext(String traceId, String spanId, long startTime, Boolean sampled, SpanAnnotations annotations) {
+            this.traceId = traceId;
+            this.spanId = spanId;
+            this.startTime = startTime;
+            this.sampled = sampled;
+            this.annotations = annotations;
+        }
+        
+        public static TraceContext sampled(String traceId, String spanId, long startTime) {
+            return new TraceContext(traceId, spanId, startTime, Boolean.TRUE, null);
+        }
+        
+        static TraceContext started(String traceId, String spanId, long startTime, SpanAnnotations annotations) {
+            return new TraceContext(traceId, spanId, startTime, Boolean.TRUE, annotations);
+        }
+        
+        // No ids until the trace turns out to be worth keeping
+        public static TraceContext unsampled(long startTime) {
+            return new TraceContext(null, null, startTime, Boolean.FALSE, null);
+        }
+        
+        public String traceId() { return traceId; }
+        public String spanId() { return spanId; }
+        public boolean hasStartTime() { return startTime != NO_START_TIME; }
+        public long startTime() { return startTime; }
+        public Boolean sampled() { return sampled; }
+        SpanAnnotations annotations() { return annotations; }
+        
+        public static TraceContext current() { return CURRENT.get(); }
+        
+        public static void set(TraceContext context) {
+            if (context == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(context);
+            }
+        }
         
-        public static void setTraceId(String id) { traceId.set(id); }
-        public static String getTraceId() { return traceId.get(); }
+        public static void setTraceId(String id) {
+            TraceContext c = current();
+            set(c == null ? new TraceContext(id, null, NO_START_TIME, null, null) : new TraceContext(id, c.spanId, c.startTime, c.sampled, c.annotations));
+        }
+        public static String getTraceId() {
+            TraceContext c = current();
+            return c != null ? c.traceId : null;
+        }
         
-        public static void setSpanId(String id) { spanId.set(id); }
-        public static String getSpanId() { return spanId.get(); }
+        public static void setSpanId(String id) {
+            TraceContext c = current();
+            set(c == null ? new TraceContext(null, id, NO_START_TIME, null, null) : new TraceContext(c.traceId, id, c.startTime, c.sampled, c.annotations));
+        }
+        public static String getSpanId() {
+            TraceContext c = current();
+            return c != null ? c.spanId : null;
+        }
         
-        public static void setStartTime(Long time) { startTime.set(time); }
-        public static Long getStartTime() { return startTime.get(); }
+        public static void setStartTime(Long time) {
+            long value = time != null ? time : NO_START_TIME;
+            TraceContext c = current();
+            set(c == null ? new TraceContext(null, null, value, null, null) : new TraceContext(c.traceId, c.spanId, value, c.sampled, c.annotations));
+        }
+        public static Long getStartTime() {
+            TraceContext c = current();
+            return c != null && c.hasStartTime() ? c.startTime : null;
+        }
+        
+        // null when no trace was started on this thread
+        public static void setSampled(Boolean value) {
+            TraceContext c = current();
+            set(c == null ? new TraceContext(null, null, NO_START_TIME, value, null) : new TraceContext(c.traceId, c.spanId, c.startTime, value, c.annotations));
+        }
+        public static Boolean isSampled() {
+            TraceContext c = current();
+            return c != null ? c.sampled : null;
+        }
         
         public static void clear() {
-            traceId.remove();
-            spanId.remove();
-            startTime.remove();
+            CURRENT.remove();
         }
         
         public static void propagate(String trace, String span) {
-            traceId.set(trace);
-            spanId.set(span);
+            set(new TraceContext(trace, span, NO_START_TIME, trace != null ? Boolean.TRUE : null, null));
+        }
+        
+        // Runs the action with the given context and puts back whatever the thread had before,
+        // so pooled and virtual threads never keep a context they did not start with
+        public static void runWith(TraceContext context, Runnable action) {
+            callWith(context, () -> {
+                action.run();
+                return null;
+            });
+        }
+        
+        // Executor hand-off, the caller's context is captured now and installed around the task
+        public static Runnable wrap(Runnable task) {
+            TraceContext captured = current();
+            return () -> runWith(captured, task);
+        }
+        
+        public static <T> Callable<T> wrap(Callable<T> task) {
+            TraceContext captured = current();
+            return () -> callWith(captured, task::call);
+        }
+        
+        // Shared by runWith and wrap(Callable), E lets runWith stay free of checked exceptions
+        private static <T, E extends Exception> T callWith(TraceContext context, ContextualCall<T, E> action) throws E {
+            TraceContext previous = current();
+            set(context);
+            try {
+                return action.call();
+            } finally {
+                set(previous);
+            }
+        }
+        
+        private interface ContextualCall<T, E extends Exception> {
+            T call() throws E;
+        }
+        
+        // Reactor bridge, use as contextWrite(TraceContext::captureInto) where the pipeline is subscribed
+        public static Context captureInto(Context context) {
+            TraceContext c = current();
+            return c != null ? c.putInto(context) : context;
+        }
+        
+        // For pipelines subscribed away from the caller, with a context captured earlier
+        public Context putInto(Context context) {
+            return context.put(TraceContext.class, this);
+        }
+        
+        public static TraceContext from(ContextView context) {
+            return context.getOrDefault(TraceContext.class, null);
         }
     }
-}
\ No newline at end of file
+}
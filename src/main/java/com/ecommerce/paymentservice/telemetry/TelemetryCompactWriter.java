@@ -0,0 +1,234 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// Compact wire format for telemetry batches. Every string in a batch (service names, urls, trace
+// ids, ...) is written once into a dictionary and events refer to it by index, so repeated values
+// cost one or two bytes. The result is gzip compressed. Before compression a batch is:
+//
+//   "TLMB" version:u8
+//   dictionarySize:varint  { byteLength:varint utf8-bytes }*
+//   eventCount:varint      { recordLength:varint record }*
+//
+// A record holds the string fields as dictionary index + 1 (0 for null) in TelemetryEvent field
+// order, with timestampNanos as a zigzag delta to the previous event, durationMs as a zigzag varint
+// and httpStatusCode as a varint, followed by the span annotations: count:varint and per annotation
+// a zigzag timestamp delta (to the event, then to the previous annotation), level and message.
+// The record length lets a receiver skip fields added later.
+// Not thread safe, the sender pools one writer per in-flight request.
+class TelemetryCompactWriter implements TelemetryBatchWriter {
+
+    static final byte[] MAGIC = {'T', 'L', 'M', 'B'};
+    static final int VERSION = 1;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int initialCapacity;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final Bytes records;
+    private final Bytes plain;
+    private byte[] buffer;
+    private int size;
+
+    TelemetryCompactWriter(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.records = new Bytes(initialCapacity);
+        this.plain = new Bytes(initialCapacity);
+        this.buffer = new byte[initialCapacity];
+    }
+
+    @Override
+    public void writeBatch(List<TelemetryEvent> events) {
+        dictionary.clear();
+        strings.clear();
+        records.size = 0;
+        long previousTimestamp = 0;
+        for (TelemetryEvent event : events) {
+            previousTimestamp = writeRecord(event, previousTimestamp);
+        }
+
+        plain.size = 0;
+        plain.writeBytes(MAGIC, 0, MAGIC.length);
+        plain.writeByte(VERSION);
+        plain.writeVarint(strings.size());
+        for (String value : strings) {
+            plain.writeUtf8(value);
+        }
+        plain.writeVarint(events.size());
+        plain.writeBytes(records.data, 0, records.size);
+
+        gzip(plain.data, plain.size);
+    }
+
+    @Override
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void discardBuffer() {
+        buffer = new byte[initialCapacity];
+        size = 0;
+    }
+
+    private long writeRecord(TelemetryEvent event, long previousTimestamp) {
+        // Reserve the most a length varint can take for a record, then close the gap
+        int start = records.size;
+        records.ensureCapacity(5);
+        records.size += 5;
+
+        writeString(event.eventType());
+        writeString(event.traceId());
+        writeString(event.spanId());
+        writeString(event.parentSpanId());
+        writeString(event.serviceName());
+        writeString(event.operation());
+        records.writeVarint(zigzag(event.timestampNanos() - previousTimestamp));
+        records.writeVarint(zigzag(event.durationMs()));
+        writeString(event.status());
+        writeString(event.httpMethod());
+        writeString(event.httpUrl());
+        records.writeVarint(event.httpStatusCode());
+        writeString(event.userId());
+        writeString(event.errorMessage());
+        writeString(event.metadata());
+        List<TelemetryEvent.Annotation> annotations = event.annotations();
+        int annotationCount = annotations != null ? annotations.size() : 0;
+        records.writeVarint(annotationCount);
+        long previousAnnotation = event.timestampNanos();
+        for (int i = 0; i < annotationCount; i++) {
+            TelemetryEvent.Annotation annotation = annotations.get(i);
+            records.writeVarint(zigzag(annotation.timestampNanos() - previousAnnotation));
+            writeString(annotation.level());
+            writeString(annotation.message());
+            previousAnnotation = annotation.timestampNanos();
+        }
+
+        int length = records.size - start - 5;
+        int prefix = Bytes.varintLength(length);
+        System.arraycopy(records.data, start + 5, records.data, start + prefix, length);
+        records.size = start;
+        records.writeVarint(length);
+        records.size = start + prefix + length;
+        return event.timestampNanos();
+    }
+
+    private void writeString(String value) {
+        if (value == null) {
+            records.writeVarint(0);
+            return;
+        }
+        Integer index = dictionary.get(value);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(value, index);
+            strings.add(value);
+        }
+        records.writeVarint(index + 1L);
+    }
+
+    private void gzip(byte[] input, int length) {
+        deflater.reset();
+        deflater.setInput(input, 0, length);
+        deflater.finish();
+        crc.reset();
+        crc.update(input, 0, length);
+
+        size = 0;
+        ensureCapacity(GZIP_HEADER.length + 64);
+        System.arraycopy(GZIP_HEADER, 0, buffer, 0, GZIP_HEADER.length);
+        size = GZIP_HEADER.length;
+        while (!deflater.finished()) {
+            if (size == buffer.length) {
+                ensureCapacity(buffer.length);
+            }
+            size += deflater.deflate(buffer, size, buffer.length - size);
+        }
+        ensureCapacity(8);
+        writeIntLE((int) crc.getValue());
+        writeIntLE(length);
+    }
+
+    private void writeIntLE(int value) {
+        buffer[size++] = (byte) value;
+        buffer[size++] = (byte) (value >>> 8);
+        buffer[size++] = (byte) (value >>> 16);
+        buffer[size++] = (byte) (value >>> 24);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    // Growable byte array with the varint and UTF-8 encoders the format needs
+    private static final class Bytes {
+        private byte[] data;
+        private int size;
+
+        private Bytes(int initialCapacity) {
+            this.data = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            data[size++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, offset, data, size, length);
+            size += length;
+        }
+
+        void writeVarint(long value) {
+            ensureCapacity(10);
+            while ((value & ~0x7FL) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        void writeUtf8(String value) {
+            int length = Utf8.encodedLength(value);
+            writeVarint(length);
+            ensureCapacity(length);
+            size = Utf8.encode(value, 0, value.length(), data, size);
+        }
+
+        void ensureCapacity(int extra) {
+            if (size + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+            }
+        }
+
+        static int varintLength(long value) {
+            int length = 1;
+            while ((value & ~0x7FL) != 0) {
+                value >>>= 7;
+                length++;
+            }
+            return length;
+        }
+    }
+}
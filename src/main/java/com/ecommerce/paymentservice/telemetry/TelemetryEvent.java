@@ -0,0 +1,50 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.util.List;
+
+// One span or log event as sent to the telemetry service. Absent numbers are -1 (durationMs)
+// and 0 (httpStatusCode), absent strings and annotations are null, and neither is written to the wire.
+public record TelemetryEvent(
+    String eventType,
+    String traceId,
+    String spanId,
+    String parentSpanId,
+    String serviceName,
+    String operation,
+    long timestampNanos,
+    long durationMs,
+    String status,
+    String httpMethod,
+    String httpUrl,
+    int httpStatusCode,
+    String userId,
+    String errorMessage,
+    String metadata,
+    List<Annotation> annotations
+) {
+    public static final String SPAN = "SPAN";
+    public static final String LOG = "LOG";
+
+    // A log line recorded while the span was open, sent with the span's completion event
+    public record Annotation(long timestampNanos, String level, String message) {
+    }
+
+    public TelemetryEvent(String eventType, String traceId, String spanId, String parentSpanId, String serviceName,
+                          String operation, long timestampNanos, long durationMs, String status, String httpMethod,
+                          String httpUrl, int httpStatusCode, String userId, String errorMessage, String metadata) {
+        this(eventType, traceId, spanId, parentSpanId, serviceName, operation, timestampNanos, durationMs, status,
+            httpMethod, httpUrl, httpStatusCode, userId, errorMessage, metadata, null);
+    }
+
+    // Wall clock anchored once, afterwards nanoTime keeps it monotonic and allocation free
+    private static final long EPOCH_OFFSET_NANOS = System.currentTimeMillis() * 1_000_000L - System.nanoTime();
+
+    public static long currentEpochNanos() {
+        return EPOCH_OFFSET_NANOS + System.nanoTime();
+    }
+
+    public static TelemetryEvent log(String traceId, String spanId, String serviceName, String operation, String message) {
+        return new TelemetryEvent(LOG, traceId, spanId, null, serviceName, operation, currentEpochNanos(),
+            -1, "SUCCESS", null, null, 0, null, null, message);
+    }
+}
@@ -0,0 +1,148 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+// Drains buffered telemetry events on a dedicated daemon thread and hands them to the sender in
+// batches, either once batchSize events are waiting or when flushInterval has passed.
+class TelemetryExporter<E> {
+
+    private final TelemetryRingBuffer<E> buffer;
+    private final Consumer<List<E>> sender;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final TelemetryOverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong exported = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    TelemetryExporter(Consumer<List<E>> sender, int capacity, int batchSize, long flushIntervalMs) {
+        this(sender, capacity, batchSize, flushIntervalMs, TelemetryOverflowPolicy.DROP_NEWEST, 0);
+    }
+
+    TelemetryExporter(Consumer<List<E>> sender, int capacity, int batchSize, long flushIntervalMs,
+                      TelemetryOverflowPolicy overflowPolicy, long blockTimeoutMs) {
+        this.buffer = new TelemetryRingBuffer<>(capacity);
+        this.sender = sender;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.thread = new Thread(this::run, "telemetry-exporter");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void offer(E event) {
+        long buffered = buffer.offer(event);
+        if (buffered < 0) {
+            buffered = handleOverflow(event);
+        }
+        if (buffered == batchSize) {
+            // Wake the exporter early instead of waiting for the flush interval
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private long handleOverflow(E event) {
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> {
+                long buffered;
+                while ((buffered = buffer.offer(event)) < 0) {
+                    if (buffer.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+                return buffered;
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + blockTimeoutNanos;
+                long buffered;
+                while ((buffered = buffer.offer(event)) < 0) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        dropped.incrementAndGet();
+                        return -1;
+                    }
+                    LockSupport.unpark(thread);
+                    LockSupport.parkNanos(50_000);
+                }
+                return buffered;
+            }
+            default -> {
+                dropped.incrementAndGet();
+                return -1;
+            }
+        }
+    }
+
+    // Stops the exporter thread and sends whatever is still buffered
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    long getExportedCount() {
+        return exported.get();
+    }
+
+    long getBufferedCount() {
+        return buffer.size();
+    }
+
+    TelemetryOverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    private void run() {
+        List<E> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+
+        while (running) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long now = System.nanoTime();
+            if (batch.size() >= batchSize || now - deadline >= 0) {
+                if (!batch.isEmpty()) {
+                    send(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+                deadline = now + flushIntervalNanos;
+                continue;
+            }
+            LockSupport.parkNanos(this, deadline - now);
+        }
+
+        while (buffer.drainTo(batch, batchSize - batch.size()) > 0 || !batch.isEmpty()) {
+            send(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    private void send(List<E> batch) {
+        try {
+            sender.accept(batch);
+            exported.addAndGet(batch.size());
+        } catch (Exception e) {
+            // Telemetry must never take the exporter down, the batch is dropped
+            dropped.addAndGet(batch.size());
+            System.err.println("Failed to export " + batch.size() + " telemetry events: " + e.getMessage());
+        }
+    }
+}
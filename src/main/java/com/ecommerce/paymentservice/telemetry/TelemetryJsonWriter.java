@@ -0,0 +1,200 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+// Streams telemetry events as UTF-8 JSON straight into a growable byte array that is reused from
+// batch to batch. Not thread safe, the exporter thread owns its writer.
+class TelemetryJsonWriter implements TelemetryBatchWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] EVENT_TYPE = name("{\"eventType\":");
+    private static final byte[] TRACE_ID = name(",\"traceId\":");
+    private static final byte[] SPAN_ID = name(",\"spanId\":");
+    private static final byte[] PARENT_SPAN_ID = name(",\"parentSpanId\":");
+    private static final byte[] SERVICE_NAME = name(",\"serviceName\":");
+    private static final byte[] OPERATION = name(",\"operation\":");
+    private static final byte[] TIMESTAMP_NANOS = name(",\"timestampNanos\":");
+    private static final byte[] DURATION_MS = name(",\"durationMs\":");
+    private static final byte[] STATUS = name(",\"status\":");
+    private static final byte[] HTTP_METHOD = name(",\"httpMethod\":");
+    private static final byte[] HTTP_URL = name(",\"httpUrl\":");
+    private static final byte[] HTTP_STATUS_CODE = name(",\"httpStatusCode\":");
+    private static final byte[] USER_ID = name(",\"userId\":");
+    private static final byte[] ERROR_MESSAGE = name(",\"errorMessage\":");
+    private static final byte[] METADATA = name(",\"metadata\":");
+    private static final byte[] ANNOTATIONS = name(",\"annotations\":[");
+    private static final byte[] ANNOTATION_TIMESTAMP_NANOS = name("{\"timestampNanos\":");
+    private static final byte[] ANNOTATION_LEVEL = name(",\"level\":");
+    private static final byte[] ANNOTATION_MESSAGE = name(",\"message\":");
+
+    private final int initialCapacity;
+    private byte[] buffer;
+    private int size;
+
+    TelemetryJsonWriter(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.buffer = new byte[initialCapacity];
+    }
+
+    // Replaces the buffer contents with a JSON array of the events
+    @Override
+    public void writeBatch(List<TelemetryEvent> events) {
+        size = 0;
+        writeByte('[');
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) writeByte(',');
+            write(events.get(i));
+        }
+        writeByte(']');
+    }
+
+    void write(TelemetryEvent event) {
+        writeBytes(EVENT_TYPE);
+        writeString(event.eventType());
+        writeField(TRACE_ID, event.traceId());
+        writeField(SPAN_ID, event.spanId());
+        writeField(PARENT_SPAN_ID, event.parentSpanId());
+        writeField(SERVICE_NAME, event.serviceName());
+        writeField(OPERATION, event.operation());
+        writeBytes(TIMESTAMP_NANOS);
+        writeLong(event.timestampNanos());
+        if (event.durationMs() >= 0) {
+            writeBytes(DURATION_MS);
+            writeLong(event.durationMs());
+        }
+        writeField(STATUS, event.status());
+        writeField(HTTP_METHOD, event.httpMethod());
+        writeField(HTTP_URL, event.httpUrl());
+        if (event.httpStatusCode() > 0) {
+            writeBytes(HTTP_STATUS_CODE);
+            writeLong(event.httpStatusCode());
+        }
+        writeField(USER_ID, event.userId());
+        writeField(ERROR_MESSAGE, event.errorMessage());
+        writeField(METADATA, event.metadata());
+        List<TelemetryEvent.Annotation> annotations = event.annotations();
+        if (annotations != null && !annotations.isEmpty()) {
+            writeBytes(ANNOTATIONS);
+            for (int i = 0; i < annotations.size(); i++) {
+                if (i > 0) writeByte(',');
+                TelemetryEvent.Annotation annotation = annotations.get(i);
+                writeBytes(ANNOTATION_TIMESTAMP_NANOS);
+                writeLong(annotation.timestampNanos());
+                writeField(ANNOTATION_LEVEL, annotation.level());
+                writeField(ANNOTATION_MESSAGE, annotation.message());
+                writeByte('}');
+            }
+            writeByte(']');
+        }
+        writeByte('}');
+    }
+
+    @Override
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void discardBuffer() {
+        buffer = new byte[initialCapacity];
+        size = 0;
+    }
+
+    String toJson() {
+        return new String(buffer, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private void writeField(byte[] name, String value) {
+        if (value != null) {
+            writeBytes(name);
+            writeString(value);
+        }
+    }
+
+    private void writeString(String value) {
+        // Worst case is a six byte escape per char, only grow once up front
+        ensureCapacity(value.length() * 6 + 2);
+        byte[] buf = buffer;
+        int pos = size;
+        buf[pos++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80 && c != '"' && c != '\\') {
+                buf[pos++] = (byte) c;
+            } else if (c == '"' || c == '\\') {
+                buf[pos++] = '\\';
+                buf[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                buf[pos++] = '\\';
+                buf[pos++] = 'u';
+                buf[pos++] = '0';
+                buf[pos++] = '0';
+                buf[pos++] = HEX[c >> 4];
+                buf[pos++] = HEX[c & 0xF];
+            } else {
+                // Everything from 0x80 up needs no escaping, encode the whole run in one go
+                int end = i + 1;
+                while (end < value.length() && value.charAt(end) >= 0x80) {
+                    end++;
+                }
+                pos = Utf8.encode(value, i, end, buf, pos);
+                i = end - 1;
+            }
+        }
+        buf[pos++] = '"';
+        size = pos;
+    }
+
+    private void writeLong(long value) {
+        ensureCapacity(20);
+        if (value == 0) {
+            buffer[size++] = '0';
+            return;
+        }
+        if (value < 0) {
+            buffer[size++] = '-';
+            if (value == Long.MIN_VALUE) {
+                writeBytes("9223372036854775808".getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            value = -value;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) digits++;
+        int pos = size + digits;
+        size = pos;
+        while (value > 0) {
+            buffer[--pos] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+    }
+
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) c;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    private static byte[] name(String json) {
+        return json.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecommerce.paymentservice.telemetry;
+
+// What a request thread does when the telemetry buffer is full
+public enum TelemetryOverflowPolicy {
+    // Keep what is buffered, refuse the new event
+    DROP_NEWEST,
+    // Evict the oldest buffered event to make room
+    DROP_OLDEST,
+    // Wait up to the configured timeout for room, then drop the new event
+    BLOCK
+}
@@ -0,0 +1,95 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded lock-free ring buffer (Vyukov's MPMC queue). Every slot carries a sequence number that
+// tells producers and consumers whose turn it is, so both sides only ever need a CAS. Producers
+// never block, when the buffer is full the event is refused rather than slowing down the request
+// thread. Taking from the producer side is what makes drop-oldest possible.
+class TelemetryRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    TelemetryRingBuffer(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    // Returns the number of buffered events including this one, or -1 when the buffer is full
+    long offer(E event) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots.lazySet(index, event);
+                    sequences.lazySet(index, pos + 1);
+                    return pos + 1 - head.get();
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return -1;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    // Oldest event, or null when empty
+    E poll() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) pos & mask;
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    E event = slots.get(index);
+                    slots.lazySet(index, null);
+                    sequences.lazySet(index, pos + slots.length());
+                    return event;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    // Stops early at a slot that is claimed but not yet written,
+    // the event is picked up by the next drain so ordering is preserved
+    int drainTo(List<E> target, int max) {
+        int drained = 0;
+        while (drained < max) {
+            E event = poll();
+            if (event == null) {
+                break;
+            }
+            target.add(event);
+            drained++;
+        }
+        return drained;
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    long size() {
+        return Math.max(0, tail.get() - head.get());
+    }
+}
@@ -0,0 +1,223 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Posts telemetry batches with at most maxInFlight requests outstanding. Every request needs one of
+// the pooled JSON writers, so the pool doubles as the in-flight limit: when the telemetry service
+// is slow the exporter thread waits for a writer, the ring buffer fills up and the overflow policy
+// decides what gets dropped. Nothing queues up in Netty.
+//
+// With a spool, batches that fail to send are written to disk instead of being lost and
+// replaySpooled() resends them, one at a time and oldest first, once the service answers again.
+// Only server errors, timeouts and I/O errors are worth another try. A batch the service rejects
+// with a 4xx (other than 408 and 429) is counted as failed and never spooled, and a spooled one
+// that gets rejected on replay is dropped so it does not hold up the batches behind it.
+class TelemetrySender {
+
+    static final MediaType COMPACT_CONTENT_TYPE = MediaType.parseMediaType("application/x-telemetry-compact");
+
+    private final WebClient webClient;
+    private final String url;
+    private final Duration sendTimeout;
+    private final int maxInFlight;
+    private final BlockingQueue<TelemetryBatchWriter> writers;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final TelemetrySpool spool;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final AtomicLong spooled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    TelemetrySender(WebClient webClient, String url, int maxInFlight, long sendTimeoutMs) {
+        this(webClient, url, maxInFlight, sendTimeoutMs, null);
+    }
+
+    TelemetrySender(WebClient webClient, String url, int maxInFlight, long sendTimeoutMs, TelemetrySpool spool) {
+        this(webClient, url, maxInFlight, sendTimeoutMs, spool, TelemetryWireFormat.JSON);
+    }
+
+    TelemetrySender(WebClient webClient, String url, int maxInFlight, long sendTimeoutMs, TelemetrySpool spool,
+                    TelemetryWireFormat wireFormat) {
+        this.webClient = webClient;
+        this.url = url;
+        this.sendTimeout = Duration.ofMillis(sendTimeoutMs);
+        this.maxInFlight = maxInFlight;
+        this.spool = spool;
+        this.writers = new ArrayBlockingQueue<>(maxInFlight);
+        for (int i = 0; i < maxInFlight; i++) {
+            writers.add(wireFormat == TelemetryWireFormat.COMPACT
+                ? new TelemetryCompactWriter(16 * 1024)
+                : new TelemetryJsonWriter(16 * 1024));
+        }
+    }
+
+    // Called from the exporter thread, blocks only while all requests are in flight
+    void send(List<TelemetryEvent> events) {
+        TelemetryBatchWriter writer;
+        try {
+            writer = writers.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a telemetry send slot");
+        }
+
+        int count = events.size();
+        try {
+            writer.writeBatch(events);
+            post(writer.buffer(), writer.size())
+                .doFinally(signal -> release(writer, signal))
+                .subscribe(
+                    response -> sent.addAndGet(count),
+                    error -> {
+                        // Runs before doFinally, so the writer buffer still holds the batch
+                        if (spool != null && isRetryable(error) && spool.append(writer.buffer(), 0, writer.size(), count)) {
+                            spooled.addAndGet(count);
+                        } else {
+                            failed.addAndGet(count);
+                        }
+                        System.err.println("Failed to send " + count + " telemetry events: " + error.getMessage());
+                    });
+        } catch (RuntimeException e) {
+            release(writer, SignalType.ON_ERROR);
+            throw e;
+        }
+    }
+
+    // Resends spooled batches in order until the spool is empty or a send fails, the next call
+    // retries from the same batch. Takes a send slot only if one is free.
+    void replaySpooled() {
+        if (spool == null || spool.getPendingBatches() == 0 || !replaying.compareAndSet(false, true)) {
+            return;
+        }
+        TelemetryBatchWriter slot = writers.poll();
+        if (slot == null) {
+            replaying.set(false);
+            return;
+        }
+        replayNext(slot);
+    }
+
+    private void replayNext(TelemetryBatchWriter slot) {
+        TelemetrySpool.Entry entry = spool.peek();
+        if (entry == null) {
+            finishReplay(slot);
+            return;
+        }
+        post(entry.payload(), entry.payload().length)
+            .subscribe(
+                response -> {
+                    spool.acknowledge(entry);
+                    sent.addAndGet(entry.eventCount());
+                    replayed.addAndGet(entry.eventCount());
+                },
+                error -> {
+                    if (isRetryable(error)) {
+                        System.err.println("Failed to replay spooled telemetry: " + error.getMessage());
+                        finishReplay(slot);
+                        return;
+                    }
+                    spool.acknowledge(entry);
+                    failed.addAndGet(entry.eventCount());
+                    System.err.println("Dropped spooled telemetry batch of " + entry.eventCount()
+                        + " events, rejected by the telemetry service: " + error.getMessage());
+                    replayNext(slot);
+                },
+                () -> replayNext(slot));
+    }
+
+    static boolean isRetryable(Throwable error) {
+        if (error instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status < 400 || status >= 500 || status == 408 || status == 429;
+        }
+        return true;
+    }
+
+    private void finishReplay(TelemetryBatchWriter slot) {
+        writers.offer(slot);
+        replaying.set(false);
+    }
+
+    // The content type follows the body rather than the configured format, spooled batches may
+    // have been written by a run with a different setting
+    private Mono<ResponseEntity<Void>> post(byte[] body, int length) {
+        boolean compact = length >= 2 && body[0] == 0x1f && body[1] == (byte) 0x8b;
+        return webClient.post()
+            .uri(url)
+            .contentType(compact ? COMPACT_CONTENT_TYPE : MediaType.APPLICATION_JSON)
+            .headers(headers -> {
+                if (compact) {
+                    headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                }
+            })
+            .bodyValue(DefaultDataBufferFactory.sharedInstance.wrap(ByteBuffer.wrap(body, 0, length)))
+            .retrieve()
+            .toBodilessEntity()
+            .timeout(sendTimeout);
+    }
+
+    private void release(TelemetryBatchWriter writer, SignalType signal) {
+        if (signal != SignalType.ON_COMPLETE) {
+            // A cancelled or failed request may still be reading the buffer
+            writer.discardBuffer();
+        }
+        writers.offer(writer);
+    }
+
+    // Waits for outstanding requests, used on shutdown
+    boolean awaitIdle(long timeoutMs) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (writers.size() < maxInFlight) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int getInFlight() {
+        return maxInFlight - writers.size();
+    }
+
+    long getSentCount() {
+        return sent.get();
+    }
+
+    long getFailedCount() {
+        return failed.get();
+    }
+
+    long getSpooledCount() {
+        return spooled.get();
+    }
+
+    long getReplayedCount() {
+        return replayed.get();
+    }
+
+    TelemetrySpool getSpool() {
+        return spool;
+    }
+}
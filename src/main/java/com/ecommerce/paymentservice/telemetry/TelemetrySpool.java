@@ -0,0 +1,278 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Append-only spool for telemetry batches the service could not deliver. Each batch is stored as the
+// encoded body that was sent, whatever the format (JSON, or gzipped COMPACT), in fixed size
+// memory-mapped segment files, and replayed oldest first.
+//
+// Record layout: [int length][int eventCount][int crc32][payload]. The length is written last, so
+// a record is either complete or ends the segment; a record torn by a crash fails its checksum and
+// is cut off on recovery. Replayed records are marked by negating their length, so a restart only
+// resends what was not acknowledged yet. Writes go to the page cache and survive a JVM crash,
+// segments are forced to disk when they are rotated.
+//
+// The directory belongs to one spool at a time: opening takes an exclusive lock on its lock file
+// and fails while another process, or another spool in this JVM, holds it.
+class TelemetrySpool {
+
+    static final int HEADER_BYTES = 12;
+
+    private static final String PREFIX = "telemetry-";
+    private static final String SUFFIX = ".spool";
+    private static final String LOCK_FILE = "spool.lock";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final FileChannel lockChannel;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private Segment writeSegment;
+    private long nextSequence;
+    private long pendingBytes;
+    private long pendingBatches;
+
+    // A batch read from the spool, acknowledged once it has been delivered
+    record Entry(Segment segment, int offset, int eventCount, byte[] payload) {
+    }
+
+    TelemetrySpool(Path directory, long maxBytes, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentBytes);
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (tryLock(lockChannel) == null) {
+            closeQuietly(lockChannel);
+            throw new IOException("Telemetry spool " + directory + " is in use by another instance");
+        }
+        recover();
+    }
+
+    // Returns false when the batch does not fit under the size cap, the caller drops it
+    synchronized boolean append(byte[] payload, int offset, int length, int eventCount) {
+        int recordBytes = HEADER_BYTES + length;
+        if (recordBytes > segmentBytes) {
+            return false;
+        }
+        try {
+            if (writeSegment == null || writeSegment.writePosition + recordBytes > segmentBytes) {
+                if (!rotate()) {
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to open telemetry spool segment: " + e.getMessage());
+            return false;
+        }
+
+        MappedByteBuffer buffer = writeSegment.buffer;
+        int position = writeSegment.writePosition;
+        buffer.put(position + HEADER_BYTES, payload, offset, length);
+        buffer.putInt(position + 4, eventCount);
+        buffer.putInt(position + 8, checksum(payload, offset, length));
+        buffer.putInt(position, length);
+        writeSegment.writePosition = position + recordBytes;
+        pendingBytes += recordBytes;
+        pendingBatches++;
+        return true;
+    }
+
+    // Oldest batch not yet acknowledged, or null when the spool is empty
+    synchronized Entry peek() {
+        while (!segments.isEmpty()) {
+            Segment segment = segments.peekFirst();
+            while (segment.readPosition < segment.writePosition) {
+                int position = segment.readPosition;
+                int length = segment.buffer.getInt(position);
+                if (length < 0) {
+                    segment.readPosition = position + HEADER_BYTES - length;
+                    continue;
+                }
+                byte[] payload = new byte[length];
+                segment.buffer.get(position + HEADER_BYTES, payload);
+                return new Entry(segment, position, segment.buffer.getInt(position + 4), payload);
+            }
+            if (segment == writeSegment) {
+                return null;
+            }
+            segments.pollFirst();
+            delete(segment);
+        }
+        return null;
+    }
+
+    synchronized void acknowledge(Entry entry) {
+        Segment segment = entry.segment();
+        int length = entry.payload().length;
+        if (segment.buffer.getInt(entry.offset()) != length) {
+            return;
+        }
+        segment.buffer.putInt(entry.offset(), -length);
+        segment.readPosition = Math.max(segment.readPosition, entry.offset() + HEADER_BYTES + length);
+        pendingBytes -= HEADER_BYTES + length;
+        pendingBatches--;
+        if (segment != writeSegment && segment.readPosition >= segment.writePosition && segments.remove(segment)) {
+            delete(segment);
+        }
+    }
+
+    synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    synchronized long getPendingBatches() {
+        return pendingBatches;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    synchronized void close() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            closeQuietly(segment.channel);
+        }
+        // Closing the channel releases the lock
+        closeQuietly(lockChannel);
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private boolean rotate() throws IOException {
+        if (writeSegment != null) {
+            writeSegment.buffer.force();
+        }
+        if (segments.size() >= maxSegments) {
+            return false;
+        }
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextSequence++, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Segment segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        segments.addLast(segment);
+        writeSegment = segment;
+        return true;
+    }
+
+    // Reopens segments left by a previous run. They are only read from, new batches always start a
+    // fresh segment, so a torn tail never has to be written around.
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().startsWith(PREFIX)
+                    && path.getFileName().toString().endsWith(SUFFIX))
+                .sorted()
+                .forEach(files::add);
+        }
+
+        for (Path path : files) {
+            String name = path.getFileName().toString();
+            try {
+                nextSequence = Math.max(nextSequence,
+                    Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())) + 1);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                closeQuietly(channel);
+                Files.deleteIfExists(path);
+                continue;
+            }
+            Segment segment = new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            scan(segment, (int) size);
+            if (segment.readPosition >= segment.writePosition) {
+                delete(segment);
+            } else {
+                segments.addLast(segment);
+            }
+        }
+    }
+
+    private void scan(Segment segment, int size) {
+        int position = 0;
+        int firstPending = -1;
+        while (position + HEADER_BYTES <= size) {
+            int length = segment.buffer.getInt(position);
+            int payloadBytes = Math.abs(length);
+            if (length == 0 || payloadBytes > size - position - HEADER_BYTES) {
+                break;
+            }
+            if (length > 0) {
+                byte[] payload = new byte[length];
+                segment.buffer.get(position + HEADER_BYTES, payload);
+                if (checksum(payload, 0, length) != segment.buffer.getInt(position + 8)) {
+                    break;
+                }
+                if (firstPending < 0) {
+                    firstPending = position;
+                }
+                pendingBytes += HEADER_BYTES + length;
+                pendingBatches++;
+            }
+            position += HEADER_BYTES + payloadBytes;
+        }
+        segment.writePosition = position;
+        segment.readPosition = firstPending < 0 ? position : firstPending;
+    }
+
+    private void delete(Segment segment) {
+        closeQuietly(segment.channel);
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            System.err.println("Failed to delete telemetry spool segment " + segment.path + ": " + e.getMessage());
+        }
+    }
+
+    private static int checksum(byte[] payload, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with a segment that failed to close
+        }
+    }
+
+    static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.ecommerce.paymentservice.telemetry;
+
+// How telemetry batches are encoded on the wire, set with telemetry.exporter.wire-format
+public enum TelemetryWireFormat {
+    // A JSON array of events
+    JSON,
+    // Gzip compressed, length-prefixed binary records with a per-batch string dictionary
+    COMPACT
+}
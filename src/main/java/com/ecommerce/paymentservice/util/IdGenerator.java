@@ -0,0 +1,46 @@
+package com.ecommerce.paymentservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Trace, span and transaction ids written straight to hex from ThreadLocalRandom. Unlike
+// UUID.randomUUID() there is no shared SecureRandom to contend on, and each id costs one byte
+// array and one String. Not suitable for anything that must be unguessable.
+public final class IdGenerator {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private IdGenerator() {
+    }
+
+    // "trace_" + 128 random bits
+    public static String traceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return hex("trace_", random.nextLong(), random.nextLong(), 32);
+    }
+
+    // "span_" + 64 random bits
+    public static String spanId() {
+        return hex("span_", 0, ThreadLocalRandom.current().nextLong(), 16);
+    }
+
+    // "TXN_" + 48 random bits, the same shape the gateway has always returned
+    public static String transactionId() {
+        return hex("TXN_", 0, ThreadLocalRandom.current().nextLong(), 12);
+    }
+
+    // Zero padded, lower case, the low word supplies the last 16 digits
+    static String hex(String prefix, long high, long low, int digits) {
+        int prefixLength = prefix.length();
+        byte[] id = new byte[prefixLength + digits];
+        for (int i = 0; i < prefixLength; i++) {
+            id[i] = (byte) prefix.charAt(i);
+        }
+        int pos = id.length;
+        for (int i = 0; i < digits; i++) {
+            long word = i < 16 ? low : high;
+            id[--pos] = HEX[(int) (word >>> ((i & 15) << 2)) & 0xF];
+        }
+        return new String(id, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -1,9 +1,11 @@
 package com.ecommerce.paymentservice;
 
+import com.ecommerce.paymentservice.dto.BatchPaymentRequest;
 import com.ecommerce.paymentservice.dto.PaymentRequest;
 import com.ecommerce.paymentservice.model.Payment;
 import com.ecommerce.paymentservice.repository.PaymentRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,10 +14,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -81,6 +87,36 @@ class PaymentServiceIntegrationTest {
         assertNotNull(savedPayment.getPaymentDate());
     }
 
+    @Test
+    void processPaymentBatch_ShouldPersistEveryPaymentAndReturnResultsInOrder() throws Exception {
+        // Given
+        PaymentRequest secondRequest = new PaymentRequest();
+        secondRequest.setOrderId(101L);
+        secondRequest.setUserId(2L);
+        secondRequest.setAmount(new BigDecimal("49.99"));
+        secondRequest.setPaymentMethod(Payment.PaymentMethod.PAYPAL);
+
+        BatchPaymentRequest batchRequest = new BatchPaymentRequest();
+        batchRequest.setPayments(Arrays.asList(testPaymentRequest, secondRequest));
+
+        // When
+        mockMvc.perform(post("/api/payments/process-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].paymentId").exists())
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].paymentId").exists());
+
+        // Then - both payments were persisted with a final status
+        List<Payment> payments = paymentRepository.findAll();
+        assertEquals(2, payments.size());
+        assertTrue(payments.stream().allMatch(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED
+            || p.getStatus() == Payment.PaymentStatus.FAILED));
+    }
+
     @Test
     void getPaymentById_ShouldReturnPayment_WhenPaymentExists() throws Exception {
         // Given
@@ -169,6 +205,38 @@ class PaymentServiceIntegrationTest {
                 .andExpect(jsonPath("$.length()").value(2));
     }
 
+    @Test
+    void getPaymentsByUserId_ShouldWalkAllPagesNewestFirst() throws Exception {
+        // Given
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        for (int i = 0; i < 5; i++) {
+            Payment payment = createTestPayment(100L + i, 1L, new BigDecimal("10.00"));
+            payment.setPaymentDate(now.minusMinutes(i));
+            paymentRepository.save(payment);
+        }
+        paymentRepository.save(createTestPayment(200L, 2L, new BigDecimal("10.00")));
+
+        // When - follow the cursor until there is no next page
+        List<Integer> orderIds = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MvcResult result = mockMvc.perform(cursor == null
+                    ? get("/api/payments/user/1").param("size", "2")
+                    : get("/api/payments/user/1").param("size", "2").param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andReturn();
+            List<Integer> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].orderId");
+            orderIds.addAll(page);
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+            pages++;
+        } while (cursor != null);
+
+        // Then
+        assertEquals(3, pages);
+        assertEquals(Arrays.asList(100, 101, 102, 103, 104), orderIds);
+    }
+
     @Test
     void refundPayment_ShouldUpdatePaymentStatus() throws Exception {
         // Given
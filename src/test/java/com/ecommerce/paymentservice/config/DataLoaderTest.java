@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,6 +16,7 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,6 +28,9 @@ class DataLoaderTest {
     @InjectMocks
     private DataLoader dataLoader;
 
+    @Captor
+    private ArgumentCaptor<List<Payment>> paymentsCaptor;
+
     @BeforeEach
     void setUp() {
         // Reset mocks before each test
@@ -42,7 +47,9 @@ class DataLoaderTest {
 
         // Then
         verify(paymentRepository).count();
-        verify(paymentRepository, times(8)).save(any(Payment.class));
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        assertEquals(8, paymentsCaptor.getValue().size());
+        verify(paymentRepository, never()).save(any(Payment.class));
     }
 
     @Test
@@ -55,27 +62,27 @@ class DataLoaderTest {
 
         // Then
         verify(paymentRepository).count();
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).saveAll(anyList());
     }
 
     @Test
     void run_ShouldCreatePaymentsWithCorrectData() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
 
         // When
         dataLoader.run();
 
         // Then
-        verify(paymentRepository, times(8)).save(paymentCaptor.capture());
-        List<Payment> savedPayments = paymentCaptor.getAllValues();
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        List<Payment> savedPayments = paymentsCaptor.getValue();
 
         assertEquals(8, savedPayments.size());
+        // IDs are left to the sequence so the inserts can be batched
+        assertTrue(savedPayments.stream().allMatch(p -> p.getId() == null));
 
         // Verify first payment (John Doe's gaming setup)
         Payment firstPayment = savedPayments.get(0);
-        assertEquals(1L, firstPayment.getId());
         assertEquals(1L, firstPayment.getUserId());
         assertEquals(1L, firstPayment.getOrderId());
         assertEquals(new BigDecimal("1479.97"), firstPayment.getAmount());
@@ -86,7 +93,6 @@ class DataLoaderTest {
 
         // Verify second payment (Jane Smith's book collection)
         Payment secondPayment = savedPayments.get(1);
-        assertEquals(2L, secondPayment.getId());
         assertEquals(2L, secondPayment.getUserId());
         assertEquals(2L, secondPayment.getOrderId());
         assertEquals(new BigDecimal("159.97"), secondPayment.getAmount());
@@ -97,7 +103,6 @@ class DataLoaderTest {
 
         // Verify a pending payment (Charlie Brown's wardrobe)
         Payment pendingPayment = savedPayments.get(4);
-        assertEquals(5L, pendingPayment.getId());
         assertEquals(5L, pendingPayment.getUserId());
         assertEquals(5L, pendingPayment.getOrderId());
         assertEquals(new BigDecimal("219.94"), pendingPayment.getAmount());
@@ -106,7 +111,6 @@ class DataLoaderTest {
 
         // Verify a refunded payment (Diana Clark's tech upgrade)
         Payment refundedPayment = savedPayments.get(5);
-        assertEquals(6L, refundedPayment.getId());
         assertEquals(6L, refundedPayment.getUserId());
         assertEquals(6L, refundedPayment.getOrderId());
         assertEquals(new BigDecimal("289.98"), refundedPayment.getAmount());
@@ -115,7 +119,6 @@ class DataLoaderTest {
 
         // Verify a failed payment
         Payment failedPayment = savedPayments.get(7);
-        assertEquals(8L, failedPayment.getId());
         assertEquals(2L, failedPayment.getUserId());
         assertEquals(8L, failedPayment.getOrderId()); // Historical payment
         assertEquals(new BigDecimal("25.50"), failedPayment.getAmount());
@@ -127,14 +130,13 @@ class DataLoaderTest {
     void run_ShouldCreatePaymentsWithAllPaymentMethods() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
 
         // When
         dataLoader.run();
 
         // Then
-        verify(paymentRepository, times(8)).save(paymentCaptor.capture());
-        List<Payment> savedPayments = paymentCaptor.getAllValues();
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        List<Payment> savedPayments = paymentsCaptor.getValue();
 
         // Verify all payment methods are represented
         assertTrue(savedPayments.stream().anyMatch(p -> p.getPaymentMethod() == Payment.PaymentMethod.CREDIT_CARD));
@@ -147,14 +149,13 @@ class DataLoaderTest {
     void run_ShouldCreatePaymentsWithAllStatuses() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
 
         // When
         dataLoader.run();
 
         // Then
-        verify(paymentRepository, times(8)).save(paymentCaptor.capture());
-        List<Payment> savedPayments = paymentCaptor.getAllValues();
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        List<Payment> savedPayments = paymentsCaptor.getValue();
 
         // Verify all payment statuses are represented
         assertTrue(savedPayments.stream().anyMatch(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED));
@@ -168,14 +169,13 @@ class DataLoaderTest {
     void run_ShouldCreatePaymentsWithValidAmounts() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
 
         // When
         dataLoader.run();
 
         // Then
-        verify(paymentRepository, times(8)).save(paymentCaptor.capture());
-        List<Payment> savedPayments = paymentCaptor.getAllValues();
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        List<Payment> savedPayments = paymentsCaptor.getValue();
 
         // Verify all payments have positive amounts
         for (Payment payment : savedPayments) {
@@ -188,14 +188,13 @@ class DataLoaderTest {
     void run_ShouldCreatePaymentsWithValidDates() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
 
         // When
         dataLoader.run();
 
         // Then
-        verify(paymentRepository, times(8)).save(paymentCaptor.capture());
-        List<Payment> savedPayments = paymentCaptor.getAllValues();
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        List<Payment> savedPayments = paymentsCaptor.getValue();
 
         // Verify all payments have payment dates
         for (Payment payment : savedPayments) {
@@ -207,7 +206,7 @@ class DataLoaderTest {
     void run_ShouldHandleRepositoryException() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        when(paymentRepository.save(any(Payment.class)))
+        when(paymentRepository.saveAll(anyList()))
             .thenThrow(new RuntimeException("Database error"));
 
         // When & Then
@@ -218,14 +217,13 @@ class DataLoaderTest {
     void run_ShouldCreatePaymentsWithTransactionIds() throws Exception {
         // Given
         when(paymentRepository.count()).thenReturn(0L);
-        ArgumentCaptor<Payment> paymentCaptor = ArgumentCaptor.forClass(Payment.class);
 
         // When
         dataLoader.run();
 
         // Then
-        verify(paymentRepository, times(8)).save(paymentCaptor.capture());
-        List<Payment> savedPayments = paymentCaptor.getAllValues();
+        verify(paymentRepository).saveAll(paymentsCaptor.capture());
+        List<Payment> savedPayments = paymentsCaptor.getValue();
 
         // Verify completed payments have transaction IDs
         for (Payment payment : savedPayments) {
@@ -0,0 +1,88 @@
+package com.ecommerce.paymentservice.config;
+
+import com.ecommerce.paymentservice.dto.ConnectionPoolStats;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundHttpConfigTest {
+
+    private MockWebServer mockWebServer;
+    private ConnectionPoolMetricsRegistry registry;
+    private ConnectionProvider connectionProvider;
+    private WebClient webClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+
+        OutboundHttpConfig config = new OutboundHttpConfig();
+        registry = config.connectionPoolMetricsRegistry();
+        connectionProvider = config.outboundConnectionProvider(registry);
+        HttpClient httpClient = config.outboundHttpClient(connectionProvider);
+        webClient = config.outboundWebClient(httpClient);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        connectionProvider.dispose();
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void outboundWebClient_ShouldReuseTheSameConnection_ForSequentialCalls() throws InterruptedException {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        String url = mockWebServer.url("/api/notifications/payment-confirmation").toString();
+
+        // When
+        post(url);
+        post(url);
+
+        // Then - the second request is the second one on the first connection
+        assertEquals(0, mockWebServer.takeRequest(1, TimeUnit.SECONDS).getSequenceNumber());
+        assertEquals(1, mockWebServer.takeRequest(1, TimeUnit.SECONDS).getSequenceNumber());
+    }
+
+    @Test
+    void connectionPoolMetricsRegistry_ShouldReportPoolPerRemoteAddress() {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+
+        // When
+        post(mockWebServer.url("/api/telemetry/events").toString());
+
+        // Then
+        List<ConnectionPoolStats> pools = registry.snapshots();
+        assertEquals(1, pools.size());
+        ConnectionPoolStats stats = pools.get(0);
+        assertEquals("outbound", stats.getPool());
+        assertTrue(stats.getRemoteAddress().endsWith(":" + mockWebServer.getPort()), stats.getRemoteAddress());
+        assertEquals(1, stats.getAllocated());
+        assertEquals(200, stats.getMaxConnections());
+        assertEquals(0, stats.getPendingAcquire());
+    }
+
+    private void post(String url) {
+        webClient.post()
+            .uri(url)
+            .bodyValue("{}")
+            .retrieve()
+            .bodyToMono(Void.class)
+            .block(Duration.ofSeconds(5));
+    }
+}
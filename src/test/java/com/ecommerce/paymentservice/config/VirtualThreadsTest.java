@@ -0,0 +1,75 @@
+package com.ecommerce.paymentservice.config;
+
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTest {
+
+    @Test
+    void threadFactory_ShouldCreatePlatformThreads_WhenVirtualNotRequested() {
+        // When
+        Thread thread = VirtualThreads.threadFactory("test-worker-", false).newThread(() -> {});
+
+        // Then
+        assertFalse(VirtualThreads.isVirtual(thread));
+        assertTrue(thread.isDaemon());
+        assertEquals("test-worker-1", thread.getName());
+    }
+
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void threadFactory_ShouldFallBackToPlatformThreads_BeforeJava21() {
+        // When
+        Thread thread = VirtualThreads.threadFactory("test-worker-", true).newThread(() -> {});
+
+        // Then
+        assertFalse(VirtualThreads.isVirtual(thread));
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void threadFactory_ShouldCreateVirtualThreads_OnJava21() {
+        // When
+        ThreadFactory factory = VirtualThreads.threadFactory("test-worker-", true);
+        Thread first = factory.newThread(() -> {});
+        Thread second = factory.newThread(() -> {});
+
+        // Then
+        assertTrue(VirtualThreads.isSupported());
+        assertTrue(VirtualThreads.isVirtual(first));
+        assertEquals("test-worker-1", first.getName());
+        assertEquals("test-worker-2", second.getName());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void traceContext_ShouldStayIsolatedPerVirtualThread() throws InterruptedException {
+        // Given
+        TelemetryClient.TraceContext.propagate("caller-trace", "caller-span");
+        AtomicReference<String> inheritedTraceId = new AtomicReference<>("unset");
+        AtomicReference<String> ownTraceId = new AtomicReference<>();
+
+        // When
+        Thread thread = VirtualThreads.threadFactory("test-worker-", true).newThread(() -> {
+            inheritedTraceId.set(TelemetryClient.TraceContext.getTraceId());
+            TelemetryClient.TraceContext.propagate("worker-trace", "worker-span");
+            ownTraceId.set(TelemetryClient.TraceContext.getTraceId());
+        });
+        thread.start();
+        thread.join();
+
+        // Then
+        assertNull(inheritedTraceId.get());
+        assertEquals("worker-trace", ownTraceId.get());
+        assertEquals("caller-trace", TelemetryClient.TraceContext.getTraceId());
+
+        TelemetryClient.TraceContext.clear();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecommerce.paymentservice.controller;
+
+import com.ecommerce.paymentservice.config.ConnectionPoolMetricsRegistry;
+import com.ecommerce.paymentservice.dto.ConnectionPoolStats;
+import com.ecommerce.paymentservice.dto.LatencySnapshot;
+import com.ecommerce.paymentservice.dto.NotificationStats;
+import com.ecommerce.paymentservice.service.NotificationServiceClient;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(MetricsController.class)
+@ActiveProfiles("test")
+class MetricsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TelemetryClient telemetryClient;
+
+    @MockBean
+    private NotificationServiceClient notificationServiceClient;
+
+    @MockBean
+    private ConnectionPoolMetricsRegistry connectionPoolMetricsRegistry;
+
+    @Test
+    void getLatency_ShouldReturnPercentilesPerOperation() throws Exception {
+        // Given
+        when(telemetryClient.getLatencySnapshots()).thenReturn(List.of(
+            snapshot("notification-service_send_payment_confirmation", 12),
+            snapshot("payment-gateway_process_payment", 480)));
+
+        // When & Then
+        mockMvc.perform(get("/api/metrics/latency"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].operation").value("payment-gateway_process_payment"))
+                .andExpect(jsonPath("$[1].p99Ms").value(480))
+                .andExpect(jsonPath("$[1].count").value(10));
+    }
+
+    @Test
+    void getLatency_ShouldFilterByOperationPrefix() throws Exception {
+        // Given
+        when(telemetryClient.getLatencySnapshots()).thenReturn(List.of(
+            snapshot("notification-service_send_payment_confirmation", 12),
+            snapshot("payment-gateway_process_payment", 480)));
+
+        // When & Then
+        mockMvc.perform(get("/api/metrics/latency").param("operation", "payment-gateway"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].operation").value("payment-gateway_process_payment"));
+    }
+
+    @Test
+    void getConnectionPoolStats_ShouldReturnPoolPerRemoteAddress() throws Exception {
+        // Given
+        ConnectionPoolStats stats = new ConnectionPoolStats();
+        stats.setPool("outbound");
+        stats.setRemoteAddress("localhost:8085");
+        stats.setAcquired(3);
+        stats.setIdle(5);
+        stats.setAllocated(8);
+        stats.setMaxConnections(200);
+        when(connectionPoolMetricsRegistry.snapshots()).thenReturn(List.of(stats));
+
+        // When & Then
+        mockMvc.perform(get("/api/metrics/connections"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].remoteAddress").value("localhost:8085"))
+                .andExpect(jsonPath("$[0].acquired").value(3))
+                .andExpect(jsonPath("$[0].idle").value(5))
+                .andExpect(jsonPath("$[0].maxConnections").value(200));
+    }
+
+    @Test
+    void getNotificationStats_ShouldReturnDispatchCounters() throws Exception {
+        // Given
+        NotificationStats stats = new NotificationStats();
+        stats.setSent(40);
+        stats.setFailed(3);
+        stats.setBatches(5);
+        when(notificationServiceClient.getStats()).thenReturn(stats);
+
+        // When & Then
+        mockMvc.perform(get("/api/metrics/notifications"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.sent").value(40))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.batches").value(5));
+    }
+
+    private LatencySnapshot snapshot(String operation, long p99Ms) {
+        LatencySnapshot snapshot = new LatencySnapshot();
+        snapshot.setOperation(operation);
+        snapshot.setCount(10);
+        snapshot.setP99Ms(p99Ms);
+        return snapshot;
+    }
+}
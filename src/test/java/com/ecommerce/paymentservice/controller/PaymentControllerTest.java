@@ -1,7 +1,15 @@
 package com.ecommerce.paymentservice.controller;
 
+import com.ecommerce.paymentservice.dto.BatchPaymentRequest;
+import com.ecommerce.paymentservice.dto.BatchPaymentResult;
+import com.ecommerce.paymentservice.dto.PaymentCacheStats;
+import com.ecommerce.paymentservice.dto.PaymentPage;
 import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.dto.PaymentStatusResponse;
+import com.ecommerce.paymentservice.dto.PaymentTransition;
 import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.service.IdempotencyConflictException;
+import com.ecommerce.paymentservice.service.PaymentRejectedException;
 import com.ecommerce.paymentservice.service.PaymentService;
 import com.ecommerce.paymentservice.telemetry.TelemetryClient;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,11 +20,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -40,6 +53,9 @@ public class PaymentControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PaymentController paymentController;
+
     private Payment testPayment;
     private PaymentRequest testPaymentRequest;
 
@@ -70,7 +86,7 @@ public class PaymentControllerTest {
     @Test
     void processPayment_ShouldReturnPayment_WhenValidRequest() throws Exception {
         // Given
-        when(paymentService.processPayment(any(PaymentRequest.class))).thenReturn(testPayment);
+        when(paymentService.processPayment(any(PaymentRequest.class), any())).thenReturn(testPayment);
 
         // When & Then
         mockMvc.perform(post("/api/payments/process")
@@ -85,13 +101,13 @@ public class PaymentControllerTest {
                 .andExpect(jsonPath("$.paymentMethod").value("CREDIT_CARD"))
                 .andExpect(jsonPath("$.transactionId").value("TXN_123456789"));
 
-        verify(paymentService).processPayment(any(PaymentRequest.class));
+        verify(paymentService).processPayment(any(PaymentRequest.class), any());
     }
 
     @Test
     void processPayment_ShouldReturnBadRequest_WhenPaymentFails() throws Exception {
         // Given
-        when(paymentService.processPayment(any(PaymentRequest.class)))
+        when(paymentService.processPayment(any(PaymentRequest.class), any()))
                 .thenThrow(new RuntimeException("Payment processing failed"));
 
         // When & Then
@@ -100,7 +116,210 @@ public class PaymentControllerTest {
                 .content(objectMapper.writeValueAsString(testPaymentRequest)))
                 .andExpect(status().isBadRequest());
 
-        verify(paymentService).processPayment(any(PaymentRequest.class));
+        verify(paymentService).processPayment(any(PaymentRequest.class), any());
+    }
+
+    @Test
+    void processPayment_ShouldPassIdempotencyKeyToService() throws Exception {
+        // Given
+        when(paymentService.processPayment(any(PaymentRequest.class), eq("order-100-attempt"))).thenReturn(testPayment);
+
+        // When & Then
+        mockMvc.perform(post("/api/payments/process")
+                .header("Idempotency-Key", "order-100-attempt")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testPaymentRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1L));
+
+        verify(paymentService).processPayment(any(PaymentRequest.class), eq("order-100-attempt"));
+    }
+
+    @Test
+    void processPayment_ShouldReturnConflict_WhenSameKeyIsStillInProgress() throws Exception {
+        // Given
+        when(paymentService.processPayment(any(PaymentRequest.class), eq("order-100-attempt")))
+                .thenThrow(new IdempotencyConflictException());
+
+        // When & Then
+        mockMvc.perform(post("/api/payments/process")
+                .header("Idempotency-Key", "order-100-attempt")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(testPaymentRequest)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void processPayment_ShouldReturnAccepted_WhenAsyncProcessingEnabled() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(paymentController, "asyncProcessingEnabled", true);
+        Payment pendingPayment = new Payment();
+        pendingPayment.setId(1L);
+        pendingPayment.setOrderId(100L);
+        when(paymentService.acceptPayment(any(PaymentRequest.class), any())).thenReturn(PaymentStatusResponse.from(pendingPayment));
+
+        try {
+            // When & Then
+            mockMvc.perform(post("/api/payments/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testPaymentRequest)))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Location", "/api/payments/1"))
+                    .andExpect(jsonPath("$.paymentId").value(1L))
+                    .andExpect(jsonPath("$.status").value("PENDING"));
+
+            verify(paymentService).acceptPayment(any(PaymentRequest.class), any());
+            verify(paymentService, never()).processPayment(any(PaymentRequest.class), any());
+        } finally {
+            ReflectionTestUtils.setField(paymentController, "asyncProcessingEnabled", false);
+        }
+    }
+
+    @Test
+    void processPayment_ShouldReturnServiceUnavailable_WhenAsyncQueueIsFull() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(paymentController, "asyncProcessingEnabled", true);
+        when(paymentService.acceptPayment(any(PaymentRequest.class), any()))
+                .thenThrow(new PaymentRejectedException("Payment processing queue is full"));
+
+        try {
+            // When & Then
+            mockMvc.perform(post("/api/payments/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testPaymentRequest)))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().exists("Retry-After"));
+        } finally {
+            ReflectionTestUtils.setField(paymentController, "asyncProcessingEnabled", false);
+        }
+    }
+
+    @Test
+    void processPayment_ShouldReturnBadRequest_WhenAsyncAcceptFailsWithoutMessage() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(paymentController, "asyncProcessingEnabled", true);
+        when(paymentService.acceptPayment(any(PaymentRequest.class), any())).thenThrow(new RuntimeException());
+
+        try {
+            // When & Then
+            mockMvc.perform(post("/api/payments/process")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(testPaymentRequest)))
+                    .andExpect(status().isBadRequest());
+        } finally {
+            ReflectionTestUtils.setField(paymentController, "asyncProcessingEnabled", false);
+        }
+    }
+
+    @Test
+    void getPaymentStatus_ShouldReturnStatus_WhenPaymentExists() throws Exception {
+        // Given
+        when(paymentService.getPaymentStatus(1L)).thenReturn(PaymentStatusResponse.from(testPayment));
+
+        // When & Then
+        mockMvc.perform(get("/api/payments/1/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.paymentId").value(1L))
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.transactionId").value("TXN_123456789"));
+    }
+
+    @Test
+    void getPaymentStatus_ShouldReturnNotFound_WhenPaymentDoesNotExist() throws Exception {
+        // Given
+        when(paymentService.getPaymentStatus(999L)).thenThrow(new RuntimeException("Payment not found"));
+
+        // When & Then
+        mockMvc.perform(get("/api/payments/999/status"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getCacheStats_ShouldReturnStatistics() throws Exception {
+        // Given
+        PaymentCacheStats stats = new PaymentCacheStats();
+        stats.setSize(3);
+        stats.setHitCount(8);
+        stats.setMissCount(2);
+        stats.setHitRate(0.8);
+        when(paymentService.getCacheStats()).thenReturn(stats);
+
+        // When & Then
+        mockMvc.perform(get("/api/payments/cache/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(3))
+                .andExpect(jsonPath("$.hitCount").value(8))
+                .andExpect(jsonPath("$.missCount").value(2))
+                .andExpect(jsonPath("$.hitRate").value(0.8));
+    }
+
+    @Test
+    void getPaymentTransitions_ShouldReturnTransitions() throws Exception {
+        // Given
+        when(paymentService.getPaymentTransitions(1L)).thenReturn(Arrays.asList(
+            new PaymentTransition(1L, Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING),
+            new PaymentTransition(1L, Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.COMPLETED)));
+
+        // When & Then
+        mockMvc.perform(get("/api/payments/1/transitions"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].fromStatus").value("PENDING"))
+                .andExpect(jsonPath("$[0].toStatus").value("PROCESSING"))
+                .andExpect(jsonPath("$[1].toStatus").value("COMPLETED"));
+    }
+
+    @Test
+    void getPaymentTransitions_ShouldReturnNotFound_WhenPaymentDoesNotExist() throws Exception {
+        // Given
+        when(paymentService.getPaymentTransitions(999L)).thenThrow(new RuntimeException("Payment not found"));
+
+        // When & Then
+        mockMvc.perform(get("/api/payments/999/transitions"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void processPaymentBatch_ShouldReturnResultsInRequestOrder() throws Exception {
+        // Given
+        Payment failedPayment = new Payment();
+        failedPayment.setId(2L);
+        BatchPaymentRequest batchRequest = new BatchPaymentRequest();
+        batchRequest.setPayments(Arrays.asList(testPaymentRequest, testPaymentRequest));
+        when(paymentService.processPayments(anyList())).thenReturn(Arrays.asList(
+            BatchPaymentResult.success(0, testPayment),
+            BatchPaymentResult.failure(1, failedPayment, "Payment declined by bank")));
+
+        // When & Then
+        mockMvc.perform(post("/api/payments/process-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].status").value("COMPLETED"))
+                .andExpect(jsonPath("$[0].transactionId").value("TXN_123456789"))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].paymentId").value(2L))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].failureReason").value("Payment declined by bank"));
+
+        verify(paymentService).processPayments(anyList());
+    }
+
+    @Test
+    void processPaymentBatch_ShouldReturnBadRequest_WhenBatchIsEmpty() throws Exception {
+        // Given
+        BatchPaymentRequest batchRequest = new BatchPaymentRequest();
+        batchRequest.setPayments(Collections.emptyList());
+
+        // When & Then
+        mockMvc.perform(post("/api/payments/process-batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isBadRequest());
+
+        verify(paymentService, never()).processPayments(anyList());
     }
 
     @Test
@@ -137,7 +356,7 @@ public class PaymentControllerTest {
     void getPaymentsByOrderId_ShouldReturnPayments_WhenPaymentsExist() throws Exception {
         // Given
         List<Payment> payments = Arrays.asList(testPayment);
-        when(paymentService.getPaymentsByOrderId(100L)).thenReturn(payments);
+        when(paymentService.getPaymentsByOrderId(100L, null, null)).thenReturn(new PaymentPage(payments, null));
 
         // When & Then
         mockMvc.perform(get("/api/payments/order/100"))
@@ -147,14 +366,14 @@ public class PaymentControllerTest {
                 .andExpect(jsonPath("$[0].id").value(1L))
                 .andExpect(jsonPath("$[0].orderId").value(100L));
 
-        verify(paymentService).getPaymentsByOrderId(100L);
+        verify(paymentService).getPaymentsByOrderId(100L, null, null);
     }
 
     @Test
     void getPaymentsByUserId_ShouldReturnPayments_WhenPaymentsExist() throws Exception {
         // Given
         List<Payment> payments = Arrays.asList(testPayment);
-        when(paymentService.getPaymentsByUserId(1L)).thenReturn(payments);
+        when(paymentService.getPaymentsByUserId(1L, null, null)).thenReturn(new PaymentPage(payments, null));
 
         // When & Then
         mockMvc.perform(get("/api/payments/user/1"))
@@ -164,7 +383,7 @@ public class PaymentControllerTest {
                 .andExpect(jsonPath("$[0].id").value(1L))
                 .andExpect(jsonPath("$[0].userId").value(1L));
 
-        verify(paymentService).getPaymentsByUserId(1L);
+        verify(paymentService).getPaymentsByUserId(1L, null, null);
     }
 
     @Test
@@ -201,15 +420,74 @@ public class PaymentControllerTest {
     void getAllPayments_ShouldReturnAllPayments() throws Exception {
         // Given
         List<Payment> payments = Arrays.asList(testPayment);
-        when(paymentService.getAllPayments()).thenReturn(payments);
+        when(paymentService.getAllPayments(null, null)).thenReturn(new PaymentPage(payments, null));
 
         // When & Then
         mockMvc.perform(get("/api/payments"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$.length()").value(1))
-                .andExpect(jsonPath("$[0].id").value(1L));
+                .andExpect(jsonPath("$[0].id").value(1L))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+
+        verify(paymentService).getAllPayments(null, null);
+    }
+
+    @Test
+    void getAllPayments_ShouldReturnNextCursorHeaders_WhenMorePagesExist() throws Exception {
+        // Given
+        List<Payment> payments = Arrays.asList(testPayment);
+        when(paymentService.getAllPayments("abc", 1)).thenReturn(new PaymentPage(payments, "def"));
+
+        // When & Then
+        mockMvc.perform(get("/api/payments").param("cursor", "abc").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(header().string("X-Next-Cursor", "def"))
+                .andExpect(header().string("Link", "<http://localhost/api/payments?size=1&cursor=def>; rel=\"next\""));
+    }
+
+    @Test
+    void getAllPayments_ShouldReturnBadRequest_WhenCursorIsInvalid() throws Exception {
+        // Given
+        when(paymentService.getAllPayments("bogus", null)).thenThrow(new IllegalArgumentException("Invalid cursor"));
+
+        // When & Then
+        mockMvc.perform(get("/api/payments").param("cursor", "bogus"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportPayments_ShouldStreamNdjson() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(paymentService).exportPayments(eq(Payment.PaymentStatus.COMPLETED), eq(LocalDateTime.of(2024, 1, 1, 0, 0)), isNull(), any(OutputStream.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/payments/export")
+                        .param("status", "COMPLETED")
+                        .param("from", "2024-01-01T00:00:00"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void exportPayments_ShouldReturnBadRequest_WhenRangeIsEmpty() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/payments/export")
+                        .param("from", "2024-02-01T00:00:00")
+                        .param("to", "2024-01-01T00:00:00"))
+                .andExpect(status().isBadRequest());
 
-        verify(paymentService).getAllPayments();
+        verify(paymentService, never()).exportPayments(any(), any(), any(), any());
     }
-}
\ No newline at end of file
+}
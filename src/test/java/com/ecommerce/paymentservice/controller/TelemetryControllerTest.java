@@ -0,0 +1,44 @@
+package com.ecommerce.paymentservice.controller;
+
+import com.ecommerce.paymentservice.dto.TelemetryStats;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(TelemetryController.class)
+@ActiveProfiles("test")
+class TelemetryControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private TelemetryClient telemetryClient;
+
+    @Test
+    void getStats_ShouldReturnSamplingCounters() throws Exception {
+        // Given
+        TelemetryStats stats = new TelemetryStats();
+        stats.setSamplingRate(0.1);
+        stats.setSampledTraces(10);
+        stats.setUnsampledTraces(90);
+        stats.setKeptErrorTraces(2);
+        when(telemetryClient.getStats()).thenReturn(stats);
+
+        // When & Then
+        mockMvc.perform(get("/api/telemetry/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.samplingRate").value(0.1))
+                .andExpect(jsonPath("$.sampledTraces").value(10))
+                .andExpect(jsonPath("$.unsampledTraces").value(90))
+                .andExpect(jsonPath("$.keptErrorTraces").value(2));
+    }
+}
@@ -0,0 +1,94 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.IdempotencyRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class IdempotencyRecordRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Test
+    void saveAndFlush_ShouldRejectSecondClaimOnSameKey() {
+        // Given
+        idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord("key-1", "hash-a"));
+        entityManager.clear();
+
+        // When & Then - a second claim must fail instead of overwriting the first
+        assertThrows(DataIntegrityViolationException.class,
+            () -> idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord("key-1", "hash-b")));
+    }
+
+    @Test
+    void finish_ShouldStoreOutcome() {
+        // Given
+        idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord("key-1", "hash-a"));
+
+        // When
+        int updated = idempotencyRecordRepository.finish("key-1", IdempotencyRecord.Status.COMPLETED, 42L, null);
+
+        // Then
+        assertEquals(1, updated);
+        IdempotencyRecord stored = idempotencyRecordRepository.findById("key-1").orElseThrow();
+        assertEquals(IdempotencyRecord.Status.COMPLETED, stored.getStatus());
+        assertEquals(42L, stored.getPaymentId());
+        assertEquals("hash-a", stored.getRequestHash());
+    }
+
+    @Test
+    void takeOver_ShouldOnlyMoveStaleInProgressClaims() {
+        // Given
+        IdempotencyRecord stale = new IdempotencyRecord("stale-key", "hash-a");
+        stale.setClaimedAt(LocalDateTime.now().minusMinutes(5));
+        idempotencyRecordRepository.save(stale);
+        idempotencyRecordRepository.save(new IdempotencyRecord("live-key", "hash-b"));
+        IdempotencyRecord finished = new IdempotencyRecord("done-key", "hash-c");
+        finished.setClaimedAt(LocalDateTime.now().minusMinutes(5));
+        finished.setStatus(IdempotencyRecord.Status.COMPLETED);
+        idempotencyRecordRepository.saveAndFlush(finished);
+        LocalDateTime now = LocalDateTime.now();
+
+        // When
+        int staleTaken = idempotencyRecordRepository.takeOver("stale-key", now.minusMinutes(1), now);
+        int liveTaken = idempotencyRecordRepository.takeOver("live-key", now.minusMinutes(1), now);
+        int finishedTaken = idempotencyRecordRepository.takeOver("done-key", now.minusMinutes(1), now);
+
+        // Then - the new owner's claim is live again, so a second take-over fails
+        assertEquals(1, staleTaken);
+        assertEquals(0, liveTaken);
+        assertEquals(0, finishedTaken);
+        assertEquals(0, idempotencyRecordRepository.takeOver("stale-key", now.minusMinutes(1), now));
+    }
+
+    @Test
+    void deleteCreatedBefore_ShouldOnlyRemoveExpiredRecords() {
+        // Given
+        IdempotencyRecord expired = new IdempotencyRecord("old-key", "hash-a");
+        expired.setCreatedAt(LocalDateTime.now().minusDays(2));
+        idempotencyRecordRepository.save(expired);
+        idempotencyRecordRepository.saveAndFlush(new IdempotencyRecord("new-key", "hash-b"));
+
+        // When
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(1));
+
+        // Then
+        assertEquals(1, deleted);
+        entityManager.clear();
+        assertFalse(idempotencyRecordRepository.existsById("old-key"));
+        assertTrue(idempotencyRecordRepository.existsById("new-key"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class OutboxNotificationRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OutboxNotificationRepository outboxNotificationRepository;
+
+    @Test
+    void findDueIds_ShouldOnlyReturnPendingRowsThatAreDue() {
+        // Given
+        OutboxNotification due = outboxNotificationRepository.save(notification(1L));
+        OutboxNotification later = notification(2L);
+        later.setNextAttemptAt(LocalDateTime.now().plusMinutes(5));
+        outboxNotificationRepository.save(later);
+        OutboxNotification sent = notification(3L);
+        sent.setStatus(OutboxNotification.Status.SENT);
+        outboxNotificationRepository.saveAndFlush(sent);
+
+        // When
+        List<Long> ids = outboxNotificationRepository.findDueIds(LocalDateTime.now(), PageRequest.of(0, 10));
+
+        // Then
+        assertEquals(List.of(due.getId()), ids);
+    }
+
+    @Test
+    void claim_ShouldSucceedOnce_AndHideRowUntilLeaseEnds() {
+        // Given
+        Long id = outboxNotificationRepository.saveAndFlush(notification(1L)).getId();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plusSeconds(30);
+
+        // When
+        int first = outboxNotificationRepository.claim(id, now, leaseUntil);
+        int second = outboxNotificationRepository.claim(id, now, leaseUntil);
+
+        // Then
+        assertEquals(1, first);
+        assertEquals(0, second);
+        assertTrue(outboxNotificationRepository.findDueIds(now, PageRequest.of(0, 10)).isEmpty());
+        assertEquals(List.of(id), outboxNotificationRepository.findDueIds(leaseUntil, PageRequest.of(0, 10)));
+        entityManager.clear();
+        assertEquals(1, outboxNotificationRepository.findById(id).orElseThrow().getAttempts());
+    }
+
+    @Test
+    void deleteSentBefore_ShouldOnlyRemoveOldSentRows() {
+        // Given
+        LocalDateTime now = LocalDateTime.now();
+        Long oldSent = outboxNotificationRepository.saveAndFlush(notification(1L)).getId();
+        Long recentSent = outboxNotificationRepository.saveAndFlush(notification(2L)).getId();
+        Long failed = outboxNotificationRepository.saveAndFlush(notification(3L)).getId();
+        outboxNotificationRepository.markSent(oldSent, now.minusDays(2));
+        outboxNotificationRepository.markSent(recentSent, now);
+        outboxNotificationRepository.markFailed(failed, "Connection refused");
+
+        // When
+        int deleted = outboxNotificationRepository.deleteSentBefore(now.minusDays(1));
+
+        // Then
+        assertEquals(1, deleted);
+        entityManager.clear();
+        assertFalse(outboxNotificationRepository.existsById(oldSent));
+        assertTrue(outboxNotificationRepository.existsById(recentSent));
+        assertEquals(OutboxNotification.Status.FAILED, outboxNotificationRepository.findById(failed).orElseThrow().getStatus());
+    }
+
+    private OutboxNotification notification(Long paymentId) {
+        Payment payment = new Payment(100L + paymentId, 1L, new BigDecimal("10.00"), Payment.PaymentMethod.CREDIT_CARD);
+        payment.setId(paymentId);
+        return new OutboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION, payment, null, null);
+    }
+}
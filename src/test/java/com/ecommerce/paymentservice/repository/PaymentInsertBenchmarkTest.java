@@ -0,0 +1,120 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.Payment;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run with ./gradlew benchmark. Compares the old IDENTITY insert path (one statement and
+// one generated-key round trip per row) with pooled sequence IDs and JDBC-batched saveAll.
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentInsertBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int CHUNK_SIZE = 500;
+    private static final int WARMUP_ROWS = 2_000;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void compareIdentityInsertsWithBatchedSequenceInserts() throws SQLException {
+        createIdentityTable();
+        try {
+            insertWithIdentity(WARMUP_ROWS);
+            insertWithSaveAll(WARMUP_ROWS);
+            paymentRepository.deleteAllInBatch();
+
+            long identityNanos = insertWithIdentity(ROWS);
+            long batchedNanos = insertWithSaveAll(ROWS);
+
+            System.out.printf("IDENTITY, row-by-row:        %,10.0f inserts/s%n", ROWS / (identityNanos / 1e9));
+            System.out.printf("pooled-lo sequence, batched: %,10.0f inserts/s%n", ROWS / (batchedNanos / 1e9));
+            assertEquals(ROWS, paymentRepository.count());
+        } finally {
+            paymentRepository.deleteAllInBatch();
+            dropIdentityTable();
+        }
+    }
+
+    private long insertWithIdentity(int rows) throws SQLException {
+        String sql = "insert into payments_identity (order_id, user_id, amount, status, payment_method, payment_date) values (?, ?, ?, ?, ?, ?)";
+        long start = System.nanoTime();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                for (int i = 0; i < rows; i++) {
+                    statement.setLong(1, i);
+                    statement.setLong(2, i % 100);
+                    statement.setBigDecimal(3, new BigDecimal("19.99"));
+                    statement.setString(4, Payment.PaymentStatus.PROCESSING.name());
+                    statement.setString(5, Payment.PaymentMethod.CREDIT_CARD.name());
+                    statement.setTimestamp(6, Timestamp.valueOf(LocalDateTime.now()));
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        keys.next();
+                    }
+                    if ((i + 1) % CHUNK_SIZE == 0) {
+                        connection.commit();
+                    }
+                }
+            }
+            connection.commit();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long insertWithSaveAll(int rows) {
+        long start = System.nanoTime();
+        for (int offset = 0; offset < rows; offset += CHUNK_SIZE) {
+            List<Payment> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (int i = offset; i < Math.min(rows, offset + CHUNK_SIZE); i++) {
+                Payment payment = new Payment((long) i, (long) (i % 100), new BigDecimal("19.99"), Payment.PaymentMethod.CREDIT_CARD);
+                payment.setStatus(Payment.PaymentStatus.PROCESSING);
+                chunk.add(payment);
+            }
+            paymentRepository.saveAll(chunk);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void createIdentityTable() throws SQLException {
+        execute("create table payments_identity (id bigint generated by default as identity primary key, "
+            + "order_id bigint, user_id bigint, amount numeric(38,2), status varchar(255), "
+            + "payment_method varchar(255), payment_date timestamp(6))");
+    }
+
+    private void dropIdentityTable() throws SQLException {
+        execute("drop table if exists payments_identity");
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+}
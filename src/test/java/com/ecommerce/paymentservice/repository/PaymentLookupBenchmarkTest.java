@@ -0,0 +1,95 @@
+package com.ecommerce.paymentservice.repository;
+
+import com.ecommerce.paymentservice.model.Payment;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run with ./gradlew benchmark. Seeds a large payments table and reports lookup latency per query path.
+@Tag("benchmark")
+@DataJpaTest(properties = "spring.jpa.show-sql=false")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PaymentLookupBenchmarkTest {
+
+    private static final int ROWS = 500_000;
+    private static final int USERS = 50_000;
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int ITERATIONS = 2_000;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @BeforeAll
+    void seed() {
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        Payment.PaymentStatus[] statuses = Payment.PaymentStatus.values();
+        for (int offset = 0; offset < ROWS; offset += CHUNK_SIZE) {
+            List<Payment> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (int i = offset; i < offset + CHUNK_SIZE; i++) {
+                Payment payment = new Payment((long) i, (long) (i % USERS), new BigDecimal("19.99"), Payment.PaymentMethod.CREDIT_CARD);
+                payment.setStatus(statuses[i % statuses.length]);
+                payment.setPaymentDate(now.minusMinutes(i));
+                chunk.add(payment);
+            }
+            paymentRepository.saveAll(chunk);
+        }
+        System.out.printf("Seeded %,d payments in %,d ms%n", ROWS, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @AfterAll
+    void cleanUp() {
+        paymentRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void measureLookupLatency() {
+        measure("findByOrderId", orderId -> paymentRepository.findByOrderId(orderId), ROWS);
+        measure("findByUserId", userId -> paymentRepository.findByUserId(userId), USERS);
+        // Status lookups return a fifth of the table, so they run fewer times
+        Payment.PaymentStatus[] statuses = Payment.PaymentStatus.values();
+        measure("findByStatus", i -> paymentRepository.findByStatus(statuses[(int) i]), statuses.length, 20);
+    }
+
+    private void measure(String name, LongFunction<List<Payment>> lookup, int keySpace) {
+        measure(name, lookup, keySpace, ITERATIONS);
+    }
+
+    private void measure(String name, LongFunction<List<Payment>> lookup, int keySpace, int iterations) {
+        for (int i = 0; i < iterations / 10; i++) {
+            lookup.apply(ThreadLocalRandom.current().nextInt(keySpace));
+        }
+
+        long[] nanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long key = ThreadLocalRandom.current().nextInt(keySpace);
+            long start = System.nanoTime();
+            List<Payment> result = lookup.apply(key);
+            nanos[i] = System.nanoTime() - start;
+            assertFalse(result.isEmpty());
+        }
+
+        Arrays.sort(nanos);
+        System.out.printf("%-14s p50 %8.3f ms   p99 %8.3f ms   max %8.3f ms%n", name,
+            nanos[iterations / 2] / 1e6, nanos[iterations * 99 / 100] / 1e6, nanos[iterations - 1] / 1e6);
+    }
+}
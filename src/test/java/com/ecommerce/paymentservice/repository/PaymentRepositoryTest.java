@@ -10,8 +10,10 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -73,6 +75,19 @@ class PaymentRepositoryTest {
         assertEquals(testPayment1.getPaymentMethod(), savedPayment.getPaymentMethod());
     }
 
+    @Test
+    void saveAll_ShouldAssignIdsFromPooledSequence() {
+        // When
+        List<Payment> savedPayments = paymentRepository.saveAll(List.of(testPayment1, testPayment2, testPayment3));
+        entityManager.flush();
+
+        // Then - one sequence call covers the whole batch, so IDs are consecutive
+        Long firstId = savedPayments.get(0).getId();
+        assertNotNull(firstId);
+        assertEquals(firstId + 1, savedPayments.get(1).getId());
+        assertEquals(firstId + 2, savedPayments.get(2).getId());
+    }
+
     @Test
     void findById_ShouldReturnPayment_WhenPaymentExists() {
         // Given
@@ -179,6 +194,112 @@ class PaymentRepositoryTest {
         assertTrue(refundedPayments.isEmpty());
     }
 
+    @Test
+    void transitionStatus_ShouldUpdatePayment_WhenInExpectedStatus() {
+        // Given
+        testPayment2.setStatus(Payment.PaymentStatus.PROCESSING);
+        Payment savedPayment = entityManager.persistAndFlush(testPayment2);
+
+        // When
+        int updated = paymentRepository.transitionStatus(savedPayment.getId(),
+            EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING),
+            Payment.PaymentStatus.COMPLETED, "TXN_ABCDEF123456", "Payment processed successfully");
+
+        // Then
+        assertEquals(1, updated);
+        Payment found = paymentRepository.findById(savedPayment.getId()).orElseThrow();
+        assertEquals(Payment.PaymentStatus.COMPLETED, found.getStatus());
+        assertEquals("TXN_ABCDEF123456", found.getTransactionId());
+        assertEquals("Payment processed successfully", found.getPaymentGatewayResponse());
+    }
+
+    @Test
+    void transitionStatus_ShouldNotUpdatePayment_WhenInUnexpectedStatus() {
+        // Given
+        Payment savedPayment = entityManager.persistAndFlush(testPayment3); // FAILED
+
+        // When
+        int updated = paymentRepository.transitionStatus(savedPayment.getId(),
+            EnumSet.of(Payment.PaymentStatus.COMPLETED),
+            Payment.PaymentStatus.REFUNDED, null, null);
+
+        // Then
+        assertEquals(0, updated);
+        Payment found = paymentRepository.findById(savedPayment.getId()).orElseThrow();
+        assertEquals(Payment.PaymentStatus.FAILED, found.getStatus());
+    }
+
+    @Test
+    void transitionStatuses_ShouldUpdateOnlyPaymentsInExpectedStatus() {
+        // Given
+        testPayment2.setStatus(Payment.PaymentStatus.PROCESSING);
+        Payment processing = entityManager.persistAndFlush(testPayment2);
+        Payment failed = entityManager.persistAndFlush(testPayment3);
+        entityManager.clear();
+        processing.setStatus(Payment.PaymentStatus.COMPLETED);
+        processing.setTransactionId("TXN_ABCDEF123456");
+        processing.setPaymentGatewayResponse("Payment processed successfully");
+        failed.setStatus(Payment.PaymentStatus.COMPLETED);
+        failed.setTransactionId("TXN_FEDCBA654321");
+
+        // When
+        int[] updated = paymentRepository.transitionStatuses(List.of(processing, failed),
+            EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING));
+
+        // Then
+        assertArrayEquals(new int[] {1, 0}, updated);
+        Payment foundProcessing = paymentRepository.findById(processing.getId()).orElseThrow();
+        assertEquals(Payment.PaymentStatus.COMPLETED, foundProcessing.getStatus());
+        assertEquals("TXN_ABCDEF123456", foundProcessing.getTransactionId());
+        assertEquals("Payment processed successfully", foundProcessing.getPaymentGatewayResponse());
+        Payment foundFailed = paymentRepository.findById(failed.getId()).orElseThrow();
+        assertEquals(Payment.PaymentStatus.FAILED, foundFailed.getStatus());
+        assertNull(foundFailed.getTransactionId());
+    }
+
+    @Test
+    void lookupQueries_ShouldUseSecondaryIndexes() {
+        // Given - enough distinct users and orders that an index beats a scan
+        for (long i = 0; i < 200; i++) {
+            Payment payment = new Payment(1000L + i, 1000L + i % 50, new BigDecimal("10.00"), Payment.PaymentMethod.CREDIT_CARD);
+            payment.setStatus(i % 2 == 0 ? Payment.PaymentStatus.COMPLETED : Payment.PaymentStatus.FAILED);
+            entityManager.persist(payment);
+        }
+        entityManager.flush();
+
+        // When & Then
+        assertUsesIndex("select * from payments where order_id = 1005", "IDX_PAYMENTS_ORDER_ID");
+        assertUsesIndex("select * from payments where user_id = 1005", "IDX_PAYMENTS_USER");
+        assertUsesIndex("select * from payments where status = 'COMPLETED' and payment_date > timestamp '2024-01-01 00:00:00'",
+            "IDX_PAYMENTS_STATUS_DATE");
+        assertUsesIndex("select * from payments where user_id = 1005 and payment_date > timestamp '2024-01-01 00:00:00'",
+            "IDX_PAYMENTS_USER_DATE");
+    }
+
+    @Test
+    void streamForExport_ShouldApplyStatusAndDateFilters() {
+        // Given
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        testPayment1.setPaymentDate(start.plusDays(1));  // COMPLETED, in range
+        testPayment2.setPaymentDate(start.plusDays(2));  // PENDING, in range
+        testPayment3.setPaymentDate(start.minusDays(1)); // FAILED, before range
+        entityManager.persist(testPayment1);
+        entityManager.persist(testPayment2);
+        entityManager.persist(testPayment3);
+        entityManager.flush();
+
+        // When & Then
+        try (Stream<Payment> all = paymentRepository.streamForExport(null, null, null)) {
+            assertEquals(3, all.count());
+        }
+        try (Stream<Payment> inRange = paymentRepository.streamForExport(null, start, start.plusDays(10))) {
+            assertEquals(List.of(100L, 200L), inRange.map(Payment::getOrderId).toList());
+        }
+        try (Stream<Payment> completed = paymentRepository.streamForExport(Payment.PaymentStatus.COMPLETED, start, null)) {
+            assertEquals(List.of(testPayment1.getId()), completed.map(Payment::getId).toList());
+        }
+    }
+
     @Test
     void findAll_ShouldReturnAllPayments() {
         // Given
@@ -243,4 +364,13 @@ class PaymentRepositoryTest {
         assertEquals(Payment.PaymentStatus.PENDING, payment.getStatus());
         assertNotNull(payment.getPaymentDate());
     }
-}
\ No newline at end of file
+
+    private void assertUsesIndex(String sql, String indexName) {
+        String plan = entityManager.getEntityManager()
+            .createNativeQuery("explain " + sql)
+            .getSingleResult()
+            .toString();
+        assertTrue(plan.contains(indexName), "Expected " + indexName + " in plan: " + plan);
+        assertFalse(plan.contains("tableScan"), "Unexpected table scan: " + plan);
+    }
+}
@@ -0,0 +1,260 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.model.IdempotencyRecord;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private PaymentRequest testPaymentRequest;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService.start();
+
+        testPaymentRequest = new PaymentRequest();
+        testPaymentRequest.setOrderId(100L);
+        testPaymentRequest.setUserId(1L);
+        testPaymentRequest.setAmount(new BigDecimal("99.99"));
+        testPaymentRequest.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+        testPaymentRequest.setCardNumber("4111111111111111");
+        testPaymentRequest.setCardHolderName("John Doe");
+        testPaymentRequest.setExpiryDate("12/25");
+    }
+
+    @Test
+    void execute_ShouldCollapseConcurrentDuplicatesOntoOneExecution() throws Exception {
+        // Given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // When
+            Future<Long> first = executor.submit(() -> idempotencyService.execute("key-1", testPaymentRequest, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                await(release);
+                return 42L;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Long> duplicate = executor.submit(() -> idempotencyService.execute("key-1", testPaymentRequest, () -> {
+                executions.incrementAndGet();
+                return 43L;
+            }));
+            release.countDown();
+
+            // Then
+            assertEquals(42L, first.get(5, TimeUnit.SECONDS));
+            assertEquals(42L, duplicate.get(5, TimeUnit.SECONDS));
+            assertEquals(1, executions.get());
+            verify(idempotencyRecordRepository, times(1)).saveAndFlush(any(IdempotencyRecord.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void execute_ShouldReturnStoredResult_WhenRetriedAfterCompletion() {
+        // Given
+        idempotencyService.execute("key-1", testPaymentRequest, () -> 42L);
+
+        // When
+        Long replayed = idempotencyService.execute("key-1", testPaymentRequest, () -> fail("should not run again"));
+
+        // Then
+        assertEquals(42L, replayed);
+        verify(idempotencyRecordRepository).finish("key-1", IdempotencyRecord.Status.COMPLETED, 42L, null);
+        verify(idempotencyRecordRepository, times(1)).findById("key-1");
+    }
+
+    @Test
+    void execute_ShouldRejectKeyReuse_WhenRequestDiffers() {
+        // Given
+        idempotencyService.execute("key-1", testPaymentRequest, () -> 42L);
+        testPaymentRequest.setAmount(new BigDecimal("10.00"));
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> idempotencyService.execute("key-1", testPaymentRequest, () -> 43L));
+        assertTrue(exception.getMessage().contains("different request"));
+    }
+
+    @Test
+    void execute_ShouldReplayPersistedResult_AfterRestart() {
+        // Given - nothing in memory, the record survived in the database
+        IdempotencyRecord record = new IdempotencyRecord("key-1", IdempotencyService.fingerprint(testPaymentRequest));
+        record.setStatus(IdempotencyRecord.Status.COMPLETED);
+        record.setPaymentId(42L);
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(record));
+
+        // When
+        Long replayed = idempotencyService.execute("key-1", testPaymentRequest, () -> fail("should not run again"));
+
+        // Then
+        assertEquals(42L, replayed);
+        verify(idempotencyRecordRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void execute_ShouldReplayPersistedDecline() {
+        // Given
+        IdempotencyRecord record = new IdempotencyRecord("key-1", IdempotencyService.fingerprint(testPaymentRequest));
+        record.setStatus(IdempotencyRecord.Status.FAILED);
+        record.setPaymentId(42L);
+        record.setFailureMessage("Payment processing failed: Payment declined");
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(record));
+
+        // When & Then
+        PaymentFailedException exception = assertThrows(PaymentFailedException.class,
+            () -> idempotencyService.execute("key-1", testPaymentRequest, () -> 43L));
+        assertEquals("Payment processing failed: Payment declined", exception.getMessage());
+        assertEquals(42L, exception.getPaymentId());
+    }
+
+    @Test
+    void execute_ShouldKeepKey_WhenPaymentWasStoredBeforeFailing() {
+        // Given - whatever the message, the payment row exists and may have been charged
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        assertThrows(PaymentFailedException.class, () -> idempotencyService.execute("key-1", testPaymentRequest, () -> {
+            executions.incrementAndGet();
+            throw new PaymentFailedException(42L, "Payment 42 cannot move to COMPLETED from its current state");
+        }));
+        PaymentFailedException retried = assertThrows(PaymentFailedException.class,
+            () -> idempotencyService.execute("key-1", testPaymentRequest, () -> {
+                executions.incrementAndGet();
+                return 43L;
+            }));
+
+        // Then
+        assertEquals(1, executions.get());
+        assertEquals(42L, retried.getPaymentId());
+        verify(idempotencyRecordRepository, never()).deleteById(anyString());
+        verify(idempotencyRecordRepository).finish("key-1", IdempotencyRecord.Status.FAILED, 42L,
+            "Payment 42 cannot move to COMPLETED from its current state");
+    }
+
+    @Test
+    void execute_ShouldReportInProgress_WhenAnotherInstanceHoldsTheKey() {
+        // Given
+        when(idempotencyRecordRepository.saveAndFlush(any(IdempotencyRecord.class)))
+            .thenThrow(new DataIntegrityViolationException("duplicate key"));
+
+        // When & Then
+        assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyService.execute("key-1", testPaymentRequest, () -> 42L));
+    }
+
+    @Test
+    void execute_ShouldReportInProgress_WhileStoredClaimIsLive() {
+        // Given
+        IdempotencyRecord claim = new IdempotencyRecord("key-1", IdempotencyService.fingerprint(testPaymentRequest));
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(claim));
+        when(idempotencyRecordRepository.takeOver(eq("key-1"), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(0);
+
+        // When & Then
+        assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyService.execute("key-1", testPaymentRequest, () -> fail("should not run")));
+    }
+
+    @Test
+    void execute_ShouldTakeOverClaim_WhenItsOwnerDiedBeforeFinishing() {
+        // Given - the claim was left behind by a process that died mid-payment
+        IdempotencyRecord claim = new IdempotencyRecord("key-1", IdempotencyService.fingerprint(testPaymentRequest));
+        claim.setClaimedAt(LocalDateTime.now().minusMinutes(5));
+        when(idempotencyRecordRepository.findById("key-1")).thenReturn(Optional.of(claim));
+        when(idempotencyRecordRepository.takeOver(eq("key-1"), any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
+
+        // When
+        Long paymentId = idempotencyService.execute("key-1", testPaymentRequest, () -> 42L);
+
+        // Then - the lease is 60s by default
+        assertEquals(42L, paymentId);
+        verify(idempotencyRecordRepository).takeOver(eq("key-1"),
+            argThat(staleBefore -> staleBefore.isBefore(LocalDateTime.now().minusSeconds(59))), any(LocalDateTime.class));
+        verify(idempotencyRecordRepository, never()).saveAndFlush(any());
+        verify(idempotencyRecordRepository).finish("key-1", IdempotencyRecord.Status.COMPLETED, 42L, null);
+    }
+
+    @Test
+    void execute_ShouldReleaseKey_WhenFailureIsRetryable() {
+        // Given
+        AtomicInteger executions = new AtomicInteger();
+
+        // When
+        assertThrows(RuntimeException.class, () -> idempotencyService.execute("key-1", testPaymentRequest, () -> {
+            executions.incrementAndGet();
+            throw new RuntimeException("Payment processing queue is full");
+        }));
+        Long retried = idempotencyService.execute("key-1", testPaymentRequest, () -> {
+            executions.incrementAndGet();
+            return 42L;
+        });
+
+        // Then
+        assertEquals(42L, retried);
+        assertEquals(2, executions.get());
+        verify(idempotencyRecordRepository).deleteById("key-1");
+    }
+
+    @Test
+    void execute_ShouldRejectOversizedKey() {
+        // When & Then
+        assertThrows(IllegalArgumentException.class,
+            () -> idempotencyService.execute("k".repeat(256), testPaymentRequest, () -> 42L));
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void purgeExpired_ShouldDeleteRecordsOlderThanRetention() {
+        // Given
+        when(idempotencyRecordRepository.deleteCreatedBefore(any(LocalDateTime.class))).thenReturn(3);
+
+        // When
+        idempotencyService.purgeExpired();
+
+        // Then
+        verify(idempotencyRecordRepository).deleteCreatedBefore(argThat(cutoff ->
+            cutoff.isBefore(LocalDateTime.now().minusHours(23))));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
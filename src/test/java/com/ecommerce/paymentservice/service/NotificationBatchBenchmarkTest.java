@@ -0,0 +1,176 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.NotificationStats;
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Run with ./gradlew benchmark. Writes 10k outbox rows per second into an in-memory stand-in for
+// notification_outbox while NotificationOutboxDispatcher drains it to a local stub notification
+// service: poll, claim, send, markSent, the same loop as in production. Runs once with one POST per
+// row and once with batching, and reports how many requests that took and how long the outbox
+// needed to drain.
+@Tag("benchmark")
+class NotificationBatchBenchmarkTest {
+
+    private static final int RATE_PER_SECOND = 10_000;
+    private static final int SECONDS = 3;
+    private static final int BURST = 100;
+    private static final long POLL_INTERVAL_MS = 50;
+
+    @Test
+    void measureThroughputAtTenThousandPerSecond() throws Exception {
+        Result single = run("one request each", false);
+        Result batched = run("batched", true);
+
+        System.out.printf("Requests reduced by %.0f%%, drain time %d ms -> %d ms%n",
+            100 * (1 - (double) batched.requests / single.requests), single.elapsedMs, batched.elapsedMs);
+        assertEquals(0, batched.stats.getFailed());
+        assertEquals((long) RATE_PER_SECOND * SECONDS, batched.stats.getSent());
+        assertTrue(batched.requests * 10 < batched.stats.getSent(), "batched requests " + batched.requests);
+        assertTrue(batched.throughput() >= single.throughput(),
+            "batched " + batched.throughput() + "/s vs single " + single.throughput() + "/s");
+    }
+
+    private Result run(String name, boolean batching) throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(200);
+            }
+        });
+        server.start();
+        NotificationServiceClient client = new NotificationServiceClient(server.url("/").toString().replaceAll("/$", ""));
+        ReflectionTestUtils.setField(client, "batchEnabled", batching);
+        InMemoryOutbox outbox = new InMemoryOutbox();
+        NotificationOutboxDispatcher dispatcher = new NotificationOutboxDispatcher();
+        ReflectionTestUtils.setField(dispatcher, "outboxNotificationRepository", outbox.repository);
+        ReflectionTestUtils.setField(dispatcher, "notificationServiceClient", client);
+        ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor();
+
+        try {
+            poller.scheduleWithFixedDelay(dispatcher::dispatch, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+            // Bursts of BURST rows, paced to RATE_PER_SECOND overall
+            long total = (long) RATE_PER_SECOND * SECONDS;
+            long start = System.nanoTime();
+            for (long i = 0; i < total; i++) {
+                if (i % BURST == 0) {
+                    long due = start + i * 1_000_000_000L / RATE_PER_SECOND;
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                outbox.insert(i);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            while (outbox.sent.get() < total) {
+                assertTrue(System.nanoTime() < deadline, name + " did not drain");
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            Result result = new Result(client.getStats(), server.getRequestCount(), elapsedMs);
+            System.out.printf("%-18s sent=%d failed=%d requests=%d drained in %d ms (%d notifications/s)%n",
+                name, result.stats.getSent(), result.stats.getFailed(), result.requests, elapsedMs, result.throughput());
+            return result;
+        } finally {
+            poller.shutdownNow();
+            poller.awaitTermination(5, TimeUnit.SECONDS);
+            server.shutdown();
+        }
+    }
+
+    // Just enough of the repository for the dispatcher, with the claim as a compare-and-set per row.
+    // stubOnly, a mock that remembers every call would grow with the run.
+    private static final class InMemoryOutbox {
+        private final ConcurrentSkipListMap<Long, OutboxNotification> rows = new ConcurrentSkipListMap<>();
+        private final AtomicLong sent = new AtomicLong();
+        private final OutboxNotificationRepository repository = mock(OutboxNotificationRepository.class, withSettings().stubOnly());
+
+        private InMemoryOutbox() {
+            when(repository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenAnswer(invocation -> {
+                LocalDateTime now = invocation.getArgument(0);
+                int limit = invocation.<Pageable>getArgument(1).getPageSize();
+                List<Long> due = new ArrayList<>(limit);
+                for (OutboxNotification row : rows.values()) {
+                    if (due.size() == limit) {
+                        break;
+                    }
+                    synchronized (row) {
+                        if (row.getStatus() == OutboxNotification.Status.PENDING && !row.getNextAttemptAt().isAfter(now)) {
+                            due.add(row.getId());
+                        }
+                    }
+                }
+                return due;
+            });
+            when(repository.claim(anyLong(), any(), any())).thenAnswer(invocation -> {
+                OutboxNotification row = rows.get(invocation.<Long>getArgument(0));
+                synchronized (row) {
+                    if (row.getStatus() != OutboxNotification.Status.PENDING
+                            || row.getNextAttemptAt().isAfter(invocation.getArgument(1))) {
+                        return 0;
+                    }
+                    row.setAttempts(row.getAttempts() + 1);
+                    row.setNextAttemptAt(invocation.getArgument(2));
+                    return 1;
+                }
+            });
+            when(repository.findAllById(anyIterable())).thenAnswer(invocation -> {
+                List<OutboxNotification> found = new ArrayList<>();
+                for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                    found.add(rows.get(id));
+                }
+                return found;
+            });
+            // Sent rows are dropped right away instead of waiting for purgeSent
+            when(repository.markSent(anyLong(), any())).thenAnswer(invocation -> {
+                if (rows.remove(invocation.<Long>getArgument(0)) == null) {
+                    return 0;
+                }
+                sent.incrementAndGet();
+                return 1;
+            });
+        }
+
+        private void insert(long id) {
+            Payment payment = new Payment(1000L + id, 1L, new BigDecimal("10.00"), Payment.PaymentMethod.CREDIT_CARD);
+            payment.setId(id);
+            OutboxNotification row = new OutboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION, payment, null, null);
+            row.setId(id);
+            rows.put(id, row);
+        }
+    }
+
+    private record Result(NotificationStats stats, int requests, long elapsedMs) {
+        long throughput() {
+            return stats.getSent() * 1000 / Math.max(elapsedMs, 1);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationOutboxDispatcherTest {
+
+    @Mock
+    private OutboxNotificationRepository outboxNotificationRepository;
+
+    @Mock
+    private NotificationServiceClient notificationServiceClient;
+
+    @Mock
+    private TelemetryClient telemetryClient;
+
+    @InjectMocks
+    private NotificationOutboxDispatcher dispatcher;
+
+    @Test
+    void dispatchBatch_ShouldSendClaimedRows_AndMarkThemSent() {
+        // Given
+        OutboxNotification first = notification(1L, 1);
+        OutboxNotification second = notification(2L, 1);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(outboxNotificationRepository.claim(anyLong(), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(notificationServiceClient.send(any(OutboxNotification.class))).thenReturn(Mono.empty());
+
+        // When
+        int found = dispatcher.dispatchBatch();
+
+        // Then
+        assertEquals(2, found);
+        verify(outboxNotificationRepository).markSent(eq(1L), any());
+        verify(outboxNotificationRepository).markSent(eq(2L), any());
+        verify(outboxNotificationRepository, never()).scheduleRetry(anyLong(), any(), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldSkipRowsClaimedByAnotherInstance() {
+        // Given
+        OutboxNotification mine = notification(2L, 1);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(outboxNotificationRepository.claim(eq(1L), any(), any())).thenReturn(0);
+        when(outboxNotificationRepository.claim(eq(2L), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(2L))).thenReturn(List.of(mine));
+        when(notificationServiceClient.send(mine)).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatchBatch();
+
+        // Then
+        verify(notificationServiceClient, times(1)).send(any(OutboxNotification.class));
+        verify(outboxNotificationRepository).markSent(eq(2L), any());
+        verify(outboxNotificationRepository, never()).markSent(eq(1L), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldScheduleRetryWithBackoff_WhenDeliveryFails() {
+        // Given
+        OutboxNotification notification = notification(1L, 3);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L));
+        when(outboxNotificationRepository.claim(anyLong(), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(1L))).thenReturn(List.of(notification));
+        when(notificationServiceClient.send(notification)).thenReturn(Mono.error(new RuntimeException("503 Service Unavailable")));
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        dispatcher.dispatchBatch();
+
+        // Then - third attempt failed, the next one waits 1s * 2^2
+        verify(outboxNotificationRepository).scheduleRetry(eq(1L),
+            argThat(next -> !next.isBefore(before.plusSeconds(4)) && next.isBefore(before.plusSeconds(10))),
+            eq("503 Service Unavailable"));
+        verify(outboxNotificationRepository, never()).markSent(anyLong(), any());
+        verify(outboxNotificationRepository, never()).markFailed(anyLong(), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldMarkFailed_WhenAttemptsAreUsedUp() {
+        // Given
+        OutboxNotification notification = notification(1L, 10);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L));
+        when(outboxNotificationRepository.claim(anyLong(), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(1L))).thenReturn(List.of(notification));
+        when(notificationServiceClient.send(notification)).thenReturn(Mono.error(new RuntimeException("Connection refused")));
+
+        // When
+        dispatcher.dispatchBatch();
+
+        // Then
+        verify(outboxNotificationRepository).markFailed(1L, "Connection refused");
+        verify(outboxNotificationRepository, never()).scheduleRetry(anyLong(), any(), any());
+        verify(telemetryClient).logEvent("Giving up on {} notification for payment {} after {} attempts: {}", "ERROR",
+            notification.getType(), notification.getPaymentId(), 10, "Connection refused");
+    }
+
+    @Test
+    void dispatch_ShouldKeepPolling_WhileBatchesComeBackFull() {
+        // Given
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 1);
+        OutboxNotification first = notification(1L, 1);
+        OutboxNotification second = notification(2L, 1);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(1L), List.of(2L), List.of());
+        when(outboxNotificationRepository.claim(anyLong(), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(1L))).thenReturn(List.of(first));
+        when(outboxNotificationRepository.findAllById(List.of(2L))).thenReturn(List.of(second));
+        when(notificationServiceClient.send(any(OutboxNotification.class))).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatch();
+
+        // Then
+        verify(outboxNotificationRepository, times(3)).findDueIds(any(LocalDateTime.class), any(Pageable.class));
+        verify(outboxNotificationRepository).markSent(eq(1L), any());
+        verify(outboxNotificationRepository).markSent(eq(2L), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldSendRowsAsOneBatch_WhenBatchingIsAvailable() {
+        // Given
+        OutboxNotification first = notification(1L, 1);
+        OutboxNotification second = notification(2L, 1);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(outboxNotificationRepository.claim(anyLong(), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(notificationServiceClient.isBatchAvailable()).thenReturn(true);
+        when(notificationServiceClient.getBatchMaxSize()).thenReturn(100);
+        when(notificationServiceClient.sendBatch(List.of(first, second))).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatchBatch();
+
+        // Then
+        verify(notificationServiceClient, never()).send(any(OutboxNotification.class));
+        verify(outboxNotificationRepository).markSent(eq(1L), any());
+        verify(outboxNotificationRepository).markSent(eq(2L), any());
+    }
+
+    @Test
+    void dispatchBatch_ShouldSendRowsOneByOne_WhenBatchEndpointTurnsOutMissing() {
+        // Given
+        OutboxNotification first = notification(1L, 1);
+        OutboxNotification second = notification(2L, 1);
+        when(outboxNotificationRepository.findDueIds(any(LocalDateTime.class), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+        when(outboxNotificationRepository.claim(anyLong(), any(), any())).thenReturn(1);
+        when(outboxNotificationRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(first, second));
+        when(notificationServiceClient.isBatchAvailable()).thenReturn(true, false);
+        when(notificationServiceClient.getBatchMaxSize()).thenReturn(100);
+        when(notificationServiceClient.sendBatch(anyList())).thenReturn(Mono.error(new RuntimeException("404 Not Found")));
+        when(notificationServiceClient.send(any(OutboxNotification.class))).thenReturn(Mono.empty());
+
+        // When
+        dispatcher.dispatchBatch();
+
+        // Then
+        verify(notificationServiceClient, times(2)).send(any(OutboxNotification.class));
+        verify(outboxNotificationRepository).markSent(eq(1L), any());
+        verify(outboxNotificationRepository).markSent(eq(2L), any());
+        verify(outboxNotificationRepository, never()).scheduleRetry(anyLong(), any(), any());
+    }
+
+    @Test
+    void retryDelayMs_ShouldDoublePerAttempt_UpToTheCap() {
+        assertEquals(1000, dispatcher.retryDelayMs(1));
+        assertEquals(2000, dispatcher.retryDelayMs(2));
+        assertEquals(8000, dispatcher.retryDelayMs(4));
+        assertEquals(300000, dispatcher.retryDelayMs(20));
+        assertEquals(300000, dispatcher.retryDelayMs(1000));
+    }
+
+    // A row as it looks after being claimed, attempts already includes the current one
+    private OutboxNotification notification(Long id, int attempts) {
+        Payment payment = new Payment(100L + id, 1L, new BigDecimal("10.00"), Payment.PaymentMethod.CREDIT_CARD);
+        payment.setId(id);
+        OutboxNotification notification = new OutboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION, payment, null, null);
+        notification.setId(id);
+        notification.setAttempts(attempts);
+        return notification;
+    }
+}
@@ -1,5 +1,9 @@
 package com.ecommerce.paymentservice.service;
 
+import com.ecommerce.paymentservice.dto.NotificationStats;
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -7,10 +11,18 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
 
 class NotificationServiceClientTest {
 
@@ -34,13 +46,13 @@ class NotificationServiceClientTest {
     }
 
     @Test
-    void sendPaymentConfirmation_ShouldSendRequest_WhenServiceRespondsSuccessfully() throws InterruptedException {
+    void send_ShouldPostPaymentConfirmation_WhenServiceRespondsSuccessfully() throws InterruptedException {
         // Given
         mockWebServer.enqueue(new MockResponse().setResponseCode(200));
 
         // When
-        assertDoesNotThrow(() -> 
-            notificationServiceClient.sendPaymentConfirmation(1L, 100L, 50L));
+        assertDoesNotThrow(() -> notificationServiceClient.send(
+            outboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION)).block(Duration.ofSeconds(5)));
 
         // Then
         RecordedRequest request = mockWebServer.takeRequest();
@@ -50,13 +62,13 @@ class NotificationServiceClientTest {
     }
 
     @Test
-    void sendPaymentConfirmation_ShouldHandleError_WhenServiceFails() throws InterruptedException {
+    void send_ShouldFailPaymentConfirmation_WhenServiceFails() throws InterruptedException {
         // Given
         mockWebServer.enqueue(new MockResponse().setResponseCode(500));
 
-        // When & Then - should not throw exception, just log error
-        assertDoesNotThrow(() -> 
-            notificationServiceClient.sendPaymentConfirmation(1L, 100L, 50L));
+        // When & Then
+        assertThrows(WebClientResponseException.class, () -> notificationServiceClient.send(
+            outboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION)).block(Duration.ofSeconds(5)));
 
         RecordedRequest request = mockWebServer.takeRequest();
         assertEquals("POST", request.getMethod());
@@ -64,13 +76,13 @@ class NotificationServiceClientTest {
     }
 
     @Test
-    void sendPaymentFailure_ShouldSendRequest_WhenServiceRespondsSuccessfully() throws InterruptedException {
+    void send_ShouldPostPaymentFailure_WhenServiceRespondsSuccessfully() throws InterruptedException {
         // Given
         mockWebServer.enqueue(new MockResponse().setResponseCode(200));
 
         // When
-        assertDoesNotThrow(() -> 
-            notificationServiceClient.sendPaymentFailure(1L, 100L, 50L));
+        assertDoesNotThrow(() -> notificationServiceClient.send(
+            outboxNotification(OutboxNotification.Type.PAYMENT_FAILURE)).block(Duration.ofSeconds(5)));
 
         // Then
         RecordedRequest request = mockWebServer.takeRequest();
@@ -80,47 +92,117 @@ class NotificationServiceClientTest {
     }
 
     @Test
-    void sendPaymentFailure_ShouldHandleError_WhenServiceFails() throws InterruptedException {
+    void send_ShouldPostRefundConfirmation_WhenServiceRespondsSuccessfully() throws InterruptedException {
         // Given
-        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
 
-        // When & Then - should not throw exception, just log error
-        assertDoesNotThrow(() -> 
-            notificationServiceClient.sendPaymentFailure(1L, 100L, 50L));
+        // When
+        assertDoesNotThrow(() -> notificationServiceClient.send(
+            outboxNotification(OutboxNotification.Type.REFUND_CONFIRMATION)).block(Duration.ofSeconds(5)));
 
+        // Then
         RecordedRequest request = mockWebServer.takeRequest();
         assertEquals("POST", request.getMethod());
-        assertEquals("/api/notifications/payment-failure", request.getPath());
+        assertEquals("/api/notifications/refund-confirmation", request.getPath());
+        assertNotNull(request.getBody());
+    }
+
+    @Test
+    void send_ShouldRecordSpanInTraceThatWroteTheRow() {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        TelemetryClient telemetryClient = mock(TelemetryClient.class);
+        AtomicReference<String> traceAtRecord = new AtomicReference<>();
+        doAnswer(invocation -> {
+            traceAtRecord.set(TelemetryClient.TraceContext.getTraceId());
+            return null;
+        }).when(telemetryClient).recordServiceCall(anyString(), anyString(), anyString(), anyString(), anyLong(), anyInt());
+        ReflectionTestUtils.setField(notificationServiceClient, "telemetryClient", telemetryClient);
+        Payment payment = new Payment(50L, 100L, new BigDecimal("10.00"), Payment.PaymentMethod.CREDIT_CARD);
+        payment.setId(1L);
+        OutboxNotification notification = new OutboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION, payment,
+            "trace-123", "span-456");
+
+        // When
+        notificationServiceClient.send(notification).block(Duration.ofSeconds(5));
+
+        // Then - recorded on the HTTP client's thread, still in the trace of the payment request
+        verify(telemetryClient, timeout(2_000)).recordServiceCall(eq("notification-service"), eq("send_payment_confirmation"),
+            eq("POST"), endsWith("/api/notifications/payment-confirmation"), anyLong(), eq(200));
+        assertEquals("trace-123", traceAtRecord.get());
+        assertNull(TelemetryClient.TraceContext.getTraceId());
     }
 
     @Test
-    void sendRefundConfirmation_ShouldSendRequest_WhenServiceRespondsSuccessfully() throws InterruptedException {
+    void sendOutboxNotification_ShouldPostToTypeEndpoint_AndCompleteWhenDelivered() throws InterruptedException {
         // Given
         mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        OutboxNotification notification = outboxNotification(OutboxNotification.Type.REFUND_CONFIRMATION);
 
         // When
-        assertDoesNotThrow(() -> 
-            notificationServiceClient.sendRefundConfirmation(1L, 100L, 50L));
+        notificationServiceClient.send(notification).block(Duration.ofSeconds(5));
 
         // Then
-        RecordedRequest request = mockWebServer.takeRequest();
-        assertEquals("POST", request.getMethod());
+        RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
         assertEquals("/api/notifications/refund-confirmation", request.getPath());
-        assertNotNull(request.getBody());
+        assertTrue(request.getBody().readUtf8().contains("\"paymentId\":1"));
+        assertEquals(1, notificationServiceClient.getStats().getSent());
     }
 
     @Test
-    void sendRefundConfirmation_ShouldHandleError_WhenServiceFails() throws InterruptedException {
+    void sendOutboxNotification_ShouldFail_WhenServiceFails() {
         // Given
-        mockWebServer.enqueue(new MockResponse().setResponseCode(500));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        OutboxNotification notification = outboxNotification(OutboxNotification.Type.PAYMENT_FAILURE);
+
+        // When & Then - the outbox needs the error to schedule a retry
+        assertThrows(WebClientResponseException.class,
+            () -> notificationServiceClient.send(notification).block(Duration.ofSeconds(5)));
+        assertEquals(1, notificationServiceClient.getStats().getFailed());
+    }
 
-        // When & Then - should not throw exception, just log error
-        assertDoesNotThrow(() -> 
-            notificationServiceClient.sendRefundConfirmation(1L, 100L, 50L));
+    @Test
+    void sendBatch_ShouldPostOutboxRowsTogether() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(notificationServiceClient, "batchEnabled", true);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
 
-        RecordedRequest request = mockWebServer.takeRequest();
-        assertEquals("POST", request.getMethod());
-        assertEquals("/api/notifications/refund-confirmation", request.getPath());
+        // When
+        notificationServiceClient.sendBatch(List.of(outboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION),
+            outboxNotification(OutboxNotification.Type.REFUND_CONFIRMATION))).block(Duration.ofSeconds(5));
+
+        // Then
+        RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals(NotificationServiceClient.BATCH_PATH, request.getPath());
+        assertTrue(request.getBody().readUtf8().startsWith("{\"notifications\":["));
+        assertEquals(2, notificationServiceClient.getStats().getSent());
+    }
+
+    @Test
+    void sendBatch_ShouldFailAndKeepBatching_WhenServiceFails() {
+        // Given
+        ReflectionTestUtils.setField(notificationServiceClient, "batchEnabled", true);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+
+        // When & Then - a server error is not a missing endpoint, the rows are retried as a batch
+        assertThrows(WebClientResponseException.class, () -> notificationServiceClient.sendBatch(
+            List.of(outboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION))).block(Duration.ofSeconds(5)));
+        assertTrue(notificationServiceClient.isBatchAvailable());
+        assertEquals(1, notificationServiceClient.getStats().getFailed());
+    }
+
+    @Test
+    void sendBatch_ShouldTurnBatchingOff_WhenBatchEndpointIsMissing() {
+        // Given
+        ReflectionTestUtils.setField(notificationServiceClient, "batchEnabled", true);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(404));
+
+        // When & Then - the dispatcher sees isBatchAvailable turn false and resends the rows one by one
+        assertThrows(WebClientResponseException.class, () -> notificationServiceClient.sendBatch(
+            List.of(outboxNotification(OutboxNotification.Type.PAYMENT_CONFIRMATION))).block(Duration.ofSeconds(5)));
+        NotificationStats stats = notificationServiceClient.getStats();
+        assertFalse(stats.isBatchAvailable());
+        assertEquals(0, stats.getFailed());
     }
 
     @Test
@@ -133,4 +215,10 @@ class NotificationServiceClientTest {
         // WebClient is package-private, so we can't directly test it
         // But we can verify the constructor doesn't throw an exception
     }
-}
\ No newline at end of file
+
+    private OutboxNotification outboxNotification(OutboxNotification.Type type) {
+        Payment payment = new Payment(50L, 100L, new BigDecimal("10.00"), Payment.PaymentMethod.CREDIT_CARD);
+        payment.setId(1L);
+        return new OutboxNotification(type, payment, null, null);
+    }
+}
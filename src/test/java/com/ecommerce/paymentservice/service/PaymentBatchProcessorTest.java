@@ -0,0 +1,249 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.BatchPaymentResult;
+import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentBatchProcessorTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentGatewayService paymentGatewayService;
+
+    @Mock
+    private OutboxNotificationRepository outboxNotificationRepository;
+
+    @Mock
+    private TelemetryClient telemetryClient;
+
+    @InjectMocks
+    private PaymentBatchProcessor paymentBatchProcessor;
+
+    private PaymentStateMachine paymentStateMachine;
+
+    @BeforeEach
+    void setUp() {
+        paymentStateMachine = new PaymentStateMachine();
+        ReflectionTestUtils.setField(paymentStateMachine, "paymentRepository", paymentRepository);
+        PaymentCache paymentCache = new PaymentCache();
+        paymentCache.start();
+        ReflectionTestUtils.setField(paymentStateMachine, "paymentCache", paymentCache);
+        ReflectionTestUtils.setField(paymentStateMachine, "outboxNotificationRepository", outboxNotificationRepository);
+        ReflectionTestUtils.setField(paymentBatchProcessor, "paymentStateMachine", paymentStateMachine);
+        ReflectionTestUtils.setField(paymentBatchProcessor, "parallelism", 4);
+        ReflectionTestUtils.setField(paymentBatchProcessor, "maxBatchSize", 10);
+        paymentBatchProcessor.start();
+
+        lenient().when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<Payment> payments = invocation.getArgument(0);
+            long id = 1;
+            for (Payment payment : payments) {
+                payment.setId(id++);
+            }
+            return payments;
+        });
+        lenient().when(paymentRepository.transitionStatuses(anyList(), anyCollection())).thenAnswer(invocation -> {
+            int[] updated = new int[invocation.<List<Payment>>getArgument(0).size()];
+            Arrays.fill(updated, 1);
+            return updated;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        paymentBatchProcessor.stop();
+    }
+
+    @Test
+    void process_ShouldReturnResultsInRequestOrder() {
+        // Given
+        List<PaymentRequest> requests = createRequests(5);
+        when(paymentGatewayService.processPayment(any(PaymentRequest.class)))
+            .thenAnswer(invocation -> "TXN_" + ((PaymentRequest) invocation.getArgument(0)).getOrderId());
+
+        // When
+        List<BatchPaymentResult> results = paymentBatchProcessor.process(requests);
+
+        // Then
+        assertEquals(5, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            BatchPaymentResult result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(i + 1L, result.getPaymentId());
+            assertEquals(Payment.PaymentStatus.COMPLETED, result.getStatus());
+            assertEquals("TXN_" + (100L + i), result.getTransactionId());
+            assertNull(result.getFailureReason());
+        }
+        verify(paymentRepository, times(1)).saveAll(anyList()); // processing inserts
+        verify(paymentRepository, times(1)).transitionStatuses(anyList(), anyCollection()); // one batched UPDATE
+        verify(paymentRepository, never()).transitionStatus(anyLong(), anyCollection(), any(), any(), any());
+        verify(paymentRepository, never()).save(any(Payment.class));
+        assertEquals(Payment.PaymentStatus.PROCESSING, paymentStateMachine.getTransitions(1L).get(0).getToStatus());
+        assertEquals(Payment.PaymentStatus.COMPLETED, paymentStateMachine.getTransitions(1L).get(1).getToStatus());
+        List<OutboxNotification> notifications = savedNotifications();
+        assertEquals(5, notifications.size());
+        assertTrue(notifications.stream().allMatch(n -> n.getType() == OutboxNotification.Type.PAYMENT_CONFIRMATION));
+    }
+
+    @Test
+    void process_ShouldReportPerItemFailures() {
+        // Given
+        List<PaymentRequest> requests = createRequests(3);
+        when(paymentGatewayService.processPayment(any(PaymentRequest.class)))
+            .thenAnswer(invocation -> {
+                PaymentRequest request = invocation.getArgument(0);
+                if (request.getOrderId() == 101L) {
+                    throw new RuntimeException("Payment declined by bank");
+                }
+                return "TXN_" + request.getOrderId();
+            });
+
+        // When
+        List<BatchPaymentResult> results = paymentBatchProcessor.process(requests);
+
+        // Then
+        assertEquals(Payment.PaymentStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals(Payment.PaymentStatus.FAILED, results.get(1).getStatus());
+        assertEquals("Payment declined by bank", results.get(1).getFailureReason());
+        assertNull(results.get(1).getTransactionId());
+        assertEquals(Payment.PaymentStatus.COMPLETED, results.get(2).getStatus());
+        List<OutboxNotification> notifications = savedNotifications();
+        assertEquals(List.of(OutboxNotification.Type.PAYMENT_CONFIRMATION, OutboxNotification.Type.PAYMENT_FAILURE,
+            OutboxNotification.Type.PAYMENT_CONFIRMATION), notifications.stream().map(OutboxNotification::getType).toList());
+        assertEquals(2L, notifications.get(1).getPaymentId());
+        assertEquals(101L, notifications.get(1).getOrderId());
+    }
+
+    @Test
+    void process_ShouldKeepPaymentThatWasMovedConcurrently() {
+        // Given - payment 2 was failed by someone else while the batch was at the gateway
+        List<PaymentRequest> requests = createRequests(3);
+        when(paymentGatewayService.processPayment(any(PaymentRequest.class)))
+            .thenAnswer(invocation -> "TXN_" + ((PaymentRequest) invocation.getArgument(0)).getOrderId());
+        when(paymentRepository.transitionStatuses(anyList(), anyCollection())).thenReturn(new int[] {1, 0, 1});
+
+        // When
+        List<BatchPaymentResult> results = paymentBatchProcessor.process(requests);
+
+        // Then - the outcome is not written over it, it gets no notification and is not reported as charged
+        assertEquals(Payment.PaymentStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals(Payment.PaymentStatus.FAILED, results.get(1).getStatus());
+        assertNull(results.get(1).getTransactionId());
+        assertTrue(results.get(1).getFailureReason().contains("changed by another request"));
+        assertEquals(Payment.PaymentStatus.COMPLETED, results.get(2).getStatus());
+        verify(paymentRepository).transitionStatuses(argThat(payments -> payments.get(1).getId() == 2L
+                && payments.get(1).getStatus() == Payment.PaymentStatus.COMPLETED && "TXN_101".equals(payments.get(1).getTransactionId())),
+            eq(EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING)));
+        assertEquals(List.of(1L, 3L), savedNotifications().stream().map(OutboxNotification::getPaymentId).toList());
+        assertEquals(1, paymentStateMachine.getTransitions(2L).size());
+    }
+
+    @Test
+    void process_ShouldStoreOutcomesAndFailTheRest_WhenInterrupted() throws Exception {
+        // Given - the last gateway call hangs, the first two are answered
+        List<PaymentRequest> requests = createRequests(3);
+        CountDownLatch answered = new CountDownLatch(2);
+        CountDownLatch hanging = new CountDownLatch(1);
+        when(paymentGatewayService.processPayment(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            if (request.getOrderId() == 102L) {
+                hanging.countDown();
+                new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+            } else {
+                answered.countDown();
+            }
+            return "TXN_" + request.getOrderId();
+        });
+        AtomicReference<RuntimeException> thrown = new AtomicReference<>();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread caller = new Thread(() -> {
+            try {
+                paymentBatchProcessor.process(requests);
+            } catch (RuntimeException e) {
+                thrown.set(e);
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+
+        // When
+        caller.start();
+        assertTrue(answered.await(5, TimeUnit.SECONDS));
+        assertTrue(hanging.await(5, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(5000);
+
+        // Then - nothing is left in PROCESSING
+        assertEquals("Payment batch processing interrupted", thrown.get().getMessage());
+        assertTrue(stillInterrupted.get());
+        verify(paymentRepository).transitionStatuses(argThat(payments -> payments.size() == 3
+                && payments.get(2).getStatus() == Payment.PaymentStatus.FAILED && payments.get(2).getTransactionId() == null
+                && "Payment failed: batch processing was interrupted".equals(payments.get(2).getPaymentGatewayResponse())),
+            anyCollection());
+        assertEquals(3, savedNotifications().size());
+    }
+
+    @Test
+    void process_ShouldRejectOversizedBatch() {
+        // Given
+        List<PaymentRequest> requests = createRequests(11);
+
+        // When & Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> paymentBatchProcessor.process(requests));
+
+        assertTrue(exception.getMessage().contains("exceeds the maximum"));
+        verify(paymentRepository, never()).saveAll(anyList());
+        verify(paymentGatewayService, never()).processPayment(any(PaymentRequest.class));
+    }
+
+    // The outbox rows written with the final outcomes, all in one saveAll
+    @SuppressWarnings("unchecked")
+    private List<OutboxNotification> savedNotifications() {
+        ArgumentCaptor<List<OutboxNotification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(outboxNotificationRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private List<PaymentRequest> createRequests(int count) {
+        List<PaymentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            PaymentRequest request = new PaymentRequest();
+            request.setOrderId(100L + i);
+            request.setUserId(1L);
+            request.setAmount(new BigDecimal("19.99"));
+            request.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+            requests.add(request);
+        }
+        return requests;
+    }
+}
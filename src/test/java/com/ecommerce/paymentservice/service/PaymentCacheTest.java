@@ -0,0 +1,107 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentCacheStats;
+import com.ecommerce.paymentservice.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentCacheTest {
+
+    private PaymentCache paymentCache;
+    private Payment testPayment;
+
+    @BeforeEach
+    void setUp() {
+        paymentCache = new PaymentCache();
+        paymentCache.start();
+
+        testPayment = new Payment(100L, 1L, new BigDecimal("99.99"), Payment.PaymentMethod.CREDIT_CARD);
+        testPayment.setId(1L);
+    }
+
+    @Test
+    void get_ShouldLoadOnceAndServeRepeatedLookupsFromCache() {
+        // Given
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        Payment first = paymentCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return testPayment;
+        });
+        Payment second = paymentCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return testPayment;
+        });
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals(1L, first.getId());
+        assertEquals(1L, second.getId());
+        PaymentCacheStats stats = paymentCache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void get_ShouldReturnCopiesThatCannotChangeTheCachedEntry() {
+        // Given
+        paymentCache.put(testPayment);
+
+        // When
+        Payment cached = paymentCache.get(1L, id -> fail("should not load"));
+        cached.setStatus(Payment.PaymentStatus.FAILED);
+        testPayment.setStatus(Payment.PaymentStatus.REFUNDED);
+
+        // Then
+        assertEquals(Payment.PaymentStatus.PENDING, paymentCache.get(1L, id -> fail("should not load")).getStatus());
+    }
+
+    @Test
+    void get_ShouldNotCacheLookupFailures() {
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> paymentCache.get(999L, id -> { throw new RuntimeException("Payment not found"); }));
+
+        assertEquals("Payment not found", exception.getMessage());
+        assertEquals(0, paymentCache.getStats().getSize());
+    }
+
+    @Test
+    void put_ShouldReplaceCachedPaymentOnTransition() {
+        // Given
+        paymentCache.put(testPayment);
+        Payment completed = new Payment(100L, 1L, new BigDecimal("99.99"), Payment.PaymentMethod.CREDIT_CARD);
+        completed.setId(1L);
+        completed.setStatus(Payment.PaymentStatus.COMPLETED);
+
+        // When
+        paymentCache.put(completed);
+
+        // Then
+        assertEquals(Payment.PaymentStatus.COMPLETED, paymentCache.get(1L, id -> fail("should not load")).getStatus());
+    }
+
+    @Test
+    void evict_ShouldForceReload() {
+        // Given
+        paymentCache.put(testPayment);
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        paymentCache.evict(1L);
+        paymentCache.get(1L, id -> {
+            loads.incrementAndGet();
+            return testPayment;
+        });
+
+        // Then
+        assertEquals(1, loads.get());
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentExporterTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private PaymentExporter paymentExporter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(paymentExporter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(paymentExporter, "flushEvery", 1);
+    }
+
+    @Test
+    void export_ShouldWriteOneJsonDocumentPerLineAndDetachRows() throws IOException {
+        // Given
+        Payment first = createPayment(1L, Payment.PaymentStatus.COMPLETED);
+        Payment second = createPayment(2L, Payment.PaymentStatus.FAILED);
+        AtomicBoolean streamClosed = new AtomicBoolean();
+        when(paymentRepository.streamForExport(null, null, null))
+            .thenReturn(Stream.of(first, second).onClose(() -> streamClosed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long exported = paymentExporter.export(null, null, null, out);
+
+        // Then
+        assertEquals(2, exported);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertEquals(3, lines.length); // trailing newline after the last row
+        assertEquals("", lines[2]);
+
+        JsonNode firstRow = objectMapper.readTree(lines[0]);
+        assertEquals(1L, firstRow.get("id").asLong());
+        assertEquals("COMPLETED", firstRow.get("status").asText());
+        assertEquals("2024-05-01T12:00:00", firstRow.get("paymentDate").asText());
+        assertEquals("FAILED", objectMapper.readTree(lines[1]).get("status").asText());
+
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+        assertTrue(streamClosed.get());
+    }
+
+    @Test
+    void export_ShouldPassFiltersToRepository() throws IOException {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+        when(paymentRepository.streamForExport(Payment.PaymentStatus.COMPLETED, from, to)).thenReturn(Stream.empty());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long exported = paymentExporter.export(Payment.PaymentStatus.COMPLETED, from, to, out);
+
+        // Then
+        assertEquals(0, exported);
+        assertEquals(0, out.size());
+        verify(paymentRepository).streamForExport(Payment.PaymentStatus.COMPLETED, from, to);
+    }
+
+    private Payment createPayment(Long id, Payment.PaymentStatus status) {
+        Payment payment = new Payment(100L + id, 1L, new BigDecimal("19.99"), Payment.PaymentMethod.CREDIT_CARD);
+        payment.setId(id);
+        payment.setStatus(status);
+        payment.setPaymentDate(LocalDateTime.of(2024, 5, 1, 12, 0));
+        return payment;
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.config.VirtualThreads;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PaymentProcessingQueueTest {
+
+    private PaymentProcessingQueue paymentProcessingQueue;
+
+    private TelemetryClient telemetryClient;
+
+    @BeforeEach
+    void setUp() {
+        telemetryClient = mock(TelemetryClient.class);
+        paymentProcessingQueue = new PaymentProcessingQueue();
+        ReflectionTestUtils.setField(paymentProcessingQueue, "telemetryClient", telemetryClient);
+        ReflectionTestUtils.setField(paymentProcessingQueue, "workers", 1);
+        ReflectionTestUtils.setField(paymentProcessingQueue, "queueCapacity", 1);
+        ReflectionTestUtils.setField(paymentProcessingQueue, "shutdownTimeoutSeconds", 5L);
+        paymentProcessingQueue.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        paymentProcessingQueue.stop();
+        TelemetryClient.TraceContext.clear();
+    }
+
+    @Test
+    void submit_ShouldRunTaskOnWorkerThread() throws InterruptedException {
+        // Given
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> threadName = new AtomicReference<>();
+
+        // When
+        paymentProcessingQueue.submit(() -> {
+            threadName.set(Thread.currentThread().getName());
+            done.countDown();
+        });
+
+        // Then
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(threadName.get().startsWith("payment-worker-"));
+    }
+
+    @Test
+    void submit_ShouldPropagateTraceContextToWorker() throws InterruptedException {
+        // Given
+        TelemetryClient.TraceContext.propagate("trace-123", "span-456");
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<String> workerTraceId = new AtomicReference<>();
+
+        // When
+        paymentProcessingQueue.submit(() -> {
+            workerTraceId.set(TelemetryClient.TraceContext.getTraceId());
+            done.countDown();
+        });
+
+        // Then
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals("trace-123", workerTraceId.get());
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void submit_ShouldRunOnVirtualThreadsWithTraceContext_WhenEnabled() throws InterruptedException {
+        // Given
+        paymentProcessingQueue.stop();
+        ReflectionTestUtils.setField(paymentProcessingQueue, "virtualThreads", true);
+        paymentProcessingQueue.start();
+        TelemetryClient.TraceContext.propagate("trace-123", "span-456");
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicBoolean virtual = new AtomicBoolean();
+        AtomicReference<String> workerTraceId = new AtomicReference<>();
+
+        // When
+        paymentProcessingQueue.submit(() -> {
+            virtual.set(VirtualThreads.isVirtual(Thread.currentThread()));
+            workerTraceId.set(TelemetryClient.TraceContext.getTraceId());
+            done.countDown();
+        });
+
+        // Then
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+        assertEquals("trace-123", workerTraceId.get());
+    }
+
+    @Test
+    void submit_ShouldRejectTask_WhenQueueIsFull() throws InterruptedException {
+        // Given - one task occupies the only worker and one waits in the queue
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        paymentProcessingQueue.submit(() -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        paymentProcessingQueue.submit(() -> {});
+
+        // When & Then
+        assertEquals(1, paymentProcessingQueue.getQueueDepth());
+        assertThrows(RejectedExecutionException.class, () -> paymentProcessingQueue.submit(() -> {}));
+
+        release.countDown();
+    }
+
+    @Test
+    void submit_ShouldKeepWorkerAlive_WhenTaskThrows() throws InterruptedException {
+        // Given
+        CountDownLatch done = new CountDownLatch(1);
+        paymentProcessingQueue.submit(() -> {
+            throw new RuntimeException("Payment processing failed: Payment declined by bank");
+        });
+
+        // When
+        paymentProcessingQueue.submit(done::countDown);
+
+        // Then
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        verify(telemetryClient).logEvent("Asynchronous payment processing failed: {}", "ERROR",
+            "Payment processing failed: Payment declined by bank");
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
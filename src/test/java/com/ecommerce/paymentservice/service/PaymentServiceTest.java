@@ -1,20 +1,39 @@
 package com.ecommerce.paymentservice.service;
 
+import com.ecommerce.paymentservice.dto.BatchPaymentResult;
+import com.ecommerce.paymentservice.dto.PaymentCursor;
+import com.ecommerce.paymentservice.dto.PaymentPage;
 import com.ecommerce.paymentservice.dto.PaymentRequest;
+import com.ecommerce.paymentservice.dto.PaymentStatusResponse;
+import com.ecommerce.paymentservice.dto.PaymentTransition;
+import com.ecommerce.paymentservice.model.IdempotencyRecord;
+import com.ecommerce.paymentservice.model.OutboxNotification;
 import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.IdempotencyRecordRepository;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
 import com.ecommerce.paymentservice.repository.PaymentRepository;
 import com.ecommerce.paymentservice.telemetry.TelemetryClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -31,14 +50,30 @@ class PaymentServiceTest {
     private PaymentGatewayService paymentGatewayService;
 
     @Mock
-    private NotificationServiceClient notificationServiceClient;
+    private OutboxNotificationRepository outboxNotificationRepository;
 
     @Mock
     private TelemetryClient telemetryClient;
 
+    @Mock
+    private PaymentBatchProcessor paymentBatchProcessor;
+
+    @Mock
+    private PaymentProcessingQueue paymentProcessingQueue;
+
+    @Mock
+    private PaymentExporter paymentExporter;
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
     @InjectMocks
     private PaymentService paymentService;
 
+    private PaymentStateMachine paymentStateMachine;
+
+    private PaymentCache paymentCache;
+
     private PaymentRequest testPaymentRequest;
     private Payment testPayment;
 
@@ -61,6 +96,21 @@ class PaymentServiceTest {
         testPayment.setAmount(new BigDecimal("99.99"));
         testPayment.setStatus(Payment.PaymentStatus.PENDING);
         testPayment.setPaymentMethod(Payment.PaymentMethod.CREDIT_CARD);
+
+        // Real state machine and cache on top of the mocked repository
+        paymentCache = new PaymentCache();
+        paymentCache.start();
+        paymentStateMachine = new PaymentStateMachine();
+        ReflectionTestUtils.setField(paymentStateMachine, "paymentRepository", paymentRepository);
+        ReflectionTestUtils.setField(paymentStateMachine, "paymentCache", paymentCache);
+        ReflectionTestUtils.setField(paymentStateMachine, "outboxNotificationRepository", outboxNotificationRepository);
+        ReflectionTestUtils.setField(paymentService, "paymentStateMachine", paymentStateMachine);
+        ReflectionTestUtils.setField(paymentService, "paymentCache", paymentCache);
+
+        IdempotencyService idempotencyService = new IdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyRecordRepository", idempotencyRecordRepository);
+        idempotencyService.start();
+        ReflectionTestUtils.setField(paymentService, "idempotencyService", idempotencyService);
     }
 
     @Test
@@ -68,69 +118,54 @@ class PaymentServiceTest {
         // Given
         String transactionId = "TXN_123456789";
         
-        Payment pendingPayment = new Payment();
-        pendingPayment.setId(1L);
-        pendingPayment.setUserId(1L);
-        pendingPayment.setOrderId(100L);
-        pendingPayment.setStatus(Payment.PaymentStatus.PENDING);
-        
-        Payment processingPayment = new Payment();
-        processingPayment.setId(1L);
-        processingPayment.setUserId(1L);
-        processingPayment.setOrderId(100L);
-        processingPayment.setStatus(Payment.PaymentStatus.PROCESSING);
-
-        Payment completedPayment = new Payment();
-        completedPayment.setId(1L);
-        completedPayment.setUserId(1L);
-        completedPayment.setOrderId(100L);
-        completedPayment.setStatus(Payment.PaymentStatus.COMPLETED);
-        completedPayment.setTransactionId(transactionId);
-        
-        when(paymentRepository.save(any(Payment.class)))
-            .thenReturn(pendingPayment)     // First save (initial)
-            .thenReturn(processingPayment)  // Second save (processing)
-            .thenReturn(completedPayment);  // Third save (completed)
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.COMPLETED),
+            eq(transactionId), anyString())).thenReturn(1);
             
         when(paymentGatewayService.processPayment(testPaymentRequest)).thenReturn(transactionId);
 
         // When
         Payment result = paymentService.processPayment(testPaymentRequest);
 
-        // Then
+        // Then - one insert and one conditional update
         assertNotNull(result);
-        verify(paymentRepository, times(3)).save(any(Payment.class)); // initial, processing, completed
+        assertEquals(Payment.PaymentStatus.COMPLETED, result.getStatus());
+        assertEquals(transactionId, result.getTransactionId());
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRepository, times(1)).transitionStatus(anyLong(), anyCollection(), any(), any(), any());
         verify(paymentGatewayService).processPayment(testPaymentRequest);
-        verify(notificationServiceClient).sendPaymentConfirmation(
-            any(Long.class), any(Long.class), any(Long.class)
-        );
+        verify(outboxNotificationRepository).save(argThat(n -> n.getType() == OutboxNotification.Type.PAYMENT_CONFIRMATION
+            && n.getPaymentId().equals(1L)));
+    }
+
+    @Test
+    void processPayment_ShouldRecordEachTransitionOnce() {
+        // Given
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.COMPLETED),
+            eq("TXN_123456789"), anyString())).thenReturn(1);
+        when(paymentGatewayService.processPayment(testPaymentRequest)).thenReturn("TXN_123456789");
+
+        // When
+        paymentService.processPayment(testPaymentRequest);
+
+        // Then
+        List<PaymentTransition> transitions = paymentStateMachine.getTransitions(1L);
+        assertEquals(Arrays.asList(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING),
+            transitions.stream().map(PaymentTransition::getFromStatus).toList());
+        assertEquals(Arrays.asList(Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.COMPLETED),
+            transitions.stream().map(PaymentTransition::getToStatus).toList());
     }
 
     @Test
     void processPayment_ShouldReturnFailedPayment_WhenGatewayFails() {
         // Given
-        Payment pendingPayment = new Payment();
-        pendingPayment.setId(1L);
-        pendingPayment.setUserId(1L);
-        pendingPayment.setOrderId(100L);
-        pendingPayment.setStatus(Payment.PaymentStatus.PENDING);
-        
-        Payment processingPayment = new Payment();
-        processingPayment.setId(1L);
-        processingPayment.setUserId(1L);
-        processingPayment.setOrderId(100L);
-        processingPayment.setStatus(Payment.PaymentStatus.PROCESSING);
-
-        Payment failedPayment = new Payment();
-        failedPayment.setId(1L);
-        failedPayment.setUserId(1L);
-        failedPayment.setOrderId(100L);
-        failedPayment.setStatus(Payment.PaymentStatus.FAILED);
-        
-        when(paymentRepository.save(any(Payment.class)))
-            .thenReturn(pendingPayment)     // First save (initial)
-            .thenReturn(processingPayment)  // Second save (processing)
-            .thenReturn(failedPayment);     // Third save (failed)
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.FAILED),
+            isNull(), eq("Payment failed: Payment declined"))).thenReturn(1);
             
         when(paymentGatewayService.processPayment(testPaymentRequest))
             .thenThrow(new RuntimeException("Payment declined"));
@@ -140,11 +175,217 @@ class PaymentServiceTest {
             () -> paymentService.processPayment(testPaymentRequest));
 
         assertTrue(exception.getMessage().contains("Payment processing failed"));
-        verify(paymentRepository, times(3)).save(any(Payment.class)); // initial, processing, failed
+        assertEquals(Payment.PaymentStatus.FAILED, testPayment.getStatus());
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentRepository, times(1)).transitionStatus(anyLong(), anyCollection(), any(), any(), any());
         verify(paymentGatewayService).processPayment(testPaymentRequest);
-        verify(notificationServiceClient).sendPaymentFailure(
-            any(Long.class), any(Long.class), any(Long.class)
-        );
+        verify(outboxNotificationRepository).save(argThat(n -> n.getType() == OutboxNotification.Type.PAYMENT_FAILURE
+            && n.getPaymentId().equals(1L)));
+    }
+
+    @Test
+    void processPayment_ShouldChargeOnceAndReplayPayment_WhenRetriedWithSameIdempotencyKey() {
+        // Given
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.COMPLETED),
+            eq("TXN_123456789"), anyString())).thenReturn(1);
+        when(paymentGatewayService.processPayment(testPaymentRequest)).thenReturn("TXN_123456789");
+
+        // When
+        Payment first = paymentService.processPayment(testPaymentRequest, "retry-key");
+        Payment retried = paymentService.processPayment(testPaymentRequest, "retry-key");
+
+        // Then - the retry is answered from the dedup table, not the gateway
+        assertEquals(1L, first.getId());
+        assertEquals(1L, retried.getId());
+        assertEquals(Payment.PaymentStatus.COMPLETED, retried.getStatus());
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentGatewayService, times(1)).processPayment(testPaymentRequest);
+        verify(idempotencyRecordRepository).finish("retry-key", IdempotencyRecord.Status.COMPLETED, 1L, null);
+    }
+
+    @Test
+    void processPayment_ShouldReplayDecline_WhenRetriedWithSameIdempotencyKey() {
+        // Given
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.FAILED),
+            isNull(), eq("Payment failed: Payment declined"))).thenReturn(1);
+        when(paymentGatewayService.processPayment(testPaymentRequest))
+            .thenThrow(new RuntimeException("Payment declined"));
+
+        // When
+        RuntimeException first = assertThrows(RuntimeException.class,
+            () -> paymentService.processPayment(testPaymentRequest, "retry-key"));
+        RuntimeException retried = assertThrows(RuntimeException.class,
+            () -> paymentService.processPayment(testPaymentRequest, "retry-key"));
+
+        // Then
+        assertEquals(first.getMessage(), retried.getMessage());
+        verify(paymentGatewayService, times(1)).processPayment(testPaymentRequest);
+        verify(idempotencyRecordRepository).finish("retry-key", IdempotencyRecord.Status.FAILED, 1L, first.getMessage());
+    }
+
+    @Test
+    void processPayment_ShouldKeepIdempotencyKey_WhenChargedPaymentCannotBeFinished() {
+        // Given - the card is charged, then neither COMPLETED nor FAILED can be written
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), any(), any(), any())).thenReturn(0);
+        when(paymentGatewayService.processPayment(testPaymentRequest)).thenReturn("TXN_123456789");
+
+        // When
+        PaymentFailedException first = assertThrows(PaymentFailedException.class,
+            () -> paymentService.processPayment(testPaymentRequest, "retry-key"));
+        PaymentFailedException retried = assertThrows(PaymentFailedException.class,
+            () -> paymentService.processPayment(testPaymentRequest, "retry-key"));
+
+        // Then - the retry is not charged again
+        assertEquals(1L, first.getPaymentId());
+        assertEquals(1L, retried.getPaymentId());
+        verify(paymentGatewayService, times(1)).processPayment(testPaymentRequest);
+        verify(idempotencyRecordRepository, never()).deleteById(anyString());
+        verify(idempotencyRecordRepository).finish("retry-key", IdempotencyRecord.Status.FAILED, 1L, first.getMessage());
+    }
+
+    @Test
+    void acceptPayment_ShouldSavePendingPaymentAndQueueProcessing() {
+        // Given
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.COMPLETED),
+            eq("TXN_123456789"), anyString())).thenReturn(1);
+        when(paymentGatewayService.processPayment(testPaymentRequest)).thenReturn("TXN_123456789");
+        ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+        // When
+        PaymentStatusResponse accepted = paymentService.acceptPayment(testPaymentRequest);
+
+        // Then - the caller gets the PENDING payment before the gateway is called
+        assertEquals(1L, accepted.getPaymentId());
+        assertEquals(Payment.PaymentStatus.PENDING, accepted.getStatus());
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentGatewayService, never()).processPayment(any(PaymentRequest.class));
+        verify(paymentProcessingQueue).submit(taskCaptor.capture());
+
+        // When the worker runs the queued task
+        taskCaptor.getValue().run();
+
+        // Then
+        verify(paymentGatewayService).processPayment(testPaymentRequest);
+        assertEquals(Payment.PaymentStatus.COMPLETED, testPayment.getStatus());
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(outboxNotificationRepository).save(argThat(n -> n.getType() == OutboxNotification.Type.PAYMENT_CONFIRMATION
+            && n.getPaymentId().equals(1L) && n.getUserId().equals(1L) && n.getOrderId().equals(100L)));
+        assertEquals(Arrays.asList(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.COMPLETED),
+            paymentStateMachine.getTransitions(1L).stream().map(PaymentTransition::getToStatus).toList());
+    }
+
+    @Test
+    void acceptPayment_ShouldFailPayment_WhenQueueIsFull() {
+        // Given
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.FAILED),
+            isNull(), eq("Payment rejected: processing queue is full"))).thenReturn(1);
+        doThrow(new RejectedExecutionException("full")).when(paymentProcessingQueue).submit(any(Runnable.class));
+
+        // When & Then
+        assertThrows(PaymentRejectedException.class, () -> paymentService.acceptPayment(testPaymentRequest));
+
+        assertEquals(Payment.PaymentStatus.FAILED, testPayment.getStatus());
+        verify(paymentRepository, times(1)).save(any(Payment.class));
+        verify(paymentGatewayService, never()).processPayment(any(PaymentRequest.class));
+        verify(outboxNotificationRepository, never()).save(any(OutboxNotification.class)); // the 503 tells the client
+    }
+
+    @Test
+    void failStalePayments_ShouldFailPaymentsLeftUnfinished() {
+        // Given - one payment stranded by a restart, one finished by its worker meanwhile
+        ReflectionTestUtils.setField(paymentService, "asyncProcessingEnabled", true);
+        Payment finishedMeanwhile = new Payment(101L, 1L, new BigDecimal("5.00"), Payment.PaymentMethod.CREDIT_CARD);
+        finishedMeanwhile.setId(2L);
+        when(paymentRepository.findByStatusInAndPaymentDateBefore(anyCollection(), any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(testPayment, finishedMeanwhile));
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.FAILED), isNull(), anyString()))
+            .thenReturn(1);
+        when(paymentRepository.transitionStatus(eq(2L), anyCollection(), eq(Payment.PaymentStatus.FAILED), isNull(), anyString()))
+            .thenReturn(0);
+
+        // When
+        paymentService.failStalePayments();
+
+        // Then - the 15 minute default, and the customer hears about the failure
+        verify(paymentRepository).findByStatusInAndPaymentDateBefore(
+            eq(EnumSet.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING)),
+            argThat(cutoff -> cutoff.isBefore(LocalDateTime.now().minusMinutes(14))), any(Pageable.class));
+        assertEquals(Payment.PaymentStatus.FAILED, testPayment.getStatus());
+        verify(outboxNotificationRepository).save(argThat(n -> n.getType() == OutboxNotification.Type.PAYMENT_FAILURE
+            && n.getPaymentId().equals(1L)));
+        verify(paymentGatewayService, never()).processPayment(any(PaymentRequest.class));
+    }
+
+    @Test
+    void failStalePayments_ShouldDoNothing_WhenAsyncProcessingIsDisabled() {
+        // When
+        paymentService.failStalePayments();
+
+        // Then
+        verifyNoInteractions(paymentRepository);
+    }
+
+    @Test
+    void getPaymentStatus_ShouldReturnStatusOnly() {
+        // Given
+        testPayment.setStatus(Payment.PaymentStatus.COMPLETED);
+        testPayment.setTransactionId("TXN_123456789");
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
+
+        // When
+        PaymentStatusResponse status = paymentService.getPaymentStatus(1L);
+
+        // Then
+        assertEquals(1L, status.getPaymentId());
+        assertEquals(Payment.PaymentStatus.COMPLETED, status.getStatus());
+        assertEquals("TXN_123456789", status.getTransactionId());
+    }
+
+    @Test
+    void getPaymentStatus_ShouldReportProcessing_WhileQueuedPaymentIsInFlight() {
+        // Given - a queued payment the worker has picked up but not finished
+        when(paymentRepository.save(any(Payment.class))).thenReturn(testPayment);
+        paymentStateMachine.accept(testPayment);
+        Payment stored = new Payment();
+        stored.setId(1L);
+        stored.setStatus(Payment.PaymentStatus.PENDING);
+        paymentStateMachine.start(stored);
+        Payment reloaded = new Payment();
+        reloaded.setId(1L);
+        reloaded.setStatus(Payment.PaymentStatus.PENDING);
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(reloaded));
+        paymentCache.evict(1L); // as after the cache entry expired
+
+        // When
+        PaymentStatusResponse status = paymentService.getPaymentStatus(1L);
+
+        // Then
+        assertEquals(Payment.PaymentStatus.PROCESSING, status.getStatus());
+    }
+
+    @Test
+    void processPayments_ShouldDelegateToBatchProcessor() {
+        // Given
+        List<PaymentRequest> requests = Arrays.asList(testPaymentRequest, testPaymentRequest);
+        List<BatchPaymentResult> results = Arrays.asList(
+            BatchPaymentResult.success(0, testPayment),
+            BatchPaymentResult.success(1, testPayment));
+        when(paymentBatchProcessor.process(requests)).thenReturn(results);
+
+        // When
+        List<BatchPaymentResult> result = paymentService.processPayments(requests);
+
+        // Then
+        assertSame(results, result);
+        verify(paymentBatchProcessor).process(requests);
     }
 
     @Test
@@ -161,6 +402,39 @@ class PaymentServiceTest {
         verify(paymentRepository).findById(1L);
     }
 
+    @Test
+    void getPaymentById_ShouldServeRepeatedLookupsFromCache() {
+        // Given
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
+
+        // When
+        paymentService.getPaymentById(1L);
+        Payment result = paymentService.getPaymentById(1L);
+
+        // Then
+        assertEquals(1L, result.getId());
+        verify(paymentRepository, times(1)).findById(1L);
+        assertEquals(1, paymentService.getCacheStats().getHitCount());
+    }
+
+    @Test
+    void getPaymentById_ShouldReturnUpdatedPayment_AfterRefund() {
+        // Given
+        testPayment.setStatus(Payment.PaymentStatus.COMPLETED);
+        testPayment.setTransactionId("TXN_123456789");
+        when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.REFUNDED),
+            eq("TXN_123456789"), any())).thenReturn(1);
+        paymentService.refundPayment(1L);
+
+        // When
+        Payment result = paymentService.getPaymentById(1L);
+
+        // Then - the transition refreshed the cache, no reload needed
+        assertEquals(Payment.PaymentStatus.REFUNDED, result.getStatus());
+        verify(paymentRepository, times(1)).findById(1L);
+    }
+
     @Test
     void getPaymentById_ShouldThrowException_WhenPaymentNotFound() {
         // Given
@@ -178,47 +452,120 @@ class PaymentServiceTest {
     void getPaymentsByOrderId_ShouldReturnPayments() {
         // Given
         List<Payment> payments = Arrays.asList(testPayment);
-        when(paymentRepository.findByOrderId(100L)).thenReturn(payments);
+        when(paymentRepository.findByOrderIdAndIdGreaterThanOrderByIdAsc(eq(100L), eq(0L), any(Pageable.class))).thenReturn(payments);
 
         // When
-        List<Payment> result = paymentService.getPaymentsByOrderId(100L);
+        PaymentPage result = paymentService.getPaymentsByOrderId(100L, null, null);
 
         // Then
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(testPayment.getId(), result.get(0).getId());
-        verify(paymentRepository).findByOrderId(100L);
+        assertEquals(1, result.getPayments().size());
+        assertEquals(testPayment.getId(), result.getPayments().get(0).getId());
+        assertFalse(result.hasNext());
     }
 
     @Test
     void getPaymentsByUserId_ShouldReturnPayments() {
         // Given
         List<Payment> payments = Arrays.asList(testPayment);
-        when(paymentRepository.findByUserId(1L)).thenReturn(payments);
+        when(paymentRepository.findByUserIdOrderByPaymentDateDescIdDesc(eq(1L), any(Pageable.class))).thenReturn(payments);
 
         // When
-        List<Payment> result = paymentService.getPaymentsByUserId(1L);
+        PaymentPage result = paymentService.getPaymentsByUserId(1L, null, null);
 
         // Then
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(testPayment.getId(), result.get(0).getId());
-        verify(paymentRepository).findByUserId(1L);
+        assertEquals(1, result.getPayments().size());
+        assertEquals(testPayment.getId(), result.getPayments().get(0).getId());
+        assertFalse(result.hasNext());
     }
 
     @Test
-    void getAllPayments_ShouldReturnAllPayments() {
+    void getPaymentsByUserId_ShouldContinueFromCursor() {
         // Given
-        List<Payment> payments = Arrays.asList(testPayment);
-        when(paymentRepository.findAll()).thenReturn(payments);
+        testPayment.setPaymentDate(LocalDateTime.of(2024, 5, 1, 12, 0));
+        String cursor = PaymentCursor.byDateAndId(testPayment).encode();
+        when(paymentRepository.findByUserIdBefore(eq(1L), eq(testPayment.getPaymentDate()), eq(1L), any(Pageable.class)))
+            .thenReturn(Collections.emptyList());
 
         // When
-        List<Payment> result = paymentService.getAllPayments();
+        PaymentPage result = paymentService.getPaymentsByUserId(1L, cursor, 10);
 
         // Then
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        verify(paymentRepository).findAll();
+        assertTrue(result.getPayments().isEmpty());
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    void getPaymentsByUserId_ShouldRejectCursorWithoutDate() {
+        // Given
+        String cursor = PaymentCursor.byId(testPayment).encode();
+
+        // When & Then
+        assertThrows(IllegalArgumentException.class, () -> paymentService.getPaymentsByUserId(1L, cursor, 10));
+    }
+
+    @Test
+    void getAllPayments_ShouldReturnFirstPageWithNextCursor() {
+        // Given - one row more than the page size means there is a next page
+        List<Payment> payments = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            Payment payment = new Payment();
+            payment.setId(id);
+            payments.add(payment);
+        }
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(paymentRepository.findByIdGreaterThanOrderByIdAsc(eq(0L), pageableCaptor.capture())).thenReturn(payments);
+
+        // When
+        PaymentPage result = paymentService.getAllPayments(null, 2);
+
+        // Then
+        assertEquals(2, result.getPayments().size());
+        assertTrue(result.hasNext());
+        assertEquals(2L, PaymentCursor.decode(result.getNextCursor()).getId());
+        assertEquals(0, pageableCaptor.getValue().getOffset());
+        assertEquals(3, pageableCaptor.getValue().getPageSize());
+    }
+
+    @Test
+    void getAllPayments_ShouldContinueAfterCursorAndCapPageSize() {
+        // Given
+        Payment last = new Payment();
+        last.setId(42L);
+        String cursor = PaymentCursor.byId(last).encode();
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        when(paymentRepository.findByIdGreaterThanOrderByIdAsc(eq(42L), pageableCaptor.capture())).thenReturn(Arrays.asList(testPayment));
+
+        // When
+        PaymentPage result = paymentService.getAllPayments(cursor, 10_000);
+
+        // Then
+        assertEquals(1, result.getPayments().size());
+        assertFalse(result.hasNext());
+        assertEquals(201, pageableCaptor.getValue().getPageSize());
+    }
+
+    @Test
+    void getAllPayments_ShouldRejectInvalidCursorAndPageSize() {
+        assertThrows(IllegalArgumentException.class, () -> paymentService.getAllPayments("not a cursor!", 10));
+        assertThrows(IllegalArgumentException.class, () -> paymentService.getAllPayments(null, 0));
+        verify(paymentRepository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class));
+    }
+
+    @Test
+    void exportPayments_ShouldDelegateToExporter() throws IOException {
+        // Given
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 2, 1, 0, 0);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(paymentExporter.export(Payment.PaymentStatus.COMPLETED, from, to, out)).thenReturn(3L);
+
+        // When
+        long exported = paymentService.exportPayments(Payment.PaymentStatus.COMPLETED, from, to, out);
+
+        // Then
+        assertEquals(3L, exported);
     }
 
     @Test
@@ -228,23 +575,19 @@ class PaymentServiceTest {
         testPayment.setTransactionId("TXN_123456789");
         when(paymentRepository.findById(1L)).thenReturn(Optional.of(testPayment));
 
-        Payment refundedPayment = new Payment();
-        refundedPayment.setId(1L);
-        refundedPayment.setUserId(1L);
-        refundedPayment.setOrderId(100L);
-        refundedPayment.setStatus(Payment.PaymentStatus.REFUNDED);
-        when(paymentRepository.save(any(Payment.class))).thenReturn(refundedPayment);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.REFUNDED),
+            eq("TXN_123456789"), any())).thenReturn(1);
 
         // When
         Payment result = paymentService.refundPayment(1L);
 
         // Then
         assertNotNull(result);
+        assertEquals(Payment.PaymentStatus.REFUNDED, result.getStatus());
         verify(paymentGatewayService).refundPayment("TXN_123456789");
-        verify(paymentRepository).save(any(Payment.class));
-        verify(notificationServiceClient).sendRefundConfirmation(
-            any(Long.class), any(Long.class), any(Long.class)
-        );
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(outboxNotificationRepository).save(argThat(n -> n.getType() == OutboxNotification.Type.REFUND_CONFIRMATION
+            && n.getPaymentId().equals(1L)));
     }
 
     @Test
@@ -259,7 +602,7 @@ class PaymentServiceTest {
 
         assertEquals("Cannot refund payment that is not completed", exception.getMessage());
         verify(paymentGatewayService, never()).refundPayment(anyString());
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).transitionStatus(anyLong(), anyCollection(), any(), any(), any());
     }
 
     @Test
@@ -277,6 +620,6 @@ class PaymentServiceTest {
 
         assertTrue(exception.getMessage().contains("Refund processing failed"));
         verify(paymentGatewayService).refundPayment("TXN_123456789");
-        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentRepository, never()).transitionStatus(anyLong(), anyCollection(), any(), any(), any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.ecommerce.paymentservice.service;
+
+import com.ecommerce.paymentservice.dto.PaymentTransition;
+import com.ecommerce.paymentservice.model.OutboxNotification;
+import com.ecommerce.paymentservice.model.Payment;
+import com.ecommerce.paymentservice.repository.OutboxNotificationRepository;
+import com.ecommerce.paymentservice.repository.PaymentRepository;
+import com.ecommerce.paymentservice.telemetry.TelemetryClient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentStateMachineTest {
+
+    @Mock
+    private PaymentRepository paymentRepository;
+
+    @Mock
+    private PaymentCache paymentCache;
+
+    @Mock
+    private OutboxNotificationRepository outboxNotificationRepository;
+
+    @InjectMocks
+    private PaymentStateMachine paymentStateMachine;
+
+    private Payment testPayment;
+
+    @BeforeEach
+    void setUp() {
+        testPayment = new Payment(100L, 1L, new BigDecimal("99.99"), Payment.PaymentMethod.CREDIT_CARD);
+    }
+
+    @Test
+    void start_ShouldInsertNewPaymentAsProcessing() {
+        // Given
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            payment.setId(1L);
+            return payment;
+        });
+
+        // When
+        Payment started = paymentStateMachine.start(testPayment);
+
+        // Then
+        assertEquals(Payment.PaymentStatus.PROCESSING, started.getStatus());
+        verify(paymentRepository).save(argThat(p -> p.getStatus() == Payment.PaymentStatus.PROCESSING));
+        List<PaymentTransition> transitions = paymentStateMachine.getTransitions(1L);
+        assertEquals(1, transitions.size());
+        assertEquals(Payment.PaymentStatus.PENDING, transitions.get(0).getFromStatus());
+        assertEquals(Payment.PaymentStatus.PROCESSING, transitions.get(0).getToStatus());
+    }
+
+    @Test
+    void start_ShouldOnlyRecordTransition_WhenPaymentAlreadyPersisted() {
+        // Given
+        testPayment.setId(1L);
+
+        // When
+        paymentStateMachine.start(testPayment);
+
+        // Then
+        assertEquals(Payment.PaymentStatus.PROCESSING, testPayment.getStatus());
+        assertEquals(Payment.PaymentStatus.PROCESSING, paymentStateMachine.currentStatus(testPayment));
+        verifyNoInteractions(paymentRepository);
+        verify(paymentCache).put(testPayment);
+    }
+
+    @Test
+    void complete_ShouldApplyOutcomeWithOneConditionalUpdate() {
+        // Given
+        testPayment.setId(1L);
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.COMPLETED),
+            eq("TXN_123456789"), eq("Payment processed successfully"))).thenReturn(1);
+
+        // When
+        Payment completed = paymentStateMachine.complete(testPayment, "TXN_123456789");
+
+        // Then
+        assertEquals(Payment.PaymentStatus.COMPLETED, completed.getStatus());
+        assertEquals("TXN_123456789", completed.getTransactionId());
+        verify(paymentRepository, never()).save(any(Payment.class));
+        verify(paymentCache).put(argThat(p -> p.getStatus() == Payment.PaymentStatus.COMPLETED));
+        assertEquals(Payment.PaymentStatus.PROCESSING, paymentStateMachine.getTransitions(1L).get(0).getFromStatus());
+    }
+
+    @Test
+    void complete_ShouldThrowAndLeavePaymentUntouched_WhenStatusChangedConcurrently() {
+        // Given
+        testPayment.setId(1L);
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.transitionStatus(anyLong(), anyCollection(), any(), any(), any())).thenReturn(0);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> paymentStateMachine.complete(testPayment, "TXN_123456789"));
+
+        assertTrue(exception.getMessage().contains("cannot move to COMPLETED"));
+        assertEquals(Payment.PaymentStatus.PROCESSING, testPayment.getStatus());
+        assertNull(testPayment.getTransactionId());
+        assertTrue(paymentStateMachine.getTransitions(1L).isEmpty());
+        verify(paymentCache).evict(1L);
+        verify(paymentCache, never()).put(any(Payment.class));
+        verify(outboxNotificationRepository, never()).save(any(OutboxNotification.class));
+    }
+
+    @Test
+    void fail_ShouldWriteFailureNotificationToOutbox_WithCallersTrace() {
+        // Given
+        testPayment.setId(1L);
+        testPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+        when(paymentRepository.transitionStatus(eq(1L), anyCollection(), eq(Payment.PaymentStatus.FAILED),
+            any(), eq("Payment failed: Declined"))).thenReturn(1);
+
+        // When
+        TelemetryClient.TraceContext.runWith(TelemetryClient.TraceContext.sampled("trace_1", "span_1", 0L),
+            () -> paymentStateMachine.fail(testPayment, "Payment failed: Declined"));
+
+        // Then
+        verify(outboxNotificationRepository).save(argThat(n -> n.getType() == OutboxNotification.Type.PAYMENT_FAILURE
+            && n.getPaymentId().equals(1L) && n.getUserId().equals(1L) && n.getOrderId().equals(100L)
+            && n.getStatus() == OutboxNotification.Status.PENDING
+            && "trace_1".equals(n.getTraceId()) && "span_1".equals(n.getSpanId())));
+    }
+
+    @Test
+    void getTransitions_ShouldForgetOldestPayments_WhenOverCapacity() {
+        // Given
+        ReflectionTestUtils.setField(paymentStateMachine, "maxTrackedPayments", 2);
+
+        // When
+        for (long id = 1; id <= 3; id++) {
+            Payment payment = new Payment();
+            payment.setId(id);
+            paymentStateMachine.start(payment);
+        }
+
+        // Then
+        assertTrue(paymentStateMachine.getTransitions(1L).isEmpty());
+        assertEquals(1, paymentStateMachine.getTransitions(2L).size());
+        assertEquals(1, paymentStateMachine.getTransitions(3L).size());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void indexOf_ShouldKeepEveryValueWithinItsBucketBounds() {
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowestValueAt(index) <= value, "value " + value);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value, "value " + value);
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE));
+    }
+
+    @Test
+    void indexOf_ShouldBoundRelativeError() {
+        for (long value = 128; value < 10_000_000; value = value * 3 / 2 + 1) {
+            int index = LatencyHistogram.indexOf(value);
+            long width = LatencyHistogram.highestValueAt(index) - LatencyHistogram.lowestValueAt(index) + 1;
+            assertTrue((double) width / value <= 1.0 / 64, "value " + value + " width " + width);
+        }
+    }
+
+    @Test
+    void valueAtPercentile_ShouldReturnTopOfBucket() {
+        // Given - 1..1000 ms once each
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addTo(counts);
+
+        // When
+        long p50 = LatencyHistogram.valueAtPercentile(counts, 1000, 50.0);
+        long p99 = LatencyHistogram.valueAtPercentile(counts, 1000, 99.0);
+
+        // Then
+        assertTrue(p50 >= 500 && p50 <= 508, "p50 " + p50);
+        assertTrue(p99 >= 990 && p99 <= 1006, "p99 " + p99);
+        assertEquals(500_500, histogram.getSum());
+    }
+
+    @Test
+    void record_ShouldClampOutOfRangeValues() {
+        // Given
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        // When
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        // Then
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        histogram.addTo(counts);
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[LatencyHistogram.BUCKET_COUNT - 1]);
+    }
+}
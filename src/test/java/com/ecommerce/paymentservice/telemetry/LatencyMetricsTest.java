@@ -0,0 +1,80 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import com.ecommerce.paymentservice.dto.LatencySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyMetricsTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final LatencyMetrics metrics = new LatencyMetrics(10_000, 6, now::get);
+
+    @Test
+    void snapshots_ShouldReportPercentilesPerOperation() {
+        // Given
+        for (int i = 1; i <= 100; i++) {
+            metrics.record("payment-gateway", "process_payment", i);
+        }
+        metrics.record(null, "process_payment", 250);
+
+        // When
+        List<LatencySnapshot> snapshots = metrics.snapshots();
+
+        // Then
+        assertEquals(2, snapshots.size());
+        LatencySnapshot gateway = snapshots.get(0);
+        assertEquals("payment-gateway_process_payment", gateway.getOperation());
+        assertEquals(100, gateway.getCount());
+        assertEquals(60, gateway.getWindowSeconds());
+        assertEquals(1, gateway.getMinMs());
+        assertEquals(100, gateway.getMaxMs());
+        assertEquals(50.5, gateway.getMeanMs(), 0.001);
+        assertEquals(50, gateway.getP50Ms());
+        assertEquals(99, gateway.getP99Ms());
+
+        LatencySnapshot trace = snapshots.get(1);
+        assertEquals("process_payment", trace.getOperation());
+        assertEquals(1, trace.getCount());
+        assertTrue(trace.getP99Ms() >= 250 && trace.getP99Ms() <= 253, "p99 " + trace.getP99Ms());
+    }
+
+    @Test
+    void snapshots_ShouldForgetSamplesOlderThanTheWindow() {
+        // Given
+        metrics.record("notification-service", "send_payment_confirmation", 900);
+        now.addAndGet(30_000);
+        metrics.record("notification-service", "send_payment_confirmation", 10);
+
+        // When - the first sample is still inside the 60 second window
+        LatencySnapshot within = metrics.snapshots().get(0);
+        now.addAndGet(40_000);
+        LatencySnapshot after = metrics.snapshots().get(0);
+
+        // Then
+        assertEquals(2, within.getCount());
+        assertTrue(within.getMaxMs() >= 900);
+        assertEquals(1, after.getCount());
+        assertEquals(10, after.getMaxMs());
+        assertEquals(2, after.getTotalCount());
+    }
+
+    @Test
+    void record_ShouldReuseSlot_WhenWindowWrapsAround() {
+        // Given
+        metrics.record(null, "refund_payment", 5);
+
+        // When - a full window later the same slot is taken by a new interval
+        now.addAndGet(60_000);
+        metrics.record(null, "refund_payment", 7);
+
+        // Then
+        LatencySnapshot snapshot = metrics.snapshots().get(0);
+        assertEquals(1, snapshot.getCount());
+        assertEquals(7, snapshot.getMinMs());
+        assertEquals(2, snapshot.getTotalCount());
+    }
+}
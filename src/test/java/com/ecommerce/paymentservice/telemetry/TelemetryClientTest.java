@@ -1,5 +1,8 @@
 package com.ecommerce.paymentservice.telemetry;
 
+import com.ecommerce.paymentservice.dto.LatencySnapshot;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -7,9 +10,17 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +45,7 @@ class TelemetryClientTest {
     @AfterEach
     void tearDown() throws IOException {
         mockWebServer.shutdown();
+        telemetryClient.shutdown();
         // Clear trace context after each test
         TelemetryClient.TraceContext.clear();
     }
@@ -141,22 +153,89 @@ class TelemetryClientTest {
     }
 
     @Test
-    void logEvent_ShouldSendLogEvent() throws InterruptedException {
+    void logEvent_ShouldSendLogEvent_WhenTraceWasNotStartedHere() throws InterruptedException {
+        // Given - a trace propagated from elsewhere has no span to attach lines to
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        TelemetryClient.TraceContext.propagate("trace-123", "span-456");
+
+        // When
+        telemetryClient.logEvent("Payment processing started", "INFO");
+
+        // Then
+        RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals("POST", request.getMethod());
+        assertEquals("/api/telemetry/events", request.getPath());
+        assertTrue(request.getBody().readUtf8().contains("log_info"));
+    }
+
+    @Test
+    void logEvent_ShouldAttachLinesToSpan_AndSendThemWithFinishTrace() throws Exception {
         // Given
         mockWebServer.enqueue(new MockResponse().setResponseCode(200)); // for startTrace
-        mockWebServer.enqueue(new MockResponse().setResponseCode(200)); // for logEvent
-
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200)); // for finishTrace
         telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
         mockWebServer.takeRequest(1, TimeUnit.SECONDS);
 
         // When
         telemetryClient.logEvent("Payment processing started", "INFO");
+        telemetryClient.logEvent("Payment {} failed: {}", "ERROR", 42L, "Declined");
 
-        // Then
+        // Then - nothing is sent for the log lines themselves
+        assertNull(mockWebServer.takeRequest(400, TimeUnit.MILLISECONDS));
+
+        telemetryClient.finishTrace("processPayment", 200, null);
         RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
         assertNotNull(request);
-        assertEquals("POST", request.getMethod());
-        assertEquals("/api/telemetry/events", request.getPath());
+        JsonNode events = new ObjectMapper().readTree(request.getBody().readUtf8());
+        assertEquals(1, events.size());
+        JsonNode annotations = events.get(0).get("annotations");
+        assertEquals("processPayment_complete", events.get(0).get("operation").asText());
+        assertEquals(2, annotations.size());
+        assertEquals("Payment processing started", annotations.get(0).get("message").asText());
+        assertEquals("ERROR", annotations.get(1).get("level").asText());
+        assertEquals("Payment 42 failed: Declined", annotations.get(1).get("message").asText());
+    }
+
+    @Test
+    void logEvent_ShouldFallBackToLogEvent_WhenSpanIsAlreadyFinished() throws InterruptedException {
+        // Given - e.g. a queued task that still holds the request's context
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        ReflectionTestUtils.setField(telemetryClient, "flushIntervalMs", 300L);
+        telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+        TelemetryClient.TraceContext handedOff = TelemetryClient.TraceContext.current();
+        telemetryClient.finishTrace("processPayment", 202, null);
+
+        // When
+        TelemetryClient.TraceContext.runWith(handedOff, () -> telemetryClient.logEvent("Payment sent to gateway", "INFO"));
+
+        // Then
+        String bodies = mockWebServer.takeRequest(1, TimeUnit.SECONDS).getBody().readUtf8();
+        RecordedRequest second = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        if (second != null) bodies += second.getBody().readUtf8();
+        assertTrue(bodies.contains("log_info"));
+        assertTrue(bodies.contains("Payment sent to gateway"));
+    }
+
+    @Test
+    void logEvent_ShouldSendSeparateEvents_OncePerSpanLimitIsReached() throws Exception {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        ReflectionTestUtils.setField(telemetryClient, "maxAnnotationsPerSpan", 1);
+        ReflectionTestUtils.setField(telemetryClient, "flushIntervalMs", 300L);
+        telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+
+        // When
+        telemetryClient.logEvent("first", "INFO");
+        telemetryClient.logEvent("second", "INFO");
+        telemetryClient.finishTrace("processPayment", 200, null);
+
+        // Then
+        JsonNode events = new ObjectMapper().readTree(mockWebServer.takeRequest(1, TimeUnit.SECONDS).getBody().readUtf8());
+        assertEquals(3, events.size()); // start span, overflowing log line, completion
+        assertEquals("second", events.get(1).get("metadata").asText());
+        assertEquals("first", events.get(2).get("annotations").get(0).get("message").asText());
     }
 
     @Test
@@ -172,6 +251,49 @@ class TelemetryClientTest {
         assertNull(request); // No request should be sent
     }
 
+    @Test
+    void logEvent_ShouldNotBuildMessage_WhenNoActiveTrace() {
+        // Given - no active trace
+        AtomicInteger built = new AtomicInteger();
+
+        // When
+        telemetryClient.logEvent(() -> {
+            built.incrementAndGet();
+            return "Payment processing started";
+        }, "INFO");
+
+        // Then
+        assertEquals(0, built.get());
+    }
+
+    @Test
+    void logEvent_ShouldFormatTemplate_WhenTraceIsActive() throws InterruptedException {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        ReflectionTestUtils.setField(telemetryClient, "flushIntervalMs", 300L);
+        telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+
+        // When
+        telemetryClient.logEvent("Payment {} failed: {}", "ERROR", 42L, "Payment declined");
+        telemetryClient.logEvent(() -> "Supplied message", "INFO");
+        telemetryClient.finishTrace("processPayment", 200, null);
+
+        // Then
+        RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull(request);
+        String body = request.getBody().readUtf8();
+        assertTrue(body.contains("Payment 42 failed: Payment declined"));
+        assertTrue(body.contains("Supplied message"));
+    }
+
+    @Test
+    void format_ShouldReplacePlaceholdersInOrder() {
+        assertEquals("Payment 1 for order 2", TelemetryClient.format("Payment {} for order {}", 1L, 2L));
+        assertEquals("Batch of 3 payments {}", TelemetryClient.format("Batch of {} payments {}", 3));
+        assertEquals("No placeholders", TelemetryClient.format("No placeholders", "extra"));
+        assertEquals("Value null", TelemetryClient.format("Value {}", (Object) null));
+    }
+
     @Test
     void sendTelemetryEvent_ShouldHandleNetworkFailure() throws InterruptedException {
         // Given
@@ -186,6 +308,105 @@ class TelemetryClientTest {
         assertNotNull(request);
     }
 
+    @Test
+    void events_ShouldBeSentAsOneBatchedRequest() throws InterruptedException {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        ReflectionTestUtils.setField(telemetryClient, "flushIntervalMs", 500L);
+
+        // When - a whole request's worth of events
+        telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+        telemetryClient.logEvent("Payment processing started", "INFO");
+        telemetryClient.recordServiceCall("notification-service", "sendConfirmation", "POST",
+            "/api/notifications/payment-confirmation", 150, 200);
+        telemetryClient.finishTrace("processPayment", 200, null);
+
+        // Then
+        RecordedRequest request = mockWebServer.takeRequest(2, TimeUnit.SECONDS);
+        assertNotNull(request);
+        assertEquals("/api/telemetry/events", request.getPath());
+        String body = request.getBody().readUtf8();
+        assertTrue(body.startsWith("["));
+        assertTrue(body.contains("\"annotations\":[{"));
+        assertTrue(body.contains("Payment processing started"));
+        assertTrue(body.contains("processPayment_complete"));
+        assertNull(mockWebServer.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void startTrace_ShouldSkipEverything_WhenTraceIsNotSampled() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(telemetryClient, "samplingRate", 0.0);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+
+        // When
+        String traceId = telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+        telemetryClient.logEvent("Payment processing started", "INFO");
+        telemetryClient.recordServiceCall("notification-service", "sendConfirmation", "POST",
+            "/api/notifications/payment-confirmation", 150, 200);
+        telemetryClient.finishTrace("processPayment", 200, null);
+
+        // Then
+        assertNull(traceId);
+        assertNull(TelemetryClient.TraceContext.isSampled());
+        assertNull(mockWebServer.takeRequest(500, TimeUnit.MILLISECONDS));
+        assertEquals(1, telemetryClient.getStats().getUnsampledTraces());
+        assertEquals(0, telemetryClient.getStats().getSampledTraces());
+    }
+
+    @Test
+    void finishTrace_ShouldKeepErrorTrace_WhenTraceIsNotSampled() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(telemetryClient, "samplingRate", 0.0);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+        assertNull(TelemetryClient.TraceContext.getTraceId());
+
+        // When
+        telemetryClient.finishTrace("processPayment", 500, "Internal server error");
+
+        // Then
+        RecordedRequest request = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull(request);
+        String body = request.getBody().readUtf8();
+        assertTrue(body.contains("ERROR"));
+        assertTrue(body.contains("trace_"));
+        assertEquals(1, telemetryClient.getStats().getKeptErrorTraces());
+        assertNull(TelemetryClient.TraceContext.isSampled());
+    }
+
+    @Test
+    void startTrace_ShouldMarkTraceSampled_WhenRateIsOne() {
+        // When
+        telemetryClient.startTrace("processPayment", "POST", "/api/payments/process", "user123");
+
+        // Then
+        assertEquals(Boolean.TRUE, TelemetryClient.TraceContext.isSampled());
+        assertEquals(1, telemetryClient.getStats().getSampledTraces());
+        assertEquals(1.0, telemetryClient.getStats().getSamplingRate());
+    }
+
+    @Test
+    void latencySnapshots_ShouldCoverUnsampledTracesAndCallsOutsideATrace() {
+        // Given
+        ReflectionTestUtils.setField(telemetryClient, "samplingRate", 0.0);
+        telemetryClient.startTrace("process_payment", "POST", "/api/payments/process", "user123");
+
+        // When
+        telemetryClient.recordServiceCall("payment-gateway", "process_payment", "POST", "/gateway", 120, 200);
+        telemetryClient.finishTrace("process_payment", 200, null);
+        telemetryClient.recordServiceCall("payment-gateway", "process_payment", "POST", "/gateway", 80, 200);
+
+        // Then
+        List<LatencySnapshot> snapshots = telemetryClient.getLatencySnapshots();
+        assertEquals(2, snapshots.size());
+        assertEquals("payment-gateway_process_payment", snapshots.get(0).getOperation());
+        assertEquals(2, snapshots.get(0).getCount());
+        assertEquals(120, snapshots.get(0).getMaxMs());
+        assertEquals("process_payment", snapshots.get(1).getOperation());
+        assertEquals(1, snapshots.get(1).getCount());
+    }
+
     @Test
     void generateTraceId_ShouldReturnUniqueIds() {
         // When
@@ -238,6 +459,83 @@ class TelemetryClientTest {
         assertEquals("propagated-span", TelemetryClient.TraceContext.getSpanId());
     }
 
+    @Test
+    void traceContext_ShouldBeImmutableSnapshot() {
+        // Given
+        TelemetryClient.TraceContext.propagate("trace-1", "span-1");
+        TelemetryClient.TraceContext captured = TelemetryClient.TraceContext.current();
+
+        // When
+        TelemetryClient.TraceContext.setSpanId("span-2");
+
+        // Then
+        assertEquals("span-1", captured.spanId());
+        assertEquals("span-2", TelemetryClient.TraceContext.getSpanId());
+        assertEquals("trace-1", TelemetryClient.TraceContext.getTraceId());
+    }
+
+    @Test
+    void traceContext_ShouldKeepSpanAnnotations_WhenAnyFieldIsReplaced() {
+        // Given
+        SpanAnnotations annotations = new SpanAnnotations(10);
+        TelemetryClient.TraceContext.set(TelemetryClient.TraceContext.started("trace-1", "span-1", 1000L, annotations));
+
+        // When
+        TelemetryClient.TraceContext.setTraceId("trace-2");
+        TelemetryClient.TraceContext.setSpanId("span-2");
+        TelemetryClient.TraceContext.setStartTime(2000L);
+        TelemetryClient.TraceContext.setSampled(Boolean.TRUE);
+
+        // Then
+        assertSame(annotations, TelemetryClient.TraceContext.current().annotations());
+    }
+
+    @Test
+    void traceContext_ShouldFollowTaskAcrossExecutorAndRestoreWorkerState() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        TelemetryClient.TraceContext.set(TelemetryClient.TraceContext.sampled("trace-1", "span-1", 1000L));
+
+        try {
+            // When
+            Callable<String> task = TelemetryClient.TraceContext.wrap(() -> TelemetryClient.TraceContext.getTraceId());
+            String seenByWorker = executor.submit(task).get(1, TimeUnit.SECONDS);
+            String leftOnWorker = executor.submit(() -> TelemetryClient.TraceContext.getTraceId()).get(1, TimeUnit.SECONDS);
+
+            // Then
+            assertEquals("trace-1", seenByWorker);
+            assertNull(leftOnWorker);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void traceContext_ShouldTravelThroughReactorContext() {
+        // Given
+        TelemetryClient.TraceContext.propagate("trace-1", "span-1");
+
+        // When - the inner work runs on a scheduler thread that has no ThreadLocal state
+        String traceId = Mono.deferContextual(context -> Mono.just(TelemetryClient.TraceContext.from(context).traceId()))
+            .subscribeOn(Schedulers.boundedElastic())
+            .contextWrite(TelemetryClient.TraceContext::captureInto)
+            .block(Duration.ofSeconds(1));
+
+        // Then
+        assertEquals("trace-1", traceId);
+    }
+
+    @Test
+    void traceContext_ShouldLeaveReactorContextEmpty_WhenNoTrace() {
+        // When
+        boolean present = Mono.deferContextual(context -> Mono.just(TelemetryClient.TraceContext.from(context) != null))
+            .contextWrite(TelemetryClient.TraceContext::captureInto)
+            .block(Duration.ofSeconds(1));
+
+        // Then
+        assertFalse(present);
+    }
+
     @Test
     void constructor_ShouldInitializeWebClient() {
         // When & Then
@@ -0,0 +1,227 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryCompactWriterTest {
+
+    private static final int EVENTS_PER_PAYMENT = 7;
+
+    private MockWebServer receiver;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        receiver = new MockWebServer();
+        receiver.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        receiver.shutdown();
+    }
+
+    @Test
+    void writeBatch_ShouldRoundTripAllFields() throws IOException {
+        // Given
+        List<TelemetryEvent> events = List.of(
+            new TelemetryEvent(TelemetryEvent.SPAN, "trace_1", "span_1", null, "payment-service", "process_payment",
+                1_700_000_000_000_000_000L, -1, "SUCCESS", "POST", "/api/payments/process", 0, "user-7", null, null),
+            new TelemetryEvent(TelemetryEvent.SPAN, "trace_1", "span_2", "span_1", "payment-service", "payment-gateway_process_payment",
+                1_700_000_000_000_500_000L, 412, "ERROR", "POST", "http://gateway/charge", 502, null, "Gateway said \"no\" é中😀", "Outbound call"),
+            TelemetryEvent.log("trace_1", "span_1", "payment-service", "log_info", "Payment 42 done"),
+            new TelemetryEvent(TelemetryEvent.SPAN, "trace_1", "span_1", null, "payment-service", "process_payment_complete",
+                1_700_000_000_009_000_000L, 9, "SUCCESS", null, null, 200, null, "", null, List.of(
+                    new TelemetryEvent.Annotation(1_700_000_000_001_000_000L, "INFO", "Processing payment for order: 7"),
+                    new TelemetryEvent.Annotation(1_700_000_000_008_000_000L, "ERROR", "Payment 42 failed: Declined"))));
+        TelemetryCompactWriter writer = new TelemetryCompactWriter(64);
+
+        // When
+        writer.writeBatch(events);
+
+        // Then
+        assertEquals(events, decode(Arrays.copyOf(writer.buffer(), writer.size())));
+    }
+
+    @Test
+    void writeBatch_ShouldStoreRepeatedStringsOnce() throws IOException {
+        // Given
+        List<TelemetryEvent> events = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            events.add(TelemetryEvent.log("trace_1", "span_1", "payment-service", "log_info", "same message"));
+        }
+        TelemetryCompactWriter writer = new TelemetryCompactWriter(64);
+
+        // When
+        writer.writeBatch(events);
+
+        // Then
+        DataInputStream in = new DataInputStream(new GZIPInputStream(
+            new ByteArrayInputStream(writer.buffer(), 0, writer.size())));
+        in.skipNBytes(TelemetryCompactWriter.MAGIC.length + 1);
+        assertEquals(7, readVarint(in)); // LOG, trace, span, service, operation, SUCCESS, message
+    }
+
+    @Test
+    void writeBatch_ShouldReuseWriterAcrossBatches() throws IOException {
+        // Given
+        TelemetryCompactWriter writer = new TelemetryCompactWriter(16);
+        List<TelemetryEvent> first = paymentEvents(0);
+        List<TelemetryEvent> second = paymentEvents(1);
+
+        // When
+        writer.writeBatch(first);
+        writer.writeBatch(second);
+
+        // Then
+        assertEquals(second, decode(Arrays.copyOf(writer.buffer(), writer.size())));
+    }
+
+    @Test
+    void send_ShouldDeliverDecodableCompactBatch_AndUseLessBandwidthThanJson() throws Exception {
+        // Given - the same payments sent once as JSON and once compact to a stub receiver
+        int payments = 20;
+        List<TelemetryEvent> events = new ArrayList<>();
+        for (int i = 0; i < payments; i++) {
+            events.addAll(paymentEvents(i));
+        }
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+        receiver.enqueue(new MockResponse().setResponseCode(200));
+        String url = receiver.url("/api/telemetry/events").toString();
+        WebClient webClient = WebClient.builder().build();
+        TelemetrySender json = new TelemetrySender(webClient, url, 1, 5_000, null, TelemetryWireFormat.JSON);
+        TelemetrySender compact = new TelemetrySender(webClient, url, 1, 5_000, null, TelemetryWireFormat.COMPACT);
+
+        // When
+        json.send(events);
+        assertTrue(json.awaitIdle(2_000));
+        compact.send(events);
+        assertTrue(compact.awaitIdle(2_000));
+
+        // Then
+        RecordedRequest jsonRequest = receiver.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest compactRequest = receiver.takeRequest(1, TimeUnit.SECONDS);
+        byte[] jsonBody = jsonRequest.getBody().readByteArray();
+        byte[] compactBody = compactRequest.getBody().readByteArray();
+
+        assertEquals("application/x-telemetry-compact", compactRequest.getHeader("Content-Type"));
+        assertEquals("gzip", compactRequest.getHeader("Content-Encoding"));
+        assertEquals(events, decode(compactBody));
+        JsonNode jsonEvents = new ObjectMapper().readTree(jsonBody);
+        assertEquals(events.size(), jsonEvents.size());
+
+        double jsonPerPayment = (double) jsonBody.length / payments;
+        double compactPerPayment = (double) compactBody.length / payments;
+        System.out.printf("Telemetry bytes per payment: json=%.0f compact=%.0f saved=%.0f%%%n",
+            jsonPerPayment, compactPerPayment, 100 * (1 - compactPerPayment / jsonPerPayment));
+        assertTrue(compactBody.length * 3 < jsonBody.length,
+            "compact " + compactBody.length + " bytes vs json " + jsonBody.length);
+    }
+
+    // The events one payment produces: request span, log lines, gateway and notification calls, completion
+    private List<TelemetryEvent> paymentEvents(int payment) {
+        String traceId = "trace_" + String.format("%032x", 0xabcdef00L + payment);
+        String root = "span_" + String.format("%016x", 0x1000L + payment);
+        long start = 1_700_000_000_000_000_000L + payment * 50_000_000L;
+        List<TelemetryEvent> events = new ArrayList<>(EVENTS_PER_PAYMENT);
+        events.add(new TelemetryEvent(TelemetryEvent.SPAN, traceId, root, null, "payment-service", "process_payment",
+            start, -1, "SUCCESS", "POST", "/api/payments/process", 0, "user-" + (payment % 5), null, null));
+        events.add(TelemetryEvent.log(traceId, root, "payment-service", "log_info", "Processing payment for order " + (1000 + payment)));
+        events.add(new TelemetryEvent(TelemetryEvent.SPAN, traceId, root + "1", root, "payment-service",
+            "payment-gateway_process_payment", start + 1_000_000, 180 + payment, "SUCCESS", "POST",
+            "http://localhost:8090/api/gateway/process", 200, null, null, "Outbound call to payment-gateway"));
+        events.add(TelemetryEvent.log(traceId, root, "payment-service", "log_info", "Payment " + payment + " completed"));
+        events.add(new TelemetryEvent(TelemetryEvent.SPAN, traceId, root + "2", root, "payment-service",
+            "notification-service_send_payment_confirmation", start + 2_000_000, 12, "SUCCESS", "POST",
+            "http://localhost:8085/api/notifications/payment-confirmation", 200, null, null, "Outbound call to notification-service"));
+        events.add(TelemetryEvent.log(traceId, root, "payment-service", "log_debug", "Notification sent"));
+        events.add(new TelemetryEvent(TelemetryEvent.SPAN, traceId, root, null, "payment-service", "process_payment_complete",
+            start + 3_000_000, 210 + payment, "SUCCESS", null, null, 200, null, "", null));
+        return events;
+    }
+
+    // Stub receiver side of the format described in TelemetryCompactWriter
+    private List<TelemetryEvent> decode(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(body)));
+        assertArrayEquals(TelemetryCompactWriter.MAGIC, in.readNBytes(TelemetryCompactWriter.MAGIC.length));
+        assertEquals(TelemetryCompactWriter.VERSION, in.readUnsignedByte());
+
+        String[] dictionary = new String[(int) readVarint(in)];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = new String(in.readNBytes((int) readVarint(in)), StandardCharsets.UTF_8);
+        }
+
+        int count = (int) readVarint(in);
+        List<TelemetryEvent> events = new ArrayList<>(count);
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] record = in.readNBytes((int) readVarint(in));
+            DataInputStream r = new DataInputStream(new ByteArrayInputStream(record));
+            String eventType = string(r, dictionary);
+            String traceId = string(r, dictionary);
+            String spanId = string(r, dictionary);
+            String parentSpanId = string(r, dictionary);
+            String serviceName = string(r, dictionary);
+            String operation = string(r, dictionary);
+            timestamp += unzigzag(readVarint(r));
+            long durationMs = unzigzag(readVarint(r));
+            String status = string(r, dictionary);
+            String httpMethod = string(r, dictionary);
+            String httpUrl = string(r, dictionary);
+            int httpStatusCode = (int) readVarint(r);
+            String userId = string(r, dictionary);
+            String errorMessage = string(r, dictionary);
+            String metadata = string(r, dictionary);
+            List<TelemetryEvent.Annotation> annotations = null;
+            int annotationCount = (int) readVarint(r);
+            long annotationTimestamp = timestamp;
+            for (int a = 0; a < annotationCount; a++) {
+                if (annotations == null) annotations = new ArrayList<>(annotationCount);
+                annotationTimestamp += unzigzag(readVarint(r));
+                annotations.add(new TelemetryEvent.Annotation(annotationTimestamp, string(r, dictionary), string(r, dictionary)));
+            }
+            events.add(new TelemetryEvent(eventType, traceId, spanId, parentSpanId, serviceName, operation, timestamp,
+                durationMs, status, httpMethod, httpUrl, httpStatusCode, userId, errorMessage, metadata, annotations));
+        }
+        assertEquals(-1, in.read());
+        return events;
+    }
+
+    private String string(InputStream in, String[] dictionary) throws IOException {
+        int index = (int) readVarint(in);
+        return index == 0 ? null : dictionary[index - 1];
+    }
+
+    private long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.read();
+            if (b < 0) throw new IOException("Truncated varint");
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,104 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Run with ./gradlew benchmark. Reports bytes allocated per event, building and serializing a
+// batch, for the old HashMap + Jackson payloads and for TelemetryEvent + TelemetryJsonWriter.
+@Tag("benchmark")
+class TelemetryEventBenchmarkTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int BATCHES = 20_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void measureAllocationPerEvent() throws JsonProcessingException {
+        double mapBytes = measure("HashMap + Jackson", this::mapBatch);
+        double typedBytes = measure("TelemetryEvent + writer", new TypedBatch()::run);
+
+        System.out.printf("Allocation reduced by %.0f%%%n", 100 * (1 - typedBytes / mapBytes));
+        assertTrue(typedBytes < mapBytes);
+    }
+
+    private double measure(String name, Batch batch) throws JsonProcessingException {
+        long sink = 0;
+        for (int i = 0; i < BATCHES / 10; i++) {
+            sink += batch.run();
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < BATCHES; i++) {
+            sink += batch.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        long events = (long) BATCHES * BATCH_SIZE;
+        double bytesPerEvent = (double) allocated / events;
+        System.out.printf("%-24s %8.1f bytes/event %8.1f ns/event (%d bytes written)%n",
+            name, bytesPerEvent, (double) elapsed / events, sink);
+        return bytesPerEvent;
+    }
+
+    private int mapBatch() throws JsonProcessingException {
+        List<Object> events = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Map<String, Object> eventData = new HashMap<>();
+            eventData.put("traceId", "trace_0123456789abcdef0123456789abcdef");
+            eventData.put("spanId", "span_0123456789abcdef");
+            eventData.put("parentSpanId", "span_fedcba9876543210");
+            eventData.put("serviceName", "payment-service");
+            eventData.put("operation", "notification-service_sendConfirmation");
+            eventData.put("eventType", "SPAN");
+            eventData.put("timestamp", LocalDateTime.now());
+            eventData.put("durationMs", (long) i);
+            eventData.put("status", "SUCCESS");
+            eventData.put("httpMethod", "POST");
+            eventData.put("httpUrl", "/api/notifications/payment-confirmation");
+            eventData.put("httpStatusCode", 200);
+            eventData.put("metadata", "Outbound call to notification-service");
+            events.add(eventData);
+        }
+        return objectMapper.writeValueAsBytes(events).length;
+    }
+
+    private static final class TypedBatch {
+        private final TelemetryJsonWriter writer = new TelemetryJsonWriter(64 * 1024);
+        private final List<TelemetryEvent> events = new ArrayList<>(BATCH_SIZE);
+
+        int run() {
+            events.clear();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                events.add(new TelemetryEvent(TelemetryEvent.SPAN, "trace_0123456789abcdef0123456789abcdef",
+                    "span_0123456789abcdef", "span_fedcba9876543210", "payment-service",
+                    "notification-service_sendConfirmation", TelemetryEvent.currentEpochNanos(), i, "SUCCESS",
+                    "POST", "/api/notifications/payment-confirmation", 200, null, null,
+                    "Outbound call to notification-service"));
+            }
+            writer.writeBatch(events);
+            return writer.size();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Batch {
+        int run() throws JsonProcessingException;
+    }
+}
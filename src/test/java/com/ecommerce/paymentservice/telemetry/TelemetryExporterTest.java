@@ -0,0 +1,177 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryExporterTest {
+
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private TelemetryExporter<String> exporter;
+
+    @AfterEach
+    void tearDown() {
+        if (exporter != null) {
+            exporter.shutdown();
+        }
+    }
+
+    @Test
+    void offer_ShouldFlushFullBatchWithoutWaitingForInterval() throws InterruptedException {
+        // Given - an interval long enough that only the size trigger can fire
+        CountDownLatch sent = new CountDownLatch(1);
+        exporter = new TelemetryExporter<>(batch -> {
+            batches.add(batch);
+            sent.countDown();
+        }, 64, 3, 60_000);
+        exporter.start();
+
+        // When
+        exporter.offer("a");
+        exporter.offer("b");
+        exporter.offer("c");
+
+        // Then
+        assertTrue(sent.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), batches.get(0));
+        assertEquals(3, exporter.getExportedCount());
+    }
+
+    @Test
+    void offer_ShouldFlushPartialBatchAfterInterval() throws InterruptedException {
+        // Given
+        CountDownLatch sent = new CountDownLatch(1);
+        exporter = new TelemetryExporter<>(batch -> {
+            batches.add(batch);
+            sent.countDown();
+        }, 64, 100, 50);
+        exporter.start();
+
+        // When
+        exporter.offer("a");
+        exporter.offer("b");
+
+        // Then
+        assertTrue(sent.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b"), batches.get(0));
+    }
+
+    @Test
+    void offer_ShouldCountDroppedEvents_WhenBufferIsFull() {
+        // Given - exporter never started, nothing drains the buffer
+        exporter = new TelemetryExporter<>(batches::add, 4, 100, 50);
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            exporter.offer("event-" + i);
+        }
+
+        // Then
+        assertEquals(2, exporter.getDroppedCount());
+        assertEquals(4, exporter.getBufferedCount());
+        exporter = null;
+    }
+
+    @Test
+    void offer_ShouldEvictOldestEvents_WhenPolicyIsDropOldest() {
+        // Given - exporter never started, nothing drains the buffer
+        exporter = new TelemetryExporter<>(batches::add, 4, 100, 50, TelemetryOverflowPolicy.DROP_OLDEST, 0);
+
+        // When
+        for (int i = 0; i < 6; i++) {
+            exporter.offer("event-" + i);
+        }
+
+        // Then - the two oldest made room for the two newest
+        assertEquals(2, exporter.getDroppedCount());
+        exporter.start();
+        exporter.shutdown();
+        assertEquals(List.of("event-2", "event-3", "event-4", "event-5"), batches.get(0));
+        exporter = null;
+    }
+
+    @Test
+    void offer_ShouldDropAfterTimeout_WhenPolicyIsBlockAndNothingDrains() {
+        // Given
+        exporter = new TelemetryExporter<>(batches::add, 2, 100, 50, TelemetryOverflowPolicy.BLOCK, 20);
+        exporter.offer("a");
+        exporter.offer("b");
+
+        // When
+        long start = System.nanoTime();
+        exporter.offer("c");
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertTrue(waitedMs >= 15, "waited " + waitedMs + " ms");
+        assertEquals(1, exporter.getDroppedCount());
+        exporter = null;
+    }
+
+    @Test
+    void offer_ShouldWaitForRoom_WhenPolicyIsBlock() throws InterruptedException {
+        // Given - a batch of two fills the buffer and wakes the exporter
+        CountDownLatch sent = new CountDownLatch(2);
+        exporter = new TelemetryExporter<>(batch -> {
+            batches.add(batch);
+            batch.forEach(event -> sent.countDown());
+        }, 2, 2, 60_000, TelemetryOverflowPolicy.BLOCK, 2_000);
+        exporter.start();
+
+        // When
+        exporter.offer("a");
+        exporter.offer("b");
+        exporter.offer("c");
+
+        // Then - nothing was dropped, "c" waited until the exporter made room
+        assertTrue(sent.await(2, TimeUnit.SECONDS));
+        assertEquals(0, exporter.getDroppedCount());
+        exporter.shutdown();
+        assertEquals(3, batches.stream().mapToInt(List::size).sum());
+        exporter = null;
+    }
+
+    @Test
+    void shutdown_ShouldSendRemainingEvents() {
+        // Given
+        exporter = new TelemetryExporter<>(batches::add, 64, 100, 60_000);
+        exporter.start();
+        exporter.offer("a");
+
+        // When
+        exporter.shutdown();
+
+        // Then
+        assertEquals(1, batches.size());
+        assertEquals(List.of("a"), batches.get(0));
+        exporter = null;
+    }
+
+    @Test
+    void send_ShouldCountFailedBatchesAsDropped() throws InterruptedException {
+        // Given
+        CountDownLatch attempted = new CountDownLatch(1);
+        exporter = new TelemetryExporter<>(batch -> {
+            attempted.countDown();
+            throw new IllegalStateException("telemetry service down");
+        }, 64, 2, 60_000);
+        exporter.start();
+
+        // When
+        exporter.offer("a");
+        exporter.offer("b");
+
+        // Then
+        assertTrue(attempted.await(2, TimeUnit.SECONDS));
+        exporter.shutdown();
+        assertEquals(2, exporter.getDroppedCount());
+        assertEquals(0, exporter.getExportedCount());
+        exporter = null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void writeBatch_ShouldProduceJsonArrayOfEvents() throws Exception {
+        // Given
+        TelemetryJsonWriter writer = new TelemetryJsonWriter(64);
+        TelemetryEvent span = new TelemetryEvent(TelemetryEvent.SPAN, "trace_1", "span_1", "span_0", "payment-service",
+            "notification-service_send", 1_700_000_000_123_456_789L, 150, "ERROR", "POST", "/api/notifications", 404,
+            null, null, "Outbound call to notification-service");
+        TelemetryEvent log = TelemetryEvent.log("trace_1", "span_1", "payment-service", "log_info", "Payment saved");
+
+        // When
+        writer.writeBatch(List.of(span, log));
+
+        // Then
+        JsonNode events = objectMapper.readTree(writer.toJson());
+        assertEquals(2, events.size());
+        JsonNode first = events.get(0);
+        assertEquals("SPAN", first.get("eventType").asText());
+        assertEquals("span_0", first.get("parentSpanId").asText());
+        assertEquals(1_700_000_000_123_456_789L, first.get("timestampNanos").asLong());
+        assertEquals(150, first.get("durationMs").asLong());
+        assertEquals(404, first.get("httpStatusCode").asInt());
+        assertFalse(first.has("userId"));
+        assertFalse(first.has("annotations"));
+
+        JsonNode second = events.get(1);
+        assertEquals("LOG", second.get("eventType").asText());
+        assertEquals("Payment saved", second.get("metadata").asText());
+        assertFalse(second.has("durationMs"));
+        assertFalse(second.has("httpStatusCode"));
+    }
+
+    @Test
+    void write_ShouldNestSpanAnnotationsInOrder() throws Exception {
+        // Given
+        TelemetryJsonWriter writer = new TelemetryJsonWriter(64);
+        TelemetryEvent span = new TelemetryEvent(TelemetryEvent.SPAN, "trace_1", "span_1", null, "payment-service",
+            "process_payment_complete", 3_000L, 2, "SUCCESS", null, null, 200, null, "", null, List.of(
+                new TelemetryEvent.Annotation(1_000L, "INFO", "Processing payment for order: 7"),
+                new TelemetryEvent.Annotation(2_000L, "ERROR", "Gateway said \"no\"")));
+
+        // When
+        writer.writeBatch(List.of(span));
+
+        // Then
+        JsonNode annotations = objectMapper.readTree(writer.toJson()).get(0).get("annotations");
+        assertEquals(2, annotations.size());
+        assertEquals(1_000L, annotations.get(0).get("timestampNanos").asLong());
+        assertEquals("INFO", annotations.get(0).get("level").asText());
+        assertEquals("Processing payment for order: 7", annotations.get(0).get("message").asText());
+        assertEquals("Gateway said \"no\"", annotations.get(1).get("message").asText());
+    }
+
+    @Test
+    void write_ShouldEscapeStringsAndEncodeUtf8() throws Exception {
+        // Given
+        TelemetryJsonWriter writer = new TelemetryJsonWriter(8);
+        String message = "quote \" backslash \\ newline \n tab \t euro € emoji 😀";
+
+        // When
+        writer.writeBatch(List.of(TelemetryEvent.log("trace_1", "span_1", "payment-service", "log_info", message)));
+
+        // Then
+        assertEquals(message, objectMapper.readTree(writer.toJson()).get(0).get("metadata").asText());
+    }
+
+    @Test
+    void writeBatch_ShouldReuseBufferBetweenBatches() throws Exception {
+        // Given
+        TelemetryJsonWriter writer = new TelemetryJsonWriter(4096);
+        TelemetryEvent log = TelemetryEvent.log("trace_1", "span_1", "payment-service", "log_info", "first");
+        writer.writeBatch(List.of(log, log, log));
+        byte[] buffer = writer.buffer();
+
+        // When
+        writer.writeBatch(List.of(TelemetryEvent.log("trace_2", "span_2", "payment-service", "log_info", "second")));
+
+        // Then
+        assertSame(buffer, writer.buffer());
+        JsonNode events = objectMapper.readTree(writer.toJson());
+        assertEquals(1, events.size());
+        assertEquals("second", events.get(0).get("metadata").asText());
+    }
+
+    @Test
+    void writeBatch_ShouldWriteEmptyArray_WhenNoEvents() {
+        // Given
+        TelemetryJsonWriter writer = new TelemetryJsonWriter(16);
+
+        // When
+        writer.writeBatch(List.of());
+
+        // Then
+        assertEquals("[]", writer.toJson());
+    }
+}
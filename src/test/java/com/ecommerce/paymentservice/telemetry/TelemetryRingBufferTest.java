@@ -0,0 +1,113 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryRingBufferTest {
+
+    @Test
+    void capacity_ShouldRoundUpToPowerOfTwo() {
+        assertEquals(8, new TelemetryRingBuffer<String>(5).capacity());
+        assertEquals(8192, new TelemetryRingBuffer<String>(8192).capacity());
+    }
+
+    @Test
+    void offer_ShouldRefuseEvents_WhenFull() {
+        // Given
+        TelemetryRingBuffer<String> buffer = new TelemetryRingBuffer<>(4);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, buffer.offer("event-" + i));
+        }
+
+        // Then
+        assertEquals(-1, buffer.offer("overflow"));
+        assertEquals(4, buffer.size());
+    }
+
+    @Test
+    void drainTo_ShouldReturnEventsInOrderAndFreeSlots() {
+        // Given
+        TelemetryRingBuffer<String> buffer = new TelemetryRingBuffer<>(4);
+        buffer.offer("a");
+        buffer.offer("b");
+        buffer.offer("c");
+        List<String> drained = new ArrayList<>();
+
+        // When
+        int count = buffer.drainTo(drained, 2);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of("a", "b"), drained);
+        assertTrue(buffer.offer("d") > 0);
+        assertTrue(buffer.offer("e") > 0);
+        buffer.drainTo(drained, 10);
+        assertEquals(List.of("a", "b", "c", "d", "e"), drained);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void poll_ShouldTakeOldestEventAndFreeItsSlot() {
+        // Given
+        TelemetryRingBuffer<String> buffer = new TelemetryRingBuffer<>(2);
+        buffer.offer("a");
+        buffer.offer("b");
+
+        // When
+        String oldest = buffer.poll();
+
+        // Then
+        assertEquals("a", oldest);
+        assertTrue(buffer.offer("c") > 0);
+        assertEquals("b", buffer.poll());
+        assertEquals("c", buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void offer_ShouldNotLoseEvents_WithConcurrentProducers() throws InterruptedException {
+        // Given
+        int producers = 4;
+        int perProducer = 10_000;
+        TelemetryRingBuffer<String> buffer = new TelemetryRingBuffer<>(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        Set<String> received = new HashSet<>();
+        List<String> batch = new ArrayList<>();
+
+        // When
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            executor.submit(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (buffer.offer(producer + "-" + i) < 0) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        while (done.getCount() > 0 || buffer.size() > 0) {
+            buffer.drainTo(batch, 256);
+            received.addAll(batch);
+            batch.clear();
+        }
+        executor.shutdown();
+
+        // Then
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(producers * perProducer, received.size());
+    }
+}
@@ -0,0 +1,181 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetrySenderTest {
+
+    private MockWebServer mockWebServer;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        mockWebServer = new MockWebServer();
+        mockWebServer.start();
+        url = mockWebServer.url("/api/telemetry/events").toString();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        mockWebServer.shutdown();
+    }
+
+    @Test
+    void send_ShouldWaitForFreeSlot_WhenMaxInFlightReached() throws InterruptedException {
+        // Given - a slow telemetry service and room for one request
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 1, 5_000);
+
+        // When
+        sender.send(List.of(event("first")));
+        assertEquals(1, sender.getInFlight());
+        long start = System.nanoTime();
+        sender.send(List.of(event("second")));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then - the second batch was only serialized once the first request finished
+        assertTrue(waitedMs >= 200, "waited " + waitedMs + " ms");
+        assertTrue(sender.awaitIdle(2_000));
+        assertEquals(2, sender.getSentCount());
+        RecordedRequest first = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest second = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        assertTrue(first.getBody().readUtf8().contains("first"));
+        assertTrue(second.getBody().readUtf8().contains("second"));
+    }
+
+    @Test
+    void send_ShouldCountFailedEvents_WhenServiceReturnsError() {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 2, 5_000);
+
+        // When
+        sender.send(List.of(event("a"), event("b")));
+
+        // Then
+        assertTrue(sender.awaitIdle(2_000));
+        assertEquals(2, sender.getFailedCount());
+        assertEquals(0, sender.getSentCount());
+        assertEquals(0, sender.getInFlight());
+    }
+
+    @Test
+    void send_ShouldFreeSlot_WhenRequestTimesOut() {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200).setHeadersDelay(2, TimeUnit.SECONDS));
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 1, 100);
+
+        // When
+        sender.send(List.of(event("slow")));
+
+        // Then
+        assertTrue(sender.awaitIdle(1_000));
+        assertEquals(1, sender.getFailedCount());
+    }
+
+    @Test
+    void send_ShouldSpoolFailedBatchAndReplayIt_WhenServiceRecovers(@TempDir Path spoolDirectory) throws Exception {
+        // Given - the telemetry service is down for the first batch
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        TelemetrySpool spool = new TelemetrySpool(spoolDirectory, 1024 * 1024, 64 * 1024);
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 2, 5_000, spool);
+
+        // When
+        sender.send(List.of(event("outage"), event("outage-2")));
+        assertTrue(sender.awaitIdle(2_000));
+        assertEquals(1, spool.getPendingBatches());
+        sender.replaySpooled();
+
+        // Then
+        assertTrue(sender.awaitIdle(2_000));
+        mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        RecordedRequest replay = mockWebServer.takeRequest(1, TimeUnit.SECONDS);
+        String body = replay.getBody().readUtf8();
+        assertTrue(body.startsWith("[") && body.contains("outage-2"), body);
+        assertEquals(0, spool.getPendingBatches());
+        assertEquals(0, sender.getFailedCount());
+        assertEquals(2, sender.getSpooledCount());
+        assertEquals(2, sender.getReplayedCount());
+        assertEquals(2, sender.getSentCount());
+    }
+
+    @Test
+    void replaySpooled_ShouldKeepBatch_WhenServiceIsStillDown(@TempDir Path spoolDirectory) throws Exception {
+        // Given
+        TelemetrySpool spool = new TelemetrySpool(spoolDirectory, 1024 * 1024, 64 * 1024);
+        byte[] batch = "[{\"eventType\":\"log\"}]".getBytes(StandardCharsets.UTF_8);
+        spool.append(batch, 0, batch.length, 1);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(503));
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 1, 5_000, spool);
+
+        // When
+        sender.replaySpooled();
+
+        // Then
+        assertNotNull(mockWebServer.takeRequest(1, TimeUnit.SECONDS));
+        assertTrue(sender.awaitIdle(2_000));
+        assertEquals(1, spool.getPendingBatches());
+        assertEquals(0, sender.getReplayedCount());
+    }
+
+    @Test
+    void replaySpooled_ShouldDropRejectedBatchAndContinue_WhenServiceReturnsClientError(@TempDir Path spoolDirectory) throws Exception {
+        // Given - the service rejects the oldest batch but accepts the one behind it
+        TelemetrySpool spool = new TelemetrySpool(spoolDirectory, 1024 * 1024, 64 * 1024);
+        byte[] rejected = "[{\"eventType\":\"rejected\"}]".getBytes(StandardCharsets.UTF_8);
+        byte[] accepted = "[{\"eventType\":\"log\"},{\"eventType\":\"log\"}]".getBytes(StandardCharsets.UTF_8);
+        spool.append(rejected, 0, rejected.length, 1);
+        spool.append(accepted, 0, accepted.length, 2);
+        mockWebServer.enqueue(new MockResponse().setResponseCode(400));
+        mockWebServer.enqueue(new MockResponse().setResponseCode(200));
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 1, 5_000, spool);
+
+        // When
+        sender.replaySpooled();
+
+        // Then
+        assertTrue(mockWebServer.takeRequest(1, TimeUnit.SECONDS).getBody().readUtf8().contains("rejected"));
+        assertNotNull(mockWebServer.takeRequest(1, TimeUnit.SECONDS));
+        assertTrue(sender.awaitIdle(2_000));
+        assertEquals(0, spool.getPendingBatches());
+        assertEquals(1, sender.getFailedCount());
+        assertEquals(2, sender.getReplayedCount());
+    }
+
+    @Test
+    void send_ShouldNotSpoolBatch_WhenServiceRejectsIt(@TempDir Path spoolDirectory) throws Exception {
+        // Given
+        mockWebServer.enqueue(new MockResponse().setResponseCode(422));
+        TelemetrySpool spool = new TelemetrySpool(spoolDirectory, 1024 * 1024, 64 * 1024);
+        TelemetrySender sender = new TelemetrySender(WebClient.builder().build(), url, 1, 5_000, spool);
+
+        // When
+        sender.send(List.of(event("malformed")));
+
+        // Then
+        assertTrue(sender.awaitIdle(2_000));
+        assertEquals(0, spool.getPendingBatches());
+        assertEquals(0, sender.getSpooledCount());
+        assertEquals(1, sender.getFailedCount());
+    }
+
+    private TelemetryEvent event(String message) {
+        return TelemetryEvent.log("trace_1", "span_1", "payment-service", "log_info", message);
+    }
+}
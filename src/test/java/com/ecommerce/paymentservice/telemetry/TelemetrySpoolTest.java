@@ -0,0 +1,175 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetrySpoolTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void peek_ShouldReturnBatchesInAppendOrder() throws IOException {
+        // Given
+        TelemetrySpool spool = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        append(spool, "[\"first\"]", 1);
+        append(spool, "[\"second\"]", 2);
+
+        // When
+        TelemetrySpool.Entry first = spool.peek();
+        spool.acknowledge(first);
+        TelemetrySpool.Entry second = spool.peek();
+        spool.acknowledge(second);
+
+        // Then
+        assertEquals("[\"first\"]", text(first));
+        assertEquals(1, first.eventCount());
+        assertEquals("[\"second\"]", text(second));
+        assertEquals(2, second.eventCount());
+        assertNull(spool.peek());
+        assertEquals(0, spool.getPendingBatches());
+        assertEquals(0, spool.getPendingBytes());
+    }
+
+    @Test
+    void peek_ShouldReturnSameBatchUntilAcknowledged() throws IOException {
+        // Given
+        TelemetrySpool spool = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        append(spool, "[\"retry\"]", 1);
+
+        // When & Then
+        assertEquals("[\"retry\"]", text(spool.peek()));
+        assertEquals("[\"retry\"]", text(spool.peek()));
+        assertEquals(1, spool.getPendingBatches());
+    }
+
+    @Test
+    void append_ShouldRotateSegmentsAndRejectBatchesOverTheCap() throws IOException {
+        // Given - two segments with room for two records each
+        String payload = "x".repeat(100);
+        TelemetrySpool spool = new TelemetrySpool(directory, 2 * 256, 256);
+
+        // When
+        boolean[] accepted = new boolean[5];
+        for (int i = 0; i < accepted.length; i++) {
+            accepted[i] = append(spool, payload, 1);
+        }
+
+        // Then
+        assertArrayEquals(new boolean[]{true, true, true, true, false}, accepted);
+        assertEquals(2, spool.getSegmentCount());
+        assertEquals(4, spool.getPendingBatches());
+    }
+
+    @Test
+    void acknowledge_ShouldDeleteSegment_OnceFullyReplayed() throws IOException {
+        // Given
+        String payload = "x".repeat(100);
+        TelemetrySpool spool = new TelemetrySpool(directory, 4 * 256, 256);
+        for (int i = 0; i < 3; i++) {
+            append(spool, payload, 1);
+        }
+        assertEquals(2, segmentFiles().size());
+
+        // When
+        spool.acknowledge(spool.peek());
+        spool.acknowledge(spool.peek());
+
+        // Then - the first segment is gone, the one being written to stays
+        assertEquals(1, segmentFiles().size());
+        assertEquals(1, spool.getPendingBatches());
+    }
+
+    @Test
+    void recover_ShouldResumeWithUnacknowledgedBatches_AfterRestart() throws IOException {
+        // Given
+        TelemetrySpool spool = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        append(spool, "[\"delivered\"]", 1);
+        append(spool, "[\"pending-1\"]", 1);
+        append(spool, "[\"pending-2\"]", 1);
+        spool.acknowledge(spool.peek());
+        spool.close();
+
+        // When
+        TelemetrySpool reopened = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        append(reopened, "[\"after-restart\"]", 1);
+
+        // Then
+        assertEquals(3, reopened.getPendingBatches());
+        assertEquals("[\"pending-1\"]", takeText(reopened));
+        assertEquals("[\"pending-2\"]", takeText(reopened));
+        assertEquals("[\"after-restart\"]", takeText(reopened));
+        assertNull(reopened.peek());
+    }
+
+    @Test
+    void recover_ShouldDropTornRecord_WhenChecksumDoesNotMatch() throws IOException {
+        // Given - a crash left the second record's payload half written
+        TelemetrySpool spool = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        append(spool, "[\"complete\"]", 1);
+        append(spool, "[\"torn\"]", 1);
+        spool.close();
+        int tornPayload = TelemetrySpool.HEADER_BYTES + "[\"complete\"]".length() + TelemetrySpool.HEADER_BYTES;
+        try (FileChannel channel = FileChannel.open(segmentFiles().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'?', '?'}), tornPayload);
+        }
+
+        // When
+        TelemetrySpool reopened = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+
+        // Then
+        assertEquals(1, reopened.getPendingBatches());
+        assertEquals("[\"complete\"]", takeText(reopened));
+        assertNull(reopened.peek());
+    }
+
+    @Test
+    void open_ShouldFail_WhenDirectoryIsUsedByAnotherSpool() throws IOException {
+        // Given
+        TelemetrySpool spool = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        append(spool, "[\"owned\"]", 1);
+
+        // When & Then
+        IOException exception = assertThrows(IOException.class,
+            () -> new TelemetrySpool(directory, 1024 * 1024, 64 * 1024));
+        assertTrue(exception.getMessage().contains("in use by another instance"));
+        assertEquals(1, spool.getPendingBatches());
+
+        spool.close();
+        TelemetrySpool reopened = new TelemetrySpool(directory, 1024 * 1024, 64 * 1024);
+        assertEquals("[\"owned\"]", takeText(reopened));
+    }
+
+    private boolean append(TelemetrySpool spool, String json, int eventCount) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return spool.append(bytes, 0, bytes.length, eventCount);
+    }
+
+    private String takeText(TelemetrySpool spool) {
+        TelemetrySpool.Entry entry = spool.peek();
+        spool.acknowledge(entry);
+        return text(entry);
+    }
+
+    private String text(TelemetrySpool.Entry entry) {
+        return new String(entry.payload(), StandardCharsets.UTF_8);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+}
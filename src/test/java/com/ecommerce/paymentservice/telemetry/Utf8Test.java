@@ -0,0 +1,42 @@
+package com.ecommerce.paymentservice.telemetry;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Utf8Test {
+
+    @Test
+    void encode_ShouldMatchStringGetBytes() {
+        // Given - one, two, three and four byte sequences and a lone surrogate
+        String value = "ascii é € 中 😀 lone \uD800 end";
+        byte[] buf = new byte[64];
+
+        // When
+        int length = Utf8.encode(value, 0, value.length(), buf, 0);
+
+        // Then
+        byte[] expected = value.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, length);
+        assertEquals(expected.length, Utf8.encodedLength(value));
+        assertArrayEquals(expected, Arrays.copyOf(buf, length));
+    }
+
+    @Test
+    void encode_ShouldWriteRangeAtGivenPosition() {
+        // Given
+        String value = "ab€cd";
+        byte[] buf = new byte[8];
+        buf[0] = 'x';
+
+        // When
+        int end = Utf8.encode(value, 1, 4, buf, 1);
+
+        // Then
+        assertEquals(6, end);
+        assertEquals("xb€c", new String(buf, 0, end, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,47 @@
+package com.ecommerce.paymentservice.util;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Run with ./gradlew benchmark. Compares the UUID based ids the service used to build with IdGenerator.
+@Tag("benchmark")
+class IdGeneratorBenchmarkTest {
+
+    private static final int ITERATIONS = 2_000_000;
+
+    private final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void measureIdGeneration() {
+        measure("trace id (UUID)", () -> "trace_" + UUID.randomUUID().toString().replace("-", ""));
+        measure("trace id (IdGenerator)", IdGenerator::traceId);
+        measure("span id (toHexString)", () -> "span_" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        measure("span id (IdGenerator)", IdGenerator::spanId);
+        measure("transaction id (UUID)", () -> "TXN_" + UUID.randomUUID().toString().replace("-", "").substring(0, 12));
+        measure("transaction id (IdGenerator)", IdGenerator::transactionId);
+    }
+
+    private void measure(String name, Supplier<String> generator) {
+        long sink = 0;
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            sink += generator.get().length();
+        }
+
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += generator.get().length();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        System.out.printf("%-30s %7.1f ns/id %7.1f bytes/id (%d chars)%n",
+            name, (double) elapsed / ITERATIONS, (double) allocated / ITERATIONS, sink);
+    }
+}
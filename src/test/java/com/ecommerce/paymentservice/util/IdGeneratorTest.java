@@ -0,0 +1,77 @@
+package com.ecommerce.paymentservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void traceId_ShouldBePrefixedWith128BitHex() {
+        String traceId = IdGenerator.traceId();
+
+        assertTrue(traceId.matches("trace_[0-9a-f]{32}"), traceId);
+    }
+
+    @Test
+    void spanId_ShouldBePrefixedWith64BitHex() {
+        String spanId = IdGenerator.spanId();
+
+        assertTrue(spanId.matches("span_[0-9a-f]{16}"), spanId);
+    }
+
+    @Test
+    void transactionId_ShouldKeepGatewayFormat() {
+        String transactionId = IdGenerator.transactionId();
+
+        assertTrue(transactionId.matches("TXN_[0-9a-f]{12}"), transactionId);
+    }
+
+    @Test
+    void hex_ShouldZeroPadAndUseBothWords() {
+        assertEquals("x_0000000000000001", IdGenerator.hex("x_", 0, 1, 16));
+        assertEquals("x_000000000000000f00000000000000ff", IdGenerator.hex("x_", 0xF, 0xFF, 32));
+        assertEquals("x_ffffffffffffffffffffffffffffffff", IdGenerator.hex("x_", -1, -1, 32));
+        assertEquals("TXN_cdef01234567", IdGenerator.hex("TXN_", 0, 0x89abcdef01234567L, 12));
+    }
+
+    @Test
+    void ids_ShouldBeUniqueAcrossThreads() throws Exception {
+        assertUnique(IdGenerator::traceId);
+        assertUnique(IdGenerator::spanId);
+        assertUnique(IdGenerator::transactionId);
+    }
+
+    private void assertUnique(Supplier<String> generator) throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.get());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * perThread, ids.size());
+    }
+}